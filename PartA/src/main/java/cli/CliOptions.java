@@ -0,0 +1,396 @@
+package cli;
+
+import load.AsyncPipeline;
+import load.IdRegistry;
+import load.PayloadCorpus;
+import load.TodoOperation;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Command-line options of the load-testing CLI, see usage().
+ */
+public class CliOptions {
+
+    private static final Set<String> OPTIONS = Set.of("--url", "--ops", "--concurrency", "--requests", "--duration",
+            "--output", "--payload-size", "--seed", "--workload", "--warmup", "--cooldown", "--timeseries", "--server-pid",
+            "--replay", "--results", "--baseline", "--threshold", "--report", "--compare", "--scaling", "--engine",
+            "--completion", "--pipeline", "--targets");
+
+    // How requests are sent: THREADS blocks one worker thread per request in flight,
+    // ASYNC keeps up to the concurrency level in flight from a single thread with sendAsync,
+    // NIO pipelines pre-encoded requests over that many raw connections from a single thread
+    public enum Engine {
+        THREADS, ASYNC, NIO
+    }
+
+    private String url = "http://localhost:4567";
+    private final List<TodoOperation> operations = new ArrayList<>(List.of(TodoOperation.CREATE));
+    private final List<Integer> concurrencyLevels = new ArrayList<>(List.of(1));
+    private int requests = 1000;
+    private Duration duration;
+    private String workload;
+    private Duration warmup;
+    private Duration cooldown;
+    private Path timeSeries;
+    private long serverPid = -1;
+    private Path replay;
+    private Path results;
+    private Path baseline;
+    private double threshold = 10;
+    private Path report;
+    private Path compare;
+    private Path scaling;
+    private Engine engine = Engine.THREADS;
+    private AsyncPipeline.Completion completion = AsyncPipeline.Completion.UNORDERED;
+    private int pipeline = 8;
+    private IdRegistry.Selection targets = IdRegistry.Selection.uniform();
+    private Path output = Path.of("todo_load.csv");
+    private PayloadCorpus.SizeClass payloadSize = PayloadCorpus.SizeClass.TYPICAL;
+    private long seed = 429;
+    private boolean help;
+
+    private CliOptions() {
+    }
+
+    public static CliOptions parse(String... args) {
+        CliOptions options = new CliOptions();
+        boolean requestsGiven = false;
+        boolean opsGiven = false;
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) {
+                options.help = true;
+                continue;
+            }
+            // Accept both "--name value" and "--name=value"
+            String value;
+            int equals = arg.startsWith("--") ? arg.indexOf('=') : -1;
+            if (equals > 0) {
+                arg = arg.substring(0, equals);
+            }
+            if (!OPTIONS.contains(arg)) {
+                throw new IllegalArgumentException("Unknown option " + arg);
+            }
+            if (equals > 0) {
+                value = args[i].substring(equals + 1);
+            } else if (i + 1 < args.length) {
+                value = args[++i];
+            } else {
+                throw new IllegalArgumentException("Missing value for " + arg);
+            }
+            switch (arg) {
+                case "--url":
+                    options.url = value.endsWith("/") ? value.substring(0, value.length() - 1) : value;
+                    break;
+                case "--ops":
+                    options.operations.clear();
+                    for (String name : value.split(",")) {
+                        options.operations.add(TodoOperation.parse(name));
+                    }
+                    opsGiven = true;
+                    break;
+                case "--workload":
+                    options.workload = value;
+                    break;
+                case "--warmup":
+                    options.warmup = parseDuration(value);
+                    break;
+                case "--cooldown":
+                    options.cooldown = parseDuration(value);
+                    break;
+                case "--timeseries":
+                    options.timeSeries = Path.of(value);
+                    break;
+                case "--server-pid":
+                    options.serverPid = positive(arg, value);
+                    break;
+                case "--replay":
+                    options.replay = Path.of(value);
+                    break;
+                case "--results":
+                    options.results = Path.of(value);
+                    break;
+                case "--baseline":
+                    options.baseline = Path.of(value);
+                    break;
+                case "--threshold":
+                    options.threshold = percent(arg, value);
+                    break;
+                case "--report":
+                    options.report = Path.of(value);
+                    break;
+                case "--compare":
+                    options.compare = Path.of(value);
+                    break;
+                case "--scaling":
+                    options.scaling = Path.of(value);
+                    break;
+                case "--engine":
+                    options.engine = choice(arg, Engine.class, value);
+                    break;
+                case "--completion":
+                    options.completion = choice(arg, AsyncPipeline.Completion.class, value);
+                    break;
+                case "--pipeline":
+                    options.pipeline = positive(arg, value);
+                    break;
+                case "--targets":
+                    options.targets = IdRegistry.Selection.parse(value);
+                    break;
+                case "--concurrency":
+                    options.concurrencyLevels.clear();
+                    for (String level : value.split(",")) {
+                        options.concurrencyLevels.add(positive(arg, level));
+                    }
+                    break;
+                case "--requests":
+                    options.requests = positive(arg, value);
+                    requestsGiven = true;
+                    break;
+                case "--duration":
+                    options.duration = parseDuration(value);
+                    break;
+                case "--output":
+                    options.output = Path.of(value);
+                    break;
+                case "--payload-size":
+                    options.payloadSize = PayloadCorpus.SizeClass.valueOf(value.toUpperCase(Locale.ROOT));
+                    break;
+                case "--seed":
+                    options.seed = Long.parseLong(value);
+                    break;
+                default:
+                    throw new IllegalStateException("Unhandled option " + arg);
+            }
+        }
+        if (requestsGiven && options.duration != null) {
+            throw new IllegalArgumentException("--requests and --duration are mutually exclusive");
+        }
+        if (opsGiven && options.workload != null) {
+            throw new IllegalArgumentException("--ops and --workload are mutually exclusive");
+        }
+        if (options.engine != Engine.THREADS && options.workload != null) {
+            throw new IllegalArgumentException("--workload runs on the threads engine only");
+        }
+        if (options.compare != null && options.baseline == null) {
+            throw new IllegalArgumentException("--compare needs a --baseline to compare against");
+        }
+        return options;
+    }
+
+    // Accepts 500ms, 30s, 2m, 1h or an ISO-8601 duration such as PT30S
+    static Duration parseDuration(String value) {
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        try {
+            if (text.startsWith("pt")) {
+                return Duration.parse(text);
+            } else if (text.endsWith("ms")) {
+                return Duration.ofMillis(Long.parseLong(text.substring(0, text.length() - 2)));
+            } else if (text.endsWith("s")) {
+                return Duration.ofSeconds(Long.parseLong(text.substring(0, text.length() - 1)));
+            } else if (text.endsWith("m")) {
+                return Duration.ofMinutes(Long.parseLong(text.substring(0, text.length() - 1)));
+            } else if (text.endsWith("h")) {
+                return Duration.ofHours(Long.parseLong(text.substring(0, text.length() - 1)));
+            }
+        } catch (RuntimeException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Invalid duration '" + value + "', expected e.g. 500ms, 30s or 2m");
+    }
+
+    private static int positive(String option, String value) {
+        int number;
+        try {
+            number = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " expects a number, got '" + value + "'");
+        }
+        if (number < 1) {
+            throw new IllegalArgumentException(option + " must be at least 1");
+        }
+        return number;
+    }
+
+    private static <E extends Enum<E>> E choice(String option, Class<E> type, String value) {
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException(option + " does not accept '" + value + "'");
+        }
+    }
+
+    private static double percent(String option, String value) {
+        double number;
+        try {
+            number = Double.parseDouble(value.trim().replace("%", ""));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " expects a percentage, got '" + value + "'");
+        }
+        if (number < 0) {
+            throw new IllegalArgumentException(option + " must not be negative");
+        }
+        return number;
+    }
+
+    public static String usage() {
+        return String.join(System.lineSeparator(),
+                "Usage: java -jar PartA.jar [options]",
+                "  --url URL               Todo Manager base URL (default http://localhost:4567)",
+                "  --ops OPS               operations run one after another, comma-separated:",
+                "                          list, get, create, amend, update, delete (default create)",
+                "  --workload W            weighted mix in one run instead: read-heavy, write-heavy,",
+                "                          crud-cycle or a JSON workload file",
+                "  --concurrency N[,N...]  closed-model workers, each level is a separate run (default 1)",
+                "  --engine E              threads: one blocking worker per concurrency level (default);",
+                "                          async: one thread keeping that many sendAsync requests in flight;",
+                "                          nio: one thread pipelining raw requests over that many connections",
+                "  --completion C          async engine: unordered (default) frees a slot on any response,",
+                "                          ordered frees slots in send order",
+                "  --pipeline N            nio engine: requests in flight per connection (default 8)",
+                "  --targets T             how operations on one todo pick it among the live ids: uniform",
+                "                          (default), zipf or zipf:EXPONENT for a skew towards the oldest",
+                "  --requests N            requests per run (default 1000)",
+                "  --duration D            run for a time instead, e.g. 500ms, 30s, 2m; a delete run that",
+                "                          deleted every todo gets 404s, nio delete runs stop there instead",
+                "  --warmup D              run each load for D before measuring it, results discarded",
+                "  --cooldown D            stay idle for D after each measured run",
+                "  --output FILE           CSV results file (default todo_load.csv)",
+                "  --timeseries FILE       also record 100 ms intervals and phase markers to FILE",
+                "  --server-pid PID        sample the server process's CPU, RSS, threads and GC into the time series",
+                "  --replay FILE           print the per-phase report of a time series file and exit",
+                "  --results FILE          save the latency histograms of every run to FILE",
+                "  --baseline FILE         compare the runs' latency percentiles with FILE and exit with 3 on a",
+                "                          significant regression; a missing FILE is created from this run",
+                "  --threshold PCT         smallest slowdown counted as a regression, in percent (default 10)",
+                "  --report FILE           write the comparison report to FILE instead of the console",
+                "  --compare FILE          compare a saved --results FILE with --baseline and exit",
+                "  --scaling FILE          fit cost vs. numObjects for each operation of a metrics CSV, write",
+                "                          the fitted curves to FILE_scaling.csv and exit",
+                "  --payload-size SIZE     tiny, typical or large todo bodies (default typical)",
+                "  --seed N                payload generator seed (default 429)",
+                "  -h, --help              print this help");
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public List<TodoOperation> operations() {
+        return operations;
+    }
+
+    public List<Integer> concurrencyLevels() {
+        return concurrencyLevels;
+    }
+
+    public int requests() {
+        return requests;
+    }
+
+    // Null for request-count runs
+    public Duration duration() {
+        return duration;
+    }
+
+    // Built-in workload name or workload file, null when running --ops
+    public String workload() {
+        return workload;
+    }
+
+    // Null when there is no warm-up
+    public Duration warmup() {
+        return warmup;
+    }
+
+    // Null when there is no cool-down
+    public Duration cooldown() {
+        return cooldown;
+    }
+
+    // Null when not recording a time series
+    public Path timeSeries() {
+        return timeSeries;
+    }
+
+    // -1 when the server is not sampled
+    public long serverPid() {
+        return serverPid;
+    }
+
+    // Null unless replaying a time series file
+    public Path replay() {
+        return replay;
+    }
+
+    // Null unless saving the run's latency histograms
+    public Path results() {
+        return results;
+    }
+
+    // Null when not comparing against a baseline
+    public Path baseline() {
+        return baseline;
+    }
+
+    // Slowdown in percent of the baseline that counts as a regression
+    public double threshold() {
+        return threshold;
+    }
+
+    // Null to print the comparison report
+    public Path report() {
+        return report;
+    }
+
+    // Null unless only comparing a saved results file with the baseline
+    public Path compare() {
+        return compare;
+    }
+
+    // Null unless analysing how a metrics CSV scales
+    public Path scaling() {
+        return scaling;
+    }
+
+    public Engine engine() {
+        return engine;
+    }
+
+    // How the async engine frees in-flight slots
+    public AsyncPipeline.Completion completion() {
+        return completion;
+    }
+
+    // Requests in flight per connection of the nio engine
+    public int pipeline() {
+        return pipeline;
+    }
+
+    // How get, amend, update and delete draw their target ids
+    public IdRegistry.Selection targets() {
+        return targets;
+    }
+
+    public Path output() {
+        return output;
+    }
+
+    public PayloadCorpus.SizeClass payloadSize() {
+        return payloadSize;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public boolean help() {
+        return help;
+    }
+}
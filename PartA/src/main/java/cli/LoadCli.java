@@ -0,0 +1,385 @@
+package cli;
+
+import client.RawRequests;
+import client.TodoClient;
+import client.TodoRequests;
+import client.TodoStreamParser;
+import client.TodoSummary;
+import load.AsyncPipeline;
+import load.IdRegistry;
+import load.LoadEngine;
+import load.LoadResult;
+import load.PipelinedEngine;
+import load.PayloadCorpus;
+import load.RawRequestStream;
+import load.RequestStream;
+import load.TodoOperation;
+import load.Workload;
+import load.WorkloadResult;
+import load.WorkloadStream;
+import metrics.LatencyHistogram;
+import metrics.LatencyResults;
+import metrics.MetricsSink;
+import metrics.ProcessSampler;
+import metrics.RegressionReport;
+import metrics.ScalingAnalysis;
+import metrics.TimeSeriesRecorder;
+import metrics.TimeSeriesReport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Load-testing CLI for a running Todo Manager, outside of the JUnit lifecycle.
+ * <p>
+ * Every operation is run at every concurrency level with the closed-model LoadEngine, one row per run
+ * in the output CSV. Bodies come from a PayloadCorpus built before the first run. Operations on one
+ * todo draw their targets (--targets) from an IdRegistry of the ids listed by GET /todos just before
+ * their run, deletes taking each id once; the server is never reset. Every row counts its responses
+ * by status, so 404s from running out of todos show up as such.
+ * With a workload, each concurrency level is one mixed run with a row per workload entry and a total row.
+ * --engine async sends each operation from one thread through an AsyncPipeline instead, with the
+ * concurrency level as its in-flight window; its rows are labelled e.g. create-async. --engine nio
+ * pipelines requests pre-encoded before the run over that many raw connections instead (create-nio).
+ * --timeseries also records every run as a time series with warm-up, measure and cool-down phases.
+ * --baseline compares the latency percentiles of every row with a saved run, see RegressionReport.
+ */
+public class LoadCli {
+
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILURE = 1;
+    public static final int EXIT_USAGE = 2;
+    public static final int EXIT_REGRESSION = 3;
+
+    private static final Duration TIME_SERIES_INTERVAL = Duration.ofMillis(100);
+
+    // clientCpu is the CPU time this process used per request, in microseconds (-1 for runs too short to tell),
+    // statuses e.g. 200=990;404=10
+    static final String HEADER = "operation,concurrency,requests,errors,duration,throughput,p50,p90,p99,p99.9,max,"
+            + "clientCpu,statuses";
+
+    private LoadCli() {
+    }
+
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        CliOptions options;
+        try {
+            options = CliOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(CliOptions.usage());
+            return EXIT_USAGE;
+        }
+        if (options.help()) {
+            out.println(CliOptions.usage());
+            return EXIT_OK;
+        }
+        if (options.replay() != null) {
+            try {
+                out.print(TimeSeriesReport.read(options.replay()).format());
+                return EXIT_OK;
+            } catch (IOException | RuntimeException e) {
+                err.println("Cannot replay " + options.replay() + ": " + e);
+                return EXIT_FAILURE;
+            }
+        }
+        if (options.scaling() != null) {
+            try {
+                ScalingAnalysis analysis = ScalingAnalysis.read(options.scaling());
+                Path curves = scalingFile(options.scaling());
+                analysis.writeCsv(curves);
+                out.print(analysis.format());
+                out.println("Fitted curves written to " + curves);
+                return EXIT_OK;
+            } catch (IOException e) {
+                err.println("Cannot analyse " + options.scaling() + ": " + e);
+                return EXIT_FAILURE;
+            }
+        }
+        if (options.compare() != null) {
+            try {
+                return checkBaseline(options, LatencyResults.read(options.compare()), out, err);
+            } catch (IOException e) {
+                err.println("Cannot read results " + options.compare() + ": " + e);
+                return EXIT_FAILURE;
+            }
+        }
+
+        Workload workload;
+        try {
+            workload = options.workload() == null ? null : Workload.named(options.workload());
+        } catch (IOException | IllegalArgumentException e) {
+            err.println("Cannot read workload " + options.workload() + ": " + e);
+            return EXIT_USAGE;
+        }
+
+        TodoClient client = TodoClient.forTarget(options.url());
+        int maxConcurrency = options.concurrencyLevels().stream().max(Integer::compare).orElse(1);
+        PayloadCorpus corpus = PayloadCorpus.generate(Math.max(options.requests(), maxConcurrency),
+                options.payloadSize(), options.seed());
+
+        ProcessSampler sampler = options.serverPid() > 0 && ProcessSampler.supported()
+                ? new ProcessSampler(options.serverPid(), TIME_SERIES_INTERVAL, null) : null;
+        TimeSeriesRecorder timeSeries = null;
+        LatencyResults results = new LatencyResults();
+        try (MetricsSink sink = new MetricsSink(options.output(), HEADER, 1 << 10, MetricsSink.OverflowPolicy.WAIT)) {
+            if (sampler != null) {
+                sampler.start();
+            }
+            if (options.timeSeries() != null) {
+                timeSeries = new TimeSeriesRecorder(options.timeSeries(), TIME_SERIES_INTERVAL, () -> sampler);
+            }
+            if (workload != null) {
+                for (int concurrency : options.concurrencyLevels()) {
+                    LoadEngine engine = new LoadEngine(client, concurrency, timeSeries);
+                    WorkloadResult result = inPhases(options, timeSeries, workload.name() + " c=" + concurrency,
+                            duration -> runWorkload(client, engine, workload, options.requests(), duration, corpus,
+                                    options.targets()));
+                    out.println(result);
+                    record(sink, results, workload.name(), result.total());
+                    for (LoadResult operation : result.operations()) {
+                        record(sink, results, workload.name() + "/" + operation.operation(), operation);
+                    }
+                    if (unanswered(result.total())) {
+                        err.println("No response from " + options.url() + " to any request of " + workload.name());
+                        return EXIT_FAILURE;
+                    }
+                }
+            } else {
+                for (TodoOperation operation : options.operations()) {
+                    for (int concurrency : options.concurrencyLevels()) {
+                        Engine engine = engine(options, client, concurrency, timeSeries);
+                        String label = options.engine() == CliOptions.Engine.THREADS ? operation.label()
+                                : operation.label() + "-" + options.engine().name().toLowerCase(Locale.ROOT);
+                        boolean encode = options.engine() == CliOptions.Engine.NIO;
+                        LoadResult result = inPhases(options, timeSeries, label + " c=" + concurrency,
+                                duration -> runOnce(client, engine, encode, operation, label, options.requests(), duration,
+                                        corpus, options.targets()));
+                        out.println(result);
+                        record(sink, results, result.operation(), result);
+                        if (unanswered(result)) {
+                            err.println("No response from " + options.url() + " to any " + label + " request");
+                            return EXIT_FAILURE;
+                        }
+                    }
+                }
+            }
+        } catch (IOException e) {
+            err.println("Load run against " + options.url() + " failed: " + e);
+            return EXIT_FAILURE;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXIT_FAILURE;
+        } finally {
+            if (sampler != null) {
+                sampler.close();
+            }
+            if (timeSeries != null) {
+                try {
+                    timeSeries.close();
+                } catch (IOException e) {
+                    err.println("Writing " + options.timeSeries() + " failed: " + e);
+                }
+            }
+        }
+        out.println("Results written to " + options.output());
+        if (options.results() != null) {
+            try {
+                results.write(options.results());
+            } catch (IOException e) {
+                err.println("Writing " + options.results() + " failed: " + e);
+                return EXIT_FAILURE;
+            }
+        }
+        return options.baseline() != null ? checkBaseline(options, results, out, err) : EXIT_OK;
+    }
+
+    // todo_metrics.csv -> todo_metrics_scaling.csv, next to the metrics file
+    static Path scalingFile(Path metrics) {
+        String name = metrics.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return metrics.resolveSibling((dot > 0 ? name.substring(0, dot) : name) + "_scaling.csv");
+    }
+
+    // True when no request of the run got a response, e.g. because nothing listens at the target
+    static boolean unanswered(LoadResult result) {
+        long total = result.statuses().total();
+        return total > 0 && result.statuses().count(-1) == total;
+    }
+
+    private static void record(MetricsSink sink, LatencyResults results, String operation, LoadResult result) {
+        sink.offerLine(row(operation, result));
+        results.add(operation + " c=" + result.concurrency(), result.latencies());
+    }
+
+    // Compares the run with the baseline, or saves it as the baseline when there is none yet
+    static int checkBaseline(CliOptions options, LatencyResults current, PrintStream out, PrintStream err) {
+        try {
+            if (!Files.exists(options.baseline())) {
+                current.write(options.baseline());
+                out.println("No baseline yet, saved this run as " + options.baseline());
+                return EXIT_OK;
+            }
+            RegressionReport report = RegressionReport.compare(LatencyResults.read(options.baseline()), current,
+                    options.threshold());
+            if (options.report() != null) {
+                Files.writeString(options.report(), report.format(), StandardCharsets.UTF_8);
+                out.println("Comparison written to " + options.report());
+            } else {
+                out.print(report.format());
+            }
+            if (report.hasRegressions()) {
+                err.println(report.regressions().size() + " percentiles regressed by more than "
+                        + options.threshold() + "% against " + options.baseline());
+                return EXIT_REGRESSION;
+            }
+            return EXIT_OK;
+        } catch (IOException e) {
+            err.println("Cannot compare with baseline " + options.baseline() + ": " + e);
+            return EXIT_FAILURE;
+        }
+    }
+
+    // One run of a load, bounded by the duration or by the request count when the duration is null
+    @FunctionalInterface
+    private interface Run<T> {
+        T run(Duration duration) throws IOException, InterruptedException;
+    }
+
+    // Runs the warm-up if any, then the measured run, then the cool-down if any, marking each phase
+    private static <T> T inPhases(CliOptions options, TimeSeriesRecorder timeSeries, String label, Run<T> run)
+            throws IOException, InterruptedException {
+        if (options.warmup() != null) {
+            mark(timeSeries, TimeSeriesRecorder.Phase.WARMUP, label);
+            run.run(options.warmup());
+        }
+        mark(timeSeries, TimeSeriesRecorder.Phase.MEASURE, label);
+        T result = run.run(options.duration());
+        if (options.cooldown() != null) {
+            // Idle, so the time series shows how the server settles after the load
+            mark(timeSeries, TimeSeriesRecorder.Phase.COOLDOWN, label);
+            Thread.sleep(options.cooldown().toMillis());
+        }
+        return result;
+    }
+
+    private static void mark(TimeSeriesRecorder timeSeries, TimeSeriesRecorder.Phase phase, String label) {
+        if (timeSeries != null) {
+            timeSeries.phase(phase, label);
+        }
+    }
+
+    // Sends one operation's requests, bounded by the duration or by the request count when the duration is null;
+    // the nio engine also stops a timed run at the request count. The raw stream is only built for the nio engine,
+    // the request stream for the others
+    @FunctionalInterface
+    private interface Engine {
+        LoadResult run(String operation, int requests, Duration duration, RequestStream stream, RawRequestStream raw)
+                throws IOException, InterruptedException;
+    }
+
+    private static Engine engine(CliOptions options, TodoClient client, int concurrency, TimeSeriesRecorder timeSeries) {
+        if (options.engine() == CliOptions.Engine.NIO) {
+            PipelinedEngine engine = new PipelinedEngine(client.baseURL(), concurrency, options.pipeline(), timeSeries)
+                    .responseTimeout(client.config().requestTimeout());
+            return (operation, requests, duration, stream, raw) -> duration == null
+                    ? engine.run(operation, requests, raw)
+                    : engine.runFor(operation, requests, duration, raw);
+        }
+        if (options.engine() == CliOptions.Engine.ASYNC) {
+            AsyncPipeline pipeline = new AsyncPipeline(client, concurrency, options.completion(), timeSeries);
+            return (operation, requests, duration, stream, raw) -> duration == null
+                    ? pipeline.run(operation, requests, stream)
+                    : pipeline.runFor(operation, duration, stream);
+        }
+        LoadEngine engine = new LoadEngine(client, concurrency, timeSeries);
+        return (operation, requests, duration, stream, raw) -> duration == null
+                ? engine.run(operation, requests, stream)
+                : engine.runFor(operation, duration, stream);
+    }
+
+    private static LoadResult runOnce(TodoClient client, Engine engine, boolean encode, TodoOperation operation,
+                                      String label, int requests, Duration duration, PayloadCorpus corpus,
+                                      IdRegistry.Selection targets) throws IOException, InterruptedException {
+        IdRegistry ids = operation.needsId() ? liveIds(client) : new IdRegistry();
+        if (operation.needsId() && ids.size() == 0) {
+            throw new IOException("no todos on the server to " + operation.label());
+        }
+        RequestStream stream = (worker, sequence) -> operation.request(client,
+                target(ids, operation, targets), corpus.payload(sequence));
+        RawRequestStream raw = null;
+        if (encode) {
+            // Every request the run can send, encoded before it starts; timed runs cycle through them.
+            // Each live id can only be deleted once, so a timed delete run stops after one pass over the ids
+            // instead of repeating them and getting 404s
+            RawRequests encoder = new RawRequests(client.baseURL());
+            boolean deleting = operation == TodoOperation.DELETE;
+            byte[][] encoded = new byte[deleting ? ids.size() : corpus.size()][];
+            for (int sequence = 0; sequence < encoded.length; sequence++) {
+                encoded[sequence] = operation.encode(encoder, target(ids, operation, targets), corpus.payload(sequence));
+            }
+            raw = sequence -> encoded[sequence % encoded.length];
+            if (duration != null) {
+                return engine.run(label, deleting ? encoded.length : Integer.MAX_VALUE, duration, stream, raw);
+            }
+        }
+        return engine.run(label, requests, duration, stream, raw);
+    }
+
+    private static WorkloadResult runWorkload(TodoClient client, LoadEngine engine, Workload workload, int requests,
+                                              Duration duration, PayloadCorpus corpus, IdRegistry.Selection targets)
+            throws IOException, InterruptedException {
+        IdRegistry ids = liveIds(client);
+        if (ids.size() == 0) {
+            throw new IOException("no todos on the server to target");
+        }
+        // Todos created during the run become targets too
+        engine.onResponse(ids);
+        WorkloadStream stream = (worker, sequence, entry) -> entry.request(client,
+                target(ids, entry.operation(), targets), corpus.payload(sequence));
+        return duration == null
+                ? engine.run(workload, requests, stream)
+                : engine.runFor(workload, duration, stream);
+    }
+
+    // A live id for the operation, taken for good by deletes; -1 once there are none left, which the server answers with 404
+    private static int target(IdRegistry ids, TodoOperation operation, IdRegistry.Selection targets) {
+        if (!operation.needsId()) {
+            return 0;
+        }
+        return operation == TodoOperation.DELETE ? ids.take(targets) : ids.pick(targets);
+    }
+
+    private static IdRegistry liveIds(TodoClient client) throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(TodoRequests.getTodos(client, ""),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException("GET /todos returned " + response.statusCode());
+            }
+            IdRegistry ids = new IdRegistry();
+            for (TodoSummary todo : TodoStreamParser.readTodos(body)) {
+                ids.add(todo.id());
+            }
+            return ids;
+        }
+    }
+
+    // One line under HEADER, latencies in milliseconds. The latency, clientCpu and statuses columns match the
+    // suites' metrics CSV, which has its own set of other columns
+    static String row(String operation, LoadResult result) {
+        LatencyHistogram latencies = result.latencies();
+        return String.format("%s,%d,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%.2f,%s",
+                operation, result.concurrency(), result.requests(), result.errors(), result.durationMillis(),
+                result.throughput(), latencies.percentile(50) / 1e6, latencies.percentile(90) / 1e6,
+                latencies.percentile(99) / 1e6, latencies.percentile(99.9) / 1e6, latencies.max() / 1e6,
+                result.cpuMicrosPerRequest(), result.statuses());
+    }
+}
@@ -0,0 +1,114 @@
+package client;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Settings used to build the shared HttpClient of a TodoClient.
+ * <p>
+ * Defaults match what the test suites need against the local Todo Manager:
+ * HTTP/1.1 (the jar does not speak h2c), short connect timeout and the JDK's own executor.
+ */
+public class ClientConfig {
+
+    // Selects the connection mode, "pooled" (default) or "per-call" to reproduce the old behaviour
+    public static final String MODE_PROPERTY = "todo.client.mode";
+
+    public enum Mode { POOLED, PER_CALL }
+
+    private final HttpClient.Version version;
+    private final Duration connectTimeout;
+    private final Duration requestTimeout;
+    private final Executor executor;
+    private final Mode mode;
+
+    private ClientConfig(Builder builder) {
+        this.version = builder.version;
+        this.connectTimeout = builder.connectTimeout;
+        this.requestTimeout = builder.requestTimeout;
+        this.executor = builder.executor;
+        this.mode = builder.mode;
+    }
+
+    public static ClientConfig defaults() {
+        return builder().build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public HttpClient.Version version() {
+        return version;
+    }
+
+    public Duration connectTimeout() {
+        return connectTimeout;
+    }
+
+    public Duration requestTimeout() {
+        return requestTimeout;
+    }
+
+    public Executor executor() {
+        return executor;
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    // Builds a new HttpClient from this configuration
+    HttpClient newHttpClient() {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(version)
+                .connectTimeout(connectTimeout);
+        if (executor != null) {
+            builder.executor(executor);
+        }
+        return builder.build();
+    }
+
+    public static class Builder {
+        private HttpClient.Version version = HttpClient.Version.HTTP_1_1;
+        private Duration connectTimeout = Duration.ofSeconds(5);
+        private Duration requestTimeout = Duration.ofSeconds(30);
+        private Executor executor;
+        private Mode mode = modeFromSystemProperty();
+
+        public Builder version(HttpClient.Version version) {
+            this.version = version;
+            return this;
+        }
+
+        public Builder connectTimeout(Duration connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        public Builder requestTimeout(Duration requestTimeout) {
+            this.requestTimeout = requestTimeout;
+            return this;
+        }
+
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public Builder mode(Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public ClientConfig build() {
+            return new ClientConfig(this);
+        }
+    }
+
+    private static Mode modeFromSystemProperty() {
+        String value = System.getProperty(MODE_PROPERTY, "pooled");
+        return value.equalsIgnoreCase("per-call") ? Mode.PER_CALL : Mode.POOLED;
+    }
+}
@@ -0,0 +1,87 @@
+package client;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The /todos requests of TodoRequests, encoded once as the exact HTTP/1.1 bytes to write to a socket.
+ * <p>
+ * Used by the pipelining load engine, which sends these arrays as they are: the request line, Host,
+ * Content-Type and Content-Length headers are assembled into a single array with the body, so the timed
+ * loop only copies bytes into a socket buffer.
+ */
+public class RawRequests {
+
+    private static final byte[] HTTP_VERSION = bytes(" HTTP/1.1\r\n");
+    private static final byte[] JSON_HEADERS = bytes("Content-Type: application/json\r\nContent-Length: ");
+    private static final byte[] CRLF = bytes("\r\n");
+
+    private final byte[] hostHeader;
+
+    public RawRequests(String baseURL) {
+        URI uri = URI.create(baseURL);
+        int port = uri.getPort() > 0 ? uri.getPort() : 80;
+        this.hostHeader = bytes("Host: " + uri.getHost() + ":" + port + "\r\n");
+    }
+
+    // GET /todos, query is appended as-is (e.g. "?doneStatus=false") and may be empty
+    public byte[] getTodos(String query) {
+        return encode("GET", "/todos" + query, null);
+    }
+
+    // GET /todos/{id}
+    public byte[] getTodo(int id) {
+        return encode("GET", "/todos/" + id, null);
+    }
+
+    // POST /todos with a pre-encoded JSON body
+    public byte[] createTodo(byte[] json) {
+        return encode("POST", "/todos", json);
+    }
+
+    // POST /todos/{id} with a pre-encoded JSON body (partial update)
+    public byte[] amendTodo(int id, byte[] json) {
+        return encode("POST", "/todos/" + id, json);
+    }
+
+    // PUT /todos/{id} with a pre-encoded JSON body
+    public byte[] updateTodo(int id, byte[] json) {
+        return encode("PUT", "/todos/" + id, json);
+    }
+
+    // DELETE /todos/{id}
+    public byte[] deleteTodo(int id) {
+        return encode("DELETE", "/todos/" + id, null);
+    }
+
+    // Request line, Host, then Content-Type and Content-Length when there is a body
+    private byte[] encode(String method, String target, byte[] json) {
+        byte[] requestLine = bytes(method + " " + target);
+        byte[] length = json == null ? null : bytes(Integer.toString(json.length));
+        int size = requestLine.length + HTTP_VERSION.length + hostHeader.length + CRLF.length
+                + (json == null ? 0 : JSON_HEADERS.length + length.length + CRLF.length + json.length);
+        byte[] request = new byte[size];
+        int position = put(request, 0, requestLine);
+        position = put(request, position, HTTP_VERSION);
+        position = put(request, position, hostHeader);
+        if (json != null) {
+            position = put(request, position, JSON_HEADERS);
+            position = put(request, position, length);
+            position = put(request, position, CRLF);
+        }
+        position = put(request, position, CRLF);
+        if (json != null) {
+            put(request, position, json);
+        }
+        return request;
+    }
+
+    private static int put(byte[] target, int position, byte[] bytes) {
+        System.arraycopy(bytes, 0, target, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    private static byte[] bytes(String ascii) {
+        return ascii.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,67 @@
+package client;
+
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Request body publishers that send pre-encoded bytes as they are.
+ * <p>
+ * BodyPublishers.ofByteArray copies the array into freshly allocated buffers on every send. These publish
+ * a read-only view of the caller's bytes instead, a new view per subscription, so the same body can be
+ * sent any number of times, concurrently, without a copy or an allocation beyond the view itself.
+ * The bytes must not change while requests using them are in flight.
+ */
+public final class RequestBodies {
+
+    private RequestBodies() {
+    }
+
+    public static HttpRequest.BodyPublisher of(byte[] bytes) {
+        return of(ByteBuffer.wrap(bytes));
+    }
+
+    // Publishes the bytes between the buffer's position and limit, the buffer itself is never moved
+    public static HttpRequest.BodyPublisher of(ByteBuffer bytes) {
+        return new BufferPublisher(bytes.asReadOnlyBuffer());
+    }
+
+    private static final class BufferPublisher implements HttpRequest.BodyPublisher {
+        private final ByteBuffer bytes;
+
+        BufferPublisher(ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long contentLength() {
+            return bytes.remaining();
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            AtomicBoolean done = new AtomicBoolean();
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    if (done.compareAndSet(false, true)) {
+                        if (n <= 0) {
+                            subscriber.onError(new IllegalArgumentException("non-positive request " + n));
+                            return;
+                        }
+                        if (bytes.hasRemaining()) {
+                            subscriber.onNext(bytes.duplicate());
+                        }
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    done.set(true);
+                }
+            });
+        }
+    }
+}
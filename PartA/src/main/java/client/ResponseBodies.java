@@ -0,0 +1,112 @@
+package client;
+
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.zip.CRC32;
+
+/**
+ * Response body handlers for load paths that only need part of a body.
+ * <p>
+ * For the status alone use BodyHandlers.discarding(). prefix() keeps at most the first n bytes, e.g. to
+ * log the start of an error body; checksum() folds the body into a CRC32 as it streams in, so a response
+ * can be checked against an expected checksum without holding it. Both read the whole body, which keeps
+ * the connection reusable, but only the prefix or the checksum is ever allocated.
+ */
+public final class ResponseBodies {
+
+    private ResponseBodies() {
+    }
+
+    // The first maxBytes bytes of the body, or the whole body when it is shorter
+    public static HttpResponse.BodyHandler<byte[]> prefix(int maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative");
+        }
+        return info -> new Subscriber<>() {
+            private byte[] prefix = new byte[Math.min(maxBytes, 1024)];
+            private int length;
+
+            @Override
+            void consume(ByteBuffer buffer) {
+                int take = Math.min(buffer.remaining(), maxBytes - length);
+                if (take > 0) {
+                    if (length + take > prefix.length) {
+                        prefix = Arrays.copyOf(prefix, Math.min(maxBytes, Math.max(length + take, prefix.length * 2)));
+                    }
+                    buffer.get(prefix, length, take);
+                    length += take;
+                }
+            }
+
+            @Override
+            byte[] result() {
+                return length == prefix.length ? prefix : Arrays.copyOf(prefix, length);
+            }
+        };
+    }
+
+    // CRC32 of the whole body
+    public static HttpResponse.BodyHandler<Long> checksum() {
+        return info -> new Subscriber<>() {
+            private final CRC32 crc = new CRC32();
+
+            @Override
+            void consume(ByteBuffer buffer) {
+                crc.update(buffer);
+            }
+
+            @Override
+            Long result() {
+                return crc.getValue();
+            }
+        };
+    }
+
+    // CRC32 of bytes, to compare with checksum() results
+    public static long checksumOf(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    // Requests everything and hands each buffer to consume(); the body is result() at the end
+    private abstract static class Subscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private final CompletableFuture<T> body = new CompletableFuture<>();
+
+        abstract void consume(ByteBuffer buffer);
+
+        abstract T result();
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return body;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> buffers) {
+            for (ByteBuffer buffer : buffers) {
+                consume(buffer);
+            }
+        }
+
+        @Override
+        public void onError(Throwable failure) {
+            body.completeExceptionally(failure);
+        }
+
+        @Override
+        public void onComplete() {
+            body.complete(result());
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package client;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Incremental HTTP/1.1 response parser for the pipelining load engine.
+ * <p>
+ * Bytes are fed as they arrive, in any split; parse() returns true each time a whole response has been
+ * consumed. Only what a load run needs is kept: the status code and whether the server will close the
+ * connection. Header lines are matched as bytes in a reused line buffer and bodies are skipped without
+ * being copied, so a response never becomes a String. Bodies may be delimited by Content-Length, chunked
+ * encoding or, failing both, the end of the connection (see endOfInput()).
+ */
+public final class ResponseParser {
+
+    private static final int MAX_LINE = 8 << 10;
+    private static final byte[] CONTENT_LENGTH = bytes("content-length:");
+    private static final byte[] TRANSFER_ENCODING = bytes("transfer-encoding:");
+    private static final byte[] CONNECTION = bytes("connection:");
+    private static final byte[] CHUNKED = bytes("chunked");
+    private static final byte[] CLOSE = bytes("close");
+
+    private enum State {
+        STATUS_LINE, HEADERS, BODY, CHUNK_SIZE, CHUNK_DATA, CHUNK_END, TRAILERS, BODY_UNTIL_CLOSE
+    }
+
+    private final byte[] line = new byte[MAX_LINE];
+    private int lineLength;
+    private State state = State.STATUS_LINE;
+    private int status;
+    private long contentLength;
+    private boolean chunked;
+    private boolean close;
+    private long remaining;
+
+    // Status of the last complete response
+    public int status() {
+        return status;
+    }
+
+    // Whether the server closes the connection after the last complete response
+    public boolean closeAfter() {
+        return close;
+    }
+
+    // Consumes in up to the end of the next response; true when one is complete, false when in ran out first
+    public boolean parse(ByteBuffer in) throws IOException {
+        while (in.hasRemaining()) {
+            switch (state) {
+                case BODY:
+                case CHUNK_DATA:
+                    int skipped = (int) Math.min(remaining, in.remaining());
+                    in.position(in.position() + skipped);
+                    remaining -= skipped;
+                    if (remaining == 0) {
+                        if (state == State.BODY) {
+                            return complete();
+                        }
+                        state = State.CHUNK_END;
+                    }
+                    break;
+                case BODY_UNTIL_CLOSE:
+                    in.position(in.limit());
+                    break;
+                default:
+                    if (readLine(in) && endOfLine()) {
+                        return true;
+                    }
+            }
+        }
+        return false;
+    }
+
+    // Called when the server closed the connection; true when that completed a response delimited by the close
+    public boolean endOfInput() {
+        if (state == State.BODY_UNTIL_CLOSE) {
+            return complete();
+        }
+        return false;
+    }
+
+    // Forgets a partly parsed response, e.g. after reconnecting
+    public void reset() {
+        state = State.STATUS_LINE;
+        lineLength = 0;
+    }
+
+    // Appends bytes up to the next LF to line, without the CR LF; true when the line is complete
+    private boolean readLine(ByteBuffer in) throws IOException {
+        while (in.hasRemaining()) {
+            byte b = in.get();
+            if (b == '\n') {
+                if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                return true;
+            }
+            if (lineLength == MAX_LINE) {
+                throw new IOException("Response line longer than " + MAX_LINE + " bytes");
+            }
+            line[lineLength++] = b;
+        }
+        return false;
+    }
+
+    // Handles the complete line; true when it ended a response
+    private boolean endOfLine() throws IOException {
+        int length = lineLength;
+        lineLength = 0;
+        switch (state) {
+            case STATUS_LINE:
+                if (length == 0) {
+                    return false;
+                }
+                // HTTP/1.1 200 OK
+                if (length < 12 || line[0] != 'H' || line[8] != ' ') {
+                    throw new IOException("Malformed status line");
+                }
+                status = (int) number(9, 12, 10);
+                contentLength = -1;
+                chunked = false;
+                close = line[7] == '0';
+                state = State.HEADERS;
+                return false;
+            case HEADERS:
+                if (length > 0) {
+                    header(length);
+                    return false;
+                }
+                if (status < 200) {
+                    // 100 Continue and friends, the real response follows
+                    state = State.STATUS_LINE;
+                    return false;
+                }
+                if (status == 204 || status == 304 || (!chunked && contentLength == 0)) {
+                    return complete();
+                }
+                if (chunked) {
+                    state = State.CHUNK_SIZE;
+                } else if (contentLength > 0) {
+                    remaining = contentLength;
+                    state = State.BODY;
+                } else {
+                    close = true;
+                    state = State.BODY_UNTIL_CLOSE;
+                }
+                return false;
+            case CHUNK_SIZE:
+                int end = 0;
+                while (end < length && line[end] != ';' && line[end] != ' ') {
+                    end++;
+                }
+                remaining = number(0, end, 16);
+                state = remaining == 0 ? State.TRAILERS : State.CHUNK_DATA;
+                return false;
+            case CHUNK_END:
+                state = State.CHUNK_SIZE;
+                return false;
+            case TRAILERS:
+                return length == 0 && complete();
+            default:
+                throw new IllegalStateException("No line expected in " + state);
+        }
+    }
+
+    private void header(int length) throws IOException {
+        if (startsWith(length, CONTENT_LENGTH)) {
+            int start = CONTENT_LENGTH.length;
+            while (start < length && line[start] == ' ') {
+                start++;
+            }
+            int end = length;
+            while (end > start && line[end - 1] == ' ') {
+                end--;
+            }
+            contentLength = number(start, end, 10);
+        } else if (startsWith(length, TRANSFER_ENCODING)) {
+            chunked = contains(TRANSFER_ENCODING.length, length, CHUNKED);
+        } else if (startsWith(length, CONNECTION)) {
+            close = contains(CONNECTION.length, length, CLOSE);
+        }
+    }
+
+    private boolean complete() {
+        state = State.STATUS_LINE;
+        return true;
+    }
+
+    private long number(int from, int to, int radix) throws IOException {
+        if (from >= to) {
+            throw new IOException("Missing number in response");
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = Character.digit(line[i], radix);
+            if (digit < 0 || value > (Long.MAX_VALUE >> 4)) {
+                throw new IOException("Malformed number in response");
+            }
+            value = value * radix + digit;
+        }
+        return value;
+    }
+
+    private boolean startsWith(int length, byte[] lowerCasePrefix) {
+        if (length < lowerCasePrefix.length) {
+            return false;
+        }
+        for (int i = 0; i < lowerCasePrefix.length; i++) {
+            if (lower(line[i]) != lowerCasePrefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean contains(int from, int to, byte[] lowerCaseWord) {
+        for (int start = from; start + lowerCaseWord.length <= to; start++) {
+            int i = 0;
+            while (i < lowerCaseWord.length && lower(line[start + i]) == lowerCaseWord[i]) {
+                i++;
+            }
+            if (i == lowerCaseWord.length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte lower(byte b) {
+        return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    private static byte[] bytes(String ascii) {
+        return ascii.getBytes(StandardCharsets.US_ASCII);
+    }
+}
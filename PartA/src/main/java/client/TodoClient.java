@@ -0,0 +1,70 @@
+package client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared HTTP client for one Todo Manager target.
+ * <p>
+ * In POOLED mode every request goes through a single HttpClient, so the selector thread,
+ * executor and keep-alive connections to the server are reused between calls.
+ * In PER_CALL mode a new HttpClient is built for every request, which is how the suites used
+ * to work; run with -Dtodo.client.mode=per-call to measure the difference.
+ */
+public class TodoClient {
+
+    private static final Map<String, TodoClient> clients = new ConcurrentHashMap<>();
+
+    private final String baseURL;
+    private final ClientConfig config;
+    private volatile HttpClient httpClient;
+
+    public TodoClient(String baseURL, ClientConfig config) {
+        this.baseURL = baseURL;
+        this.config = config;
+        this.httpClient = config.mode() == ClientConfig.Mode.POOLED ? config.newHttpClient() : null;
+    }
+
+    // Returns the shared client for the given target, creating it with the default configuration
+    public static TodoClient forTarget(String baseURL) {
+        return clients.computeIfAbsent(baseURL, url -> new TodoClient(url, ClientConfig.defaults()));
+    }
+
+    public String baseURL() {
+        return baseURL;
+    }
+
+    public ClientConfig config() {
+        return config;
+    }
+
+    // Returns a request builder for the given path (e.g. "/todos/1") with the configured timeout
+    public HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(baseURL + path))
+                .timeout(config.requestTimeout());
+    }
+
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        return httpClient().send(request, handler);
+    }
+
+    // Drops the pooled connections, e.g. after the server behind this target was restarted
+    public void reconnect() {
+        if (httpClient != null) {
+            httpClient = config.newHttpClient();
+        }
+    }
+
+    // Returns the HttpClient to use for the next request
+    public HttpClient httpClient() {
+        HttpClient pooled = httpClient;
+        return pooled != null ? pooled : config.newHttpClient();
+    }
+}
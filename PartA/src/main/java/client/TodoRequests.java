@@ -0,0 +1,82 @@
+package client;
+
+import java.net.http.HttpRequest;
+
+/**
+ * Request builders for the /todos endpoints, shared by the test suites and the load engine.
+ * Pre-encoded bodies are sent without copying, see RequestBodies.
+ */
+public class TodoRequests {
+
+    private TodoRequests() {
+    }
+
+    // GET /todos, query is appended as-is (e.g. "?doneStatus=false") and may be empty
+    public static HttpRequest getTodos(TodoClient client, String query) {
+        return client.request("/todos" + query)
+                .GET()
+                .build();
+    }
+
+    // GET /todos/{id}
+    public static HttpRequest getTodo(TodoClient client, int id) {
+        return client.request("/todos/" + id)
+                .GET()
+                .build();
+    }
+
+    // POST /todos with a JSON body
+    public static HttpRequest createTodo(TodoClient client, String json) {
+        return client.request("/todos")
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    // POST /todos with a pre-encoded JSON body
+    public static HttpRequest createTodo(TodoClient client, byte[] json) {
+        return client.request("/todos")
+                .header("Content-Type", "application/json")
+                .POST(RequestBodies.of(json))
+                .build();
+    }
+
+    // POST /todos/{id} with a JSON body (partial update)
+    public static HttpRequest amendTodo(TodoClient client, int id, String json) {
+        return client.request("/todos/" + id)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    // PUT /todos/{id} with a JSON body
+    public static HttpRequest updateTodo(TodoClient client, int id, String json) {
+        return client.request("/todos/" + id)
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    // POST /todos/{id} with a pre-encoded JSON body (partial update)
+    public static HttpRequest amendTodo(TodoClient client, int id, byte[] json) {
+        return client.request("/todos/" + id)
+                .header("Content-Type", "application/json")
+                .POST(RequestBodies.of(json))
+                .build();
+    }
+
+    // PUT /todos/{id} with a pre-encoded JSON body
+    public static HttpRequest updateTodo(TodoClient client, int id, byte[] json) {
+        return client.request("/todos/" + id)
+                .header("Content-Type", "application/json")
+                .PUT(RequestBodies.of(json))
+                .build();
+    }
+
+    // DELETE /todos/{id}
+    public static HttpRequest deleteTodo(TodoClient client, int id) {
+        return client.request("/todos/" + id)
+                .DELETE()
+                .build();
+    }
+}
@@ -0,0 +1,110 @@
+package client;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming reader for GET /todos responses ({"todos": [...]}).
+ * <p>
+ * Reads the body token by token with Gson's JsonReader instead of building a JsonObject tree:
+ * only id, title, doneStatus and description are kept, every other field is skipped, and a visitor
+ * can stop the read as soon as it has what it needs. Memory stays proportional to one todo.
+ */
+public class TodoStreamParser {
+
+    // Called for every todo in the list; return false to stop reading
+    @FunctionalInterface
+    public interface TodoVisitor {
+        boolean visit(TodoSummary todo);
+    }
+
+    private TodoStreamParser() {
+    }
+
+    public static void forEachTodo(InputStream body, TodoVisitor visitor) throws IOException {
+        forEachTodo(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)), visitor);
+    }
+
+    public static void forEachTodo(Reader body, TodoVisitor visitor) throws IOException {
+        try (JsonReader reader = new JsonReader(body)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("todos")) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (!visitor.visit(readTodo(reader))) {
+                        return;
+                    }
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+        }
+    }
+
+    public static List<TodoSummary> readTodos(InputStream body) throws IOException {
+        List<TodoSummary> todos = new ArrayList<>();
+        forEachTodo(body, todos::add);
+        return todos;
+    }
+
+    public static List<TodoSummary> readTodos(Reader body) throws IOException {
+        List<TodoSummary> todos = new ArrayList<>();
+        forEachTodo(body, todos::add);
+        return todos;
+    }
+
+    // Returns the id of the first todo with the given title, reading no further than that todo
+    public static int findIdByTitle(InputStream body, String title) throws IOException {
+        int[] found = {TodoTitleIndex.NOT_FOUND};
+        forEachTodo(body, todo -> {
+            if (todo.title().equals(title)) {
+                found[0] = todo.id();
+                return false;
+            }
+            return true;
+        });
+        return found[0];
+    }
+
+    private static TodoSummary readTodo(JsonReader reader) throws IOException {
+        int id = -1;
+        String title = null;
+        boolean doneStatus = false;
+        String description = "";
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = Integer.parseInt(reader.nextString());
+                    break;
+                case "title":
+                    title = reader.nextString();
+                    break;
+                case "doneStatus":
+                    // The Todo Manager sends booleans as strings
+                    doneStatus = reader.peek() == JsonToken.BOOLEAN ? reader.nextBoolean() : Boolean.parseBoolean(reader.nextString());
+                    break;
+                case "description":
+                    description = reader.nextString();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new TodoSummary(id, title, doneStatus, description);
+    }
+}
@@ -0,0 +1,47 @@
+package client;
+
+import com.google.gson.JsonObject;
+
+/**
+ * The fields of a todo the suites look at, as read by TodoStreamParser.
+ * Relationships (categories, tasksof) are not kept.
+ */
+public class TodoSummary {
+
+    private final int id;
+    private final String title;
+    private final boolean doneStatus;
+    private final String description;
+
+    public TodoSummary(int id, String title, boolean doneStatus, String description) {
+        this.id = id;
+        this.title = title;
+        this.doneStatus = doneStatus;
+        this.description = description;
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public String title() {
+        return title;
+    }
+
+    public boolean doneStatus() {
+        return doneStatus;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    // JSON object with title, doneStatus and description, without the id
+    public JsonObject toJsonWithoutId() {
+        JsonObject todo = new JsonObject();
+        todo.addProperty("title", title);
+        todo.addProperty("doneStatus", doneStatus);
+        todo.addProperty("description", description);
+        return todo;
+    }
+}
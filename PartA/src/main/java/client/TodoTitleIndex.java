@@ -0,0 +1,93 @@
+package client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Client-side title to id index of the todos on one server.
+ * <p>
+ * The index is filled from create responses and must be told about renames and deletes, so lookups
+ * need no GET /todos. Anything that changes the server behind its back (a restart, a bulk reset)
+ * must call invalidate() or rebuild(). verify() compares the index with a fresh todo list.
+ * When several todos share a title the first one indexed wins, like a scan of the list would.
+ */
+public class TodoTitleIndex {
+
+    public static final int NOT_FOUND = -1;
+
+    private final Map<String, Integer> idsByTitle = new ConcurrentHashMap<>();
+    private final Map<Integer, String> titlesById = new ConcurrentHashMap<>();
+
+    public int idOf(String title) {
+        return idsByTitle.getOrDefault(title, NOT_FOUND);
+    }
+
+    public synchronized void put(int id, String title) {
+        String previous = titlesById.put(id, title);
+        if (previous != null && !previous.equals(title)) {
+            idsByTitle.remove(previous, id);
+        }
+        idsByTitle.putIfAbsent(title, id);
+    }
+
+    // Records that the todo with the given id now has a new title
+    public synchronized void rename(int id, String newTitle) {
+        put(id, newTitle);
+    }
+
+    public synchronized void remove(int id) {
+        String title = titlesById.remove(id);
+        if (title != null && idsByTitle.remove(title, id)) {
+            // Another todo may share the title, point the title at it instead
+            for (Map.Entry<Integer, String> entry : titlesById.entrySet()) {
+                if (entry.getValue().equals(title)) {
+                    idsByTitle.putIfAbsent(title, entry.getKey());
+                    break;
+                }
+            }
+        }
+    }
+
+    public synchronized void invalidate() {
+        idsByTitle.clear();
+        titlesById.clear();
+    }
+
+    // Replaces the index content with the todos of a GET /todos response
+    public synchronized void rebuild(Iterable<TodoSummary> todos) {
+        invalidate();
+        for (TodoSummary todo : todos) {
+            put(todo.id(), todo.title());
+        }
+    }
+
+    public int size() {
+        return titlesById.size();
+    }
+
+    // Returns the differences between the index and the todos of a GET /todos response, empty when in sync
+    public synchronized List<String> verify(Iterable<TodoSummary> todos) {
+        List<String> differences = new ArrayList<>();
+        Map<Integer, String> serverTitles = new HashMap<>();
+        for (TodoSummary todo : todos) {
+            serverTitles.put(todo.id(), todo.title());
+        }
+        for (Map.Entry<Integer, String> entry : serverTitles.entrySet()) {
+            String indexed = titlesById.get(entry.getKey());
+            if (indexed == null) {
+                differences.add("todo " + entry.getKey() + " '" + entry.getValue() + "' is not indexed");
+            } else if (!indexed.equals(entry.getValue())) {
+                differences.add("todo " + entry.getKey() + " is indexed as '" + indexed + "' but is '" + entry.getValue() + "'");
+            }
+        }
+        for (Map.Entry<Integer, String> entry : titlesById.entrySet()) {
+            if (!serverTitles.containsKey(entry.getKey())) {
+                differences.add("todo " + entry.getKey() + " '" + entry.getValue() + "' is indexed but does not exist");
+            }
+        }
+        return differences;
+    }
+}
@@ -0,0 +1,73 @@
+package client;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming (StAX) reader for the XML responses of the Todo Manager.
+ * <p>
+ * Reads the body once and keeps only the text of the requested elements, stopping as soon as all
+ * of them have been seen. Like getElementsByTagName(name).item(0) on a DOM, the first element with
+ * a name in document order wins and its value is its whole text content. XMLInputFactory instances
+ * are not guaranteed to be thread-safe, so each thread configures one and keeps it.
+ */
+public class TodoXmlReader {
+
+    private static final ThreadLocal<XMLInputFactory> FACTORY = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    });
+
+    private TodoXmlReader() {
+    }
+
+    // Returns the trimmed text of the first element of each requested name; missing names are absent from the map
+    public static Map<String, String> readElements(Reader body, Collection<String> names) throws XMLStreamException {
+        Set<String> wanted = new HashSet<>(names);
+        Map<String, String> values = new HashMap<>();
+        XMLStreamReader reader = FACTORY.get().createXMLStreamReader(body);
+        try {
+            while (!wanted.isEmpty() && reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && wanted.remove(reader.getLocalName())) {
+                    values.put(reader.getLocalName(), readTextContent(reader));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return values;
+    }
+
+    // Concatenates all text below the current element, leaving the reader on its end tag
+    private static String readTextContent(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder text = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                    text.append(reader.getText());
+                    break;
+                default:
+            }
+        }
+        return text.toString().trim();
+    }
+}
@@ -0,0 +1,233 @@
+package load;
+
+import client.TodoClient;
+import metrics.CpuClock;
+import metrics.LatencyHistogram;
+import metrics.TimeSeriesRecorder;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-model load from a single thread: requests go out with HttpClient.sendAsync and at most
+ * maxInFlight of them are outstanding at any time.
+ * <p>
+ * The sending thread blocks once the window is full, so a slow server slows the sender down instead of
+ * piling up requests (backpressure). Latency is taken in the completion callback on the client's
+ * executor, from the moment the request was handed to sendAsync.
+ * With UNORDERED completion any finished request frees its slot. With ORDERED completion slots are freed
+ * and the listener called in send order, as on a pipelined connection: one slow response holds back the
+ * ones behind it, but every measured latency is still its own.
+ * <p>
+ * A listener that throws ends the run with an IllegalStateException, as in LoadEngine; its request's slot
+ * is freed either way, so the run cannot hang waiting for it.
+ */
+public class AsyncPipeline {
+
+    public enum Completion {
+        ORDERED, UNORDERED
+    }
+
+    // Called once per request with its sequence, status (-1 when it failed) and latency
+    @FunctionalInterface
+    public interface Listener {
+        void completed(int sequence, int status, long latencyNanos);
+    }
+
+    private final TodoClient client;
+    private final int maxInFlight;
+    private final Completion completion;
+    private final TimeSeriesRecorder timeSeries;
+    private Listener listener;
+    private ResponseListener responseListener;
+
+    public AsyncPipeline(TodoClient client, int maxInFlight, Completion completion) {
+        this(client, maxInFlight, completion, null);
+    }
+
+    // Every request is also recorded into timeSeries, which may be null
+    public AsyncPipeline(TodoClient client, int maxInFlight, Completion completion, TimeSeriesRecorder timeSeries) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.client = client;
+        this.maxInFlight = maxInFlight;
+        this.completion = completion;
+        this.timeSeries = timeSeries;
+    }
+
+    // Listener for every completed request, in send order when completion is ORDERED
+    public AsyncPipeline onCompletion(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    // Listener for every response, e.g. an IdRegistry, called on the client's executor
+    public AsyncPipeline onResponse(ResponseListener listener) {
+        this.responseListener = listener;
+        return this;
+    }
+
+    public LoadResult run(String operation, int totalRequests, RequestStream stream) throws InterruptedException {
+        return run(operation, totalRequests, Long.MAX_VALUE, stream);
+    }
+
+    // Sends requests until the duration has elapsed; requests in flight at the deadline still complete
+    public LoadResult runFor(String operation, Duration duration, RequestStream stream) throws InterruptedException {
+        return run(operation, Integer.MAX_VALUE, duration.toNanos(), stream);
+    }
+
+    private LoadResult run(String operation, int totalRequests, long durationNanos, RequestStream stream)
+            throws InterruptedException {
+        LatencyHistogram latencies = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        StatusCounts statuses = new StatusCounts();
+        Window window = completion == Completion.ORDERED ? new OrderedWindow() : new UnorderedWindow();
+        boolean timed = durationNanos != Long.MAX_VALUE;
+        long cpuStart = CpuClock.processCpuNanos();
+        long startTime = System.nanoTime();
+        long deadline = startTime + durationNanos;
+        int sent = 0;
+        // sent >= 0 stops a timed run before the int sequence overflows
+        for (; sent < totalRequests && sent >= 0; sent++) {
+            if (timed && System.nanoTime() - deadline >= 0) {
+                break;
+            }
+            window.acquire();
+            int sequence = sent;
+            HttpRequest request = stream.next(0, sequence);
+            long sendTime = System.nanoTime();
+            CompletableFuture<long[]> outcome = client.httpClient()
+                    .sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, failure) -> {
+                        long latency = System.nanoTime() - sendTime;
+                        int status = failure == null ? response.statusCode() : -1;
+                        boolean success = status >= 0 && status < 400;
+                        statuses.record(status);
+                        if (success) {
+                            latencies.record(latency);
+                        } else {
+                            errors.increment();
+                        }
+                        if (timeSeries != null) {
+                            timeSeries.record(latency, success);
+                        }
+                        if (failure == null && responseListener != null) {
+                            responseListener.received(request, response);
+                        }
+                        return new long[]{sequence, status, latency};
+                    });
+            window.sent(outcome);
+        }
+        window.drain();
+        long endTime = System.nanoTime();
+        long cpuEnd = CpuClock.processCpuNanos();
+        return new LoadResult(operation, maxInFlight, sent, errors.sum(), endTime - startTime, latencies,
+                cpuStart < 0 ? -1 : cpuEnd - cpuStart, statuses);
+    }
+
+    // Bounds the requests in flight and hands completed ones to the listener
+    private interface Window {
+
+        void acquire() throws InterruptedException;
+
+        void sent(CompletableFuture<long[]> outcome);
+
+        // Waits for every request still in flight
+        void drain() throws InterruptedException;
+    }
+
+    private final class UnorderedWindow implements Window {
+        private final Semaphore slots = new Semaphore(maxInFlight);
+        // First failure of a request's bookkeeping or of the listener, reported by the sending thread
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        @Override
+        public void acquire() throws InterruptedException {
+            slots.acquire();
+            if (failure.get() != null) {
+                slots.release();
+                throw failed();
+            }
+        }
+
+        @Override
+        public void sent(CompletableFuture<long[]> outcome) {
+            // whenComplete rather than thenAccept: the slot is freed even when the bookkeeping threw
+            outcome.whenComplete((result, error) -> {
+                try {
+                    if (error == null) {
+                        deliver(result);
+                    } else {
+                        failure.compareAndSet(null, error instanceof CompletionException && error.getCause() != null
+                                ? error.getCause() : error);
+                    }
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    slots.release();
+                }
+            });
+        }
+
+        @Override
+        public void drain() throws InterruptedException {
+            slots.acquire(maxInFlight);
+            slots.release(maxInFlight);
+            if (failure.get() != null) {
+                throw failed();
+            }
+        }
+
+        private IllegalStateException failed() {
+            return new IllegalStateException("Request bookkeeping failed", failure.get());
+        }
+    }
+
+    // Requests in send order; the sending thread waits for the oldest one when the window is full
+    private final class OrderedWindow implements Window {
+        private final ArrayDeque<CompletableFuture<long[]>> pending = new ArrayDeque<>(maxInFlight);
+
+        @Override
+        public void acquire() throws InterruptedException {
+            if (pending.size() == maxInFlight) {
+                complete(pending.poll());
+            }
+        }
+
+        @Override
+        public void sent(CompletableFuture<long[]> outcome) {
+            pending.add(outcome);
+        }
+
+        @Override
+        public void drain() throws InterruptedException {
+            while (!pending.isEmpty()) {
+                complete(pending.poll());
+            }
+        }
+
+        private void complete(CompletableFuture<long[]> outcome) throws InterruptedException {
+            try {
+                deliver(outcome.get());
+            } catch (ExecutionException e) {
+                // handle() turns failed requests into results, so only the bookkeeping itself can fail
+                throw new IllegalStateException("Request bookkeeping failed", e.getCause());
+            }
+        }
+    }
+
+    private void deliver(long[] result) {
+        if (listener != null) {
+            listener.completed((int) result[0], (int) result[1], result[2]);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package load;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The ids of the todos that currently exist on the server, for load workers to pick their targets from
+ * instead of guessing that ids are sequential.
+ * <p>
+ * As a ResponseListener it follows the run: the id in the Location header of a 201 from POST /todos is
+ * added, and a todo that was deleted, or answered 404, is removed. Workers draw a live id with pick(),
+ * or claim one with take() so that no two deletes target the same todo.
+ * <p>
+ * Lock-free: ids sit in slots in the order they were added, a removed id leaves an empty slot behind and
+ * every change is a compare-and-set on one slot. A second array, indexed by id, finds an id's slot; ids
+ * are the small positive ints the server hands out, and one id must not be added while it is being removed.
+ * Both arrays grow in chunks that are installed with a compare-and-set too.
+ */
+public final class IdRegistry implements ResponseListener {
+
+    // Random slots tried before scanning forward for a live one
+    private static final int ATTEMPTS = 4;
+
+    /**
+     * How targets are drawn: a slot index below size, slot 0 holding the oldest id.
+     */
+    @FunctionalInterface
+    public interface Selection {
+
+        int index(int size, Random random);
+
+        static Selection uniform() {
+            return (size, random) -> random.nextInt(size);
+        }
+
+        // Rank k (from 0) is drawn with probability about proportional to 1 / (k + 1)^exponent, oldest ids hottest
+        static Selection zipf(double exponent) {
+            if (!(exponent >= 0)) {
+                throw new IllegalArgumentException("Zipf exponent must not be negative");
+            }
+            return (size, random) -> {
+                // Inverse of the continuous approximation of the distribution's CDF
+                double u = random.nextDouble();
+                double x = Math.abs(1 - exponent) < 1e-9
+                        ? Math.exp(u * Math.log(size + 1.0))
+                        : Math.pow(1 + u * (Math.pow(size + 1.0, 1 - exponent) - 1), 1 / (1 - exponent));
+                return Math.max(0, Math.min(size - 1, (int) x - 1));
+            };
+        }
+
+        // "uniform", "zipf" (exponent 1) or "zipf:<exponent>"
+        static Selection parse(String text) {
+            String name = text.trim().toLowerCase(Locale.ROOT);
+            if (name.equals("uniform")) {
+                return uniform();
+            }
+            if (name.equals("zipf")) {
+                return zipf(1);
+            }
+            if (name.startsWith("zipf:")) {
+                try {
+                    return zipf(Double.parseDouble(name.substring(5)));
+                } catch (NumberFormatException e) {
+                    // Reported below
+                }
+            }
+            throw new IllegalArgumentException("Unknown target selection '" + text + "', expected uniform, zipf or zipf:<exponent>");
+        }
+    }
+
+    // Live ids by slot, 0 for an empty slot
+    private final IntArray slots = new IntArray();
+    // Slot + 1 by id, 0 for an id that is not live
+    private final IntArray positions = new IntArray();
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger live = new AtomicInteger();
+
+    // False when the id is already live
+    public boolean add(int id) {
+        if (id <= 0) {
+            throw new IllegalArgumentException("Todo ids are positive, got " + id);
+        }
+        int slot = next.getAndIncrement();
+        if (slot < 0) {
+            throw new IllegalStateException("IdRegistry is full");
+        }
+        if (!positions.compareAndSet(id, 0, slot + 1)) {
+            return false;
+        }
+        slots.set(slot, id);
+        live.incrementAndGet();
+        return true;
+    }
+
+    // False when the id was not live, e.g. because a worker took it
+    public boolean remove(int id) {
+        int position = id > 0 ? positions.get(id) : 0;
+        return position > 0 && clear(position - 1, id);
+    }
+
+    public boolean contains(int id) {
+        return id > 0 && positions.get(id) > 0;
+    }
+
+    public int size() {
+        return live.get();
+    }
+
+    // A live id drawn with the selection, which stays registered; -1 when there is none
+    public int pick(Selection selection) {
+        return pick(selection, ThreadLocalRandom.current());
+    }
+
+    public int pick(Selection selection, Random random) {
+        while (true) {
+            int slot = find(selection, random);
+            if (slot < 0) {
+                return -1;
+            }
+            // 0 when another worker removed it since
+            int id = slots.get(slot);
+            if (id > 0) {
+                return id;
+            }
+        }
+    }
+
+    // A live id drawn with the selection and removed in the same step, so no other worker gets it; -1 when there is none
+    public int take(Selection selection) {
+        return take(selection, ThreadLocalRandom.current());
+    }
+
+    public int take(Selection selection, Random random) {
+        while (true) {
+            int slot = find(selection, random);
+            if (slot < 0) {
+                return -1;
+            }
+            int id = slots.get(slot);
+            if (id > 0 && clear(slot, id)) {
+                return id;
+            }
+        }
+    }
+
+    // Adds the id of a created todo, removes the target of a DELETE or of any 404
+    @Override
+    public void received(HttpRequest request, HttpResponse<?> response) {
+        int status = response.statusCode();
+        if (status == 201 && request.method().equals("POST")) {
+            response.headers().firstValue("Location").ifPresent(location -> {
+                int id = lastSegmentId(location);
+                if (id > 0) {
+                    add(id);
+                }
+            });
+        } else if (status == 404 || (status < 300 && request.method().equals("DELETE"))) {
+            int id = lastSegmentId(request.uri().getPath());
+            if (id > 0) {
+                remove(id);
+            }
+        }
+    }
+
+    // N of "todos/N" or "/todos/N", -1 when the path does not end in an id
+    static int lastSegmentId(String path) {
+        int start = path.lastIndexOf('/') + 1;
+        if (start == 0 || start == path.length() || path.length() - start > 9) {
+            return -1;
+        }
+        int id = 0;
+        for (int i = start; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            id = id * 10 + (c - '0');
+        }
+        return id;
+    }
+
+    private boolean clear(int slot, int id) {
+        if (!slots.compareAndSet(slot, id, 0)) {
+            return false;
+        }
+        positions.compareAndSet(id, slot + 1, 0);
+        live.decrementAndGet();
+        return true;
+    }
+
+    // A slot holding a live id, -1 when none was found
+    private int find(Selection selection, Random random) {
+        int size = next.get();
+        if (live.get() == 0 || size == 0) {
+            return -1;
+        }
+        int slot = 0;
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            slot = selection.index(size, random);
+            if (slots.get(slot) > 0) {
+                return slot;
+            }
+        }
+        // Mostly empty slots: the next live one after the last draw, which keeps a skewed selection skewed
+        for (int i = 1; i < size; i++) {
+            int candidate = (slot + i) % size;
+            if (slots.get(candidate) > 0) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    // Ints growing on demand in chunks, unallocated ones read as 0
+    private static final class IntArray {
+        private static final int CHUNK_BITS = 12;
+        private static final int CHUNK = 1 << CHUNK_BITS;
+        private static final int MAX_CHUNKS = 1 << 15;
+
+        private final AtomicReferenceArray<AtomicIntegerArray> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+
+        int get(int index) {
+            AtomicIntegerArray chunk = (index >>> CHUNK_BITS) < MAX_CHUNKS ? chunks.get(index >>> CHUNK_BITS) : null;
+            return chunk == null ? 0 : chunk.get(index & (CHUNK - 1));
+        }
+
+        void set(int index, int value) {
+            chunk(index).set(index & (CHUNK - 1), value);
+        }
+
+        boolean compareAndSet(int index, int expected, int value) {
+            return chunk(index).compareAndSet(index & (CHUNK - 1), expected, value);
+        }
+
+        private AtomicIntegerArray chunk(int index) {
+            int chunkIndex = index >>> CHUNK_BITS;
+            if (chunkIndex >= MAX_CHUNKS) {
+                throw new IllegalStateException("IdRegistry holds at most " + (MAX_CHUNKS * CHUNK) + " ids and slots");
+            }
+            AtomicIntegerArray chunk = chunks.get(chunkIndex);
+            if (chunk == null) {
+                chunks.compareAndSet(chunkIndex, null, new AtomicIntegerArray(CHUNK));
+                chunk = chunks.get(chunkIndex);
+            }
+            return chunk;
+        }
+    }
+}
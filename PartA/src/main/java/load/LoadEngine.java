@@ -0,0 +1,223 @@
+package load;
+
+import client.TodoClient;
+import metrics.CpuClock;
+import metrics.LatencyHistogram;
+import metrics.TimeSeriesRecorder;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Closed-model load generator: N workers each send their share of the requests back to back.
+ * <p>
+ * Worker w sends sequences w, w + N, w + 2N, ... so the total number of requests is the same
+ * whatever the concurrency. Workers keep their own counters and are only merged at the end,
+ * so the hot loop only shares the HttpClient and the lock-free latency histograms and status counts.
+ * runFor() bounds the run by time instead: workers keep going until the deadline.
+ * A Workload run mixes several operations and keeps requests, errors and latencies per operation.
+ * An optional ResponseListener sees every response, e.g. an IdRegistry following the creates and deletes.
+ */
+public class LoadEngine {
+
+    private final TodoClient client;
+    private final int concurrency;
+    private final TimeSeriesRecorder timeSeries;
+    private ResponseListener listener;
+
+    public LoadEngine(TodoClient client, int concurrency) {
+        this(client, concurrency, null);
+    }
+
+    // Every request is also recorded into timeSeries, which may be null
+    public LoadEngine(TodoClient client, int concurrency, TimeSeriesRecorder timeSeries) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.client = client;
+        this.concurrency = concurrency;
+        this.timeSeries = timeSeries;
+    }
+
+    // Listener for every response of the following runs, called from the workers
+    public LoadEngine onResponse(ResponseListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    public LoadResult run(String operation, int totalRequests, RequestStream stream) throws InterruptedException {
+        return run(new String[]{operation}, totalRequests, Long.MAX_VALUE, singleOperation(stream))[0];
+    }
+
+    // Sends requests until the duration has elapsed; requests in flight at the deadline still complete
+    public LoadResult runFor(String operation, Duration duration, RequestStream stream) throws InterruptedException {
+        return run(new String[]{operation}, Integer.MAX_VALUE, duration.toNanos(), singleOperation(stream))[0];
+    }
+
+    // Sends a weighted mix of operations, results are kept per workload entry
+    public WorkloadResult run(Workload workload, int totalRequests, WorkloadStream stream) throws InterruptedException {
+        return new WorkloadResult(workload,
+                List.of(run(entryNames(workload), totalRequests, Long.MAX_VALUE, mixed(workload, stream))));
+    }
+
+    public WorkloadResult runFor(Workload workload, Duration duration, WorkloadStream stream) throws InterruptedException {
+        return new WorkloadResult(workload,
+                List.of(run(entryNames(workload), Integer.MAX_VALUE, duration.toNanos(), mixed(workload, stream))));
+    }
+
+    // What a worker sends for a sequence number: the index of its operation and the request
+    private interface Source {
+
+        int operation(int sequence);
+
+        HttpRequest next(int worker, int sequence, int operation);
+    }
+
+    private static Source singleOperation(RequestStream stream) {
+        return new Source() {
+            @Override
+            public int operation(int sequence) {
+                return 0;
+            }
+
+            @Override
+            public HttpRequest next(int worker, int sequence, int operation) {
+                return stream.next(worker, sequence);
+            }
+        };
+    }
+
+    private static Source mixed(Workload workload, WorkloadStream stream) {
+        return new Source() {
+            @Override
+            public int operation(int sequence) {
+                return workload.entryIndex(sequence);
+            }
+
+            @Override
+            public HttpRequest next(int worker, int sequence, int operation) {
+                return stream.next(worker, sequence, workload.entries().get(operation));
+            }
+        };
+    }
+
+    private static String[] entryNames(Workload workload) {
+        return workload.entries().stream().map(Workload.Entry::name).toArray(String[]::new);
+    }
+
+    private LoadResult[] run(String[] operations, int totalRequests, long durationNanos, Source source)
+            throws InterruptedException {
+        int workers = Math.max(1, Math.min(concurrency, totalRequests));
+        CountDownLatch start = new CountDownLatch(1);
+        LatencyHistogram[] latencies = new LatencyHistogram[operations.length];
+        StatusCounts[] statuses = new StatusCounts[operations.length];
+        for (int op = 0; op < operations.length; op++) {
+            latencies[op] = new LatencyHistogram();
+            statuses[op] = new StatusCounts();
+        }
+        List<Future<long[]>> futures = new ArrayList<>(workers);
+
+        ExecutorService executor = WorkerThreads.newExecutor();
+        long startTime;
+        long endTime;
+        long[] counts = new long[operations.length * 2];
+        long cpuStart;
+        long cpuEnd;
+        try {
+            for (int w = 0; w < workers; w++) {
+                int worker = w;
+                futures.add(executor.submit(() -> runWorker(worker, workers, totalRequests, durationNanos, source, start,
+                        latencies, statuses)));
+            }
+            cpuStart = CpuClock.processCpuNanos();
+            startTime = System.nanoTime();
+            start.countDown();
+            for (Future<long[]> future : futures) {
+                long[] workerCounts = future.get();
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] += workerCounts[i];
+                }
+            }
+            endTime = System.nanoTime();
+            cpuEnd = CpuClock.processCpuNanos();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Load worker failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        LoadResult[] results = new LoadResult[operations.length];
+        for (int op = 0; op < operations.length; op++) {
+            results[op] = new LoadResult(operations[op], concurrency, counts[2 * op], counts[2 * op + 1],
+                    endTime - startTime, latencies[op], cpuShare(cpuStart, cpuEnd, counts[2 * op], totalSent(counts)),
+                    statuses[op]);
+        }
+        return results;
+    }
+
+    // The operation's share of the run's CPU time, by number of requests
+    private static long cpuShare(long cpuStart, long cpuEnd, long requests, long totalRequests) {
+        if (cpuStart < 0 || cpuEnd < 0 || totalRequests == 0) {
+            return -1;
+        }
+        return (cpuEnd - cpuStart) * requests / totalRequests;
+    }
+
+    private static long totalSent(long[] counts) {
+        long total = 0;
+        for (int i = 0; i < counts.length; i += 2) {
+            total += counts[i];
+        }
+        return total;
+    }
+
+    // Returns {requests, errors} per operation for one worker, flattened
+    private long[] runWorker(int worker, int workers, int totalRequests, long durationNanos, Source source,
+                             CountDownLatch start, LatencyHistogram[] latencies, StatusCounts[] statuses)
+            throws InterruptedException {
+        long[] counts = new long[latencies.length * 2];
+        start.await();
+        long deadline = System.nanoTime() + durationNanos;
+        boolean timed = durationNanos != Long.MAX_VALUE;
+        // sequence >= 0 stops a timed run before the int sequence overflows
+        for (int sequence = worker; sequence < totalRequests && sequence >= 0; sequence += workers) {
+            if (timed && System.nanoTime() - deadline >= 0) {
+                break;
+            }
+            int op = source.operation(sequence);
+            HttpRequest request = source.next(worker, sequence, op);
+            long sendTime = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                long latency = System.nanoTime() - sendTime;
+                statuses[op].record(response.statusCode());
+                if (response.statusCode() >= 400) {
+                    counts[2 * op + 1]++;
+                } else {
+                    latencies[op].record(latency);
+                }
+                if (timeSeries != null) {
+                    timeSeries.record(latency, response.statusCode() < 400);
+                }
+                if (listener != null) {
+                    listener.received(request, response);
+                }
+            } catch (IOException e) {
+                counts[2 * op + 1]++;
+                statuses[op].record(-1);
+                if (timeSeries != null) {
+                    timeSeries.record(System.nanoTime() - sendTime, false);
+                }
+            }
+            counts[2 * op]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,101 @@
+package load;
+
+import metrics.CpuClock;
+import metrics.LatencyHistogram;
+
+/**
+ * Aggregated outcome of one load run: how many requests were sent, how many failed and how long it took.
+ * Successful requests are timed individually into a latency histogram, and the client's CPU time is
+ * kept so the load generator's own cost per request can be compared between engines and changes.
+ * Every request is also counted under its response status, so the errors can be told apart.
+ */
+public class LoadResult {
+
+    private final String operation;
+    private final int concurrency;
+    private final long requests;
+    private final long errors;
+    private final long durationNanos;
+    private final LatencyHistogram latencies;
+    private final long cpuNanos;
+    private final StatusCounts statuses;
+
+    public LoadResult(String operation, int concurrency, long requests, long errors, long durationNanos,
+                      LatencyHistogram latencies) {
+        this(operation, concurrency, requests, errors, durationNanos, latencies, -1);
+    }
+
+    // cpuNanos is the CPU time this JVM used during the run (see CpuClock), -1 when unknown
+    public LoadResult(String operation, int concurrency, long requests, long errors, long durationNanos,
+                      LatencyHistogram latencies, long cpuNanos) {
+        this(operation, concurrency, requests, errors, durationNanos, latencies, cpuNanos, new StatusCounts());
+    }
+
+    public LoadResult(String operation, int concurrency, long requests, long errors, long durationNanos,
+                      LatencyHistogram latencies, long cpuNanos, StatusCounts statuses) {
+        this.operation = operation;
+        this.concurrency = concurrency;
+        this.requests = requests;
+        this.errors = errors;
+        this.durationNanos = durationNanos;
+        this.latencies = latencies;
+        this.cpuNanos = cpuNanos;
+        this.statuses = statuses;
+    }
+
+    public String operation() {
+        return operation;
+    }
+
+    public int concurrency() {
+        return concurrency;
+    }
+
+    public long requests() {
+        return requests;
+    }
+
+    public long errors() {
+        return errors;
+    }
+
+    public long durationNanos() {
+        return durationNanos;
+    }
+
+    public long durationMillis() {
+        return durationNanos / 1_000_000;
+    }
+
+    // Requests per second over the whole run
+    public double throughput() {
+        return durationNanos == 0 ? 0 : requests * 1e9 / durationNanos;
+    }
+
+    public LatencyHistogram latencies() {
+        return latencies;
+    }
+
+    // Client CPU time of the run, -1 when unknown
+    public long cpuNanos() {
+        return cpuNanos;
+    }
+
+    // Client CPU time per request in microseconds, -1 when unknown or the run was too short to measure it
+    public double cpuMicrosPerRequest() {
+        return CpuClock.microsPerRequest(CpuClock.resolvedProcessCpu(cpuNanos), requests);
+    }
+
+    // Requests per response status, empty when the engine did not count them
+    public StatusCounts statuses() {
+        return statuses;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s c=%d requests=%d errors=%d duration=%dms throughput=%.1f/s p50=%.2fms p99=%.2fms max=%.2fms cpu=%.1fus/req statuses=%s",
+                operation, concurrency, requests, errors, durationMillis(), throughput(),
+                latencies.percentile(50) / 1e6, latencies.percentile(99) / 1e6, latencies.max() / 1e6, cpuMicrosPerRequest(),
+                statuses);
+    }
+}
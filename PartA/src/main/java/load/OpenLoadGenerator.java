@@ -0,0 +1,87 @@
+package load;
+
+import client.TodoClient;
+import metrics.CpuClock;
+import metrics.LatencyHistogram;
+import metrics.TimeSeriesRecorder;
+
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load generator: requests are started at a fixed arrival rate, whether or not earlier
+ * responses have come back.
+ * <p>
+ * Request i is due at start + i / rate. Its latency is measured from that intended send time,
+ * not from when it actually left, so a server stall that delays sending is charged to every request
+ * that should have been sent during the stall (coordinated-omission correction).
+ * In-flight requests are not bounded: a server that cannot keep up shows up as growing latency.
+ */
+public class OpenLoadGenerator {
+
+    private final TodoClient client;
+    private final double requestsPerSecond;
+    private final TimeSeriesRecorder timeSeries;
+
+    public OpenLoadGenerator(TodoClient client, double requestsPerSecond) {
+        this(client, requestsPerSecond, null);
+    }
+
+    // Every request is also recorded into timeSeries, which may be null
+    public OpenLoadGenerator(TodoClient client, double requestsPerSecond, TimeSeriesRecorder timeSeries) {
+        if (requestsPerSecond <= 0) {
+            throw new IllegalArgumentException("requestsPerSecond must be positive");
+        }
+        this.client = client;
+        this.requestsPerSecond = requestsPerSecond;
+        this.timeSeries = timeSeries;
+    }
+
+    public LoadResult run(String operation, int totalRequests, RequestStream stream) {
+        long periodNanos = (long) (1e9 / requestsPerSecond);
+        LatencyHistogram latencies = new LatencyHistogram();
+        LongAdder errors = new LongAdder();
+        StatusCounts statuses = new StatusCounts();
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[totalRequests];
+
+        long cpuStart = CpuClock.processCpuNanos();
+        long startTime = System.nanoTime();
+        for (int i = 0; i < totalRequests; i++) {
+            long intendedTime = startTime + i * periodNanos;
+            waitUntil(intendedTime);
+            responses[i] = client.httpClient()
+                    .sendAsync(stream.next(0, i), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> {
+                        long latency = System.nanoTime() - intendedTime;
+                        int status = failure == null ? response.statusCode() : -1;
+                        boolean success = status >= 0 && status < 400;
+                        statuses.record(status);
+                        if (success) {
+                            latencies.record(latency);
+                        } else {
+                            errors.increment();
+                        }
+                        if (timeSeries != null) {
+                            timeSeries.record(latency, success);
+                        }
+                    });
+        }
+        // Failures are already counted above, only wait for every request to finish
+        CompletableFuture.allOf(responses).exceptionally(failure -> null).join();
+        long endTime = System.nanoTime();
+        long cpuEnd = CpuClock.processCpuNanos();
+
+        return new LoadResult(operation, 1, totalRequests, errors.sum(), endTime - startTime, latencies,
+                cpuStart < 0 ? -1 : cpuEnd - cpuStart, statuses);
+    }
+
+    // Parks until the given System.nanoTime() deadline, returns immediately when already late
+    private static void waitUntil(long deadline) {
+        long remaining;
+        while ((remaining = deadline - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(remaining);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package load;
+
+import com.github.javafaker.Faker;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Todo bodies generated up front so the timed load loops only index into an array.
+ * <p>
+ * Payloads come from a Faker seeded with a fixed value, so the same seed, size and size class always
+ * give the same bytes. They are serialized to UTF-8 JSON once and can be saved to and loaded from disk
+ * to share a corpus between runs.
+ */
+public class PayloadCorpus {
+
+    private static final int FILE_MAGIC = 0x54444f43; // "TDOC"
+
+    public enum SizeClass {
+        // One-word title, empty description
+        TINY,
+        // Sentence title, one-paragraph description, same shape as RandomTodoGenerator.generateTodo()
+        TYPICAL,
+        // Sentence title, description of roughly 4 KB
+        LARGE
+    }
+
+    private final SizeClass sizeClass;
+    private final byte[][] payloads;
+
+    private PayloadCorpus(SizeClass sizeClass, byte[][] payloads) {
+        this.sizeClass = sizeClass;
+        this.payloads = payloads;
+    }
+
+    public static PayloadCorpus generate(int size, SizeClass sizeClass, long seed) {
+        Faker faker = new Faker(new Random(seed));
+        byte[][] payloads = new byte[size][];
+        for (int i = 0; i < size; i++) {
+            payloads[i] = generateTodo(faker, sizeClass).toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return new PayloadCorpus(sizeClass, payloads);
+    }
+
+    // Loads the corpus saved at file if it exists, otherwise generates it and saves it there
+    public static PayloadCorpus loadOrGenerate(Path file, int size, SizeClass sizeClass, long seed) throws IOException {
+        if (Files.exists(file)) {
+            PayloadCorpus corpus = load(file);
+            if (corpus.size() >= size && corpus.sizeClass() == sizeClass) {
+                return corpus;
+            }
+        }
+        PayloadCorpus corpus = generate(size, sizeClass, seed);
+        corpus.save(file);
+        return corpus;
+    }
+
+    public static PayloadCorpus load(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FILE_MAGIC) {
+                throw new IOException(file + " is not a payload corpus");
+            }
+            SizeClass sizeClass = SizeClass.valueOf(in.readUTF());
+            byte[][] payloads = new byte[in.readInt()][];
+            for (int i = 0; i < payloads.length; i++) {
+                payloads[i] = new byte[in.readInt()];
+                in.readFully(payloads[i]);
+            }
+            return new PayloadCorpus(sizeClass, payloads);
+        }
+    }
+
+    public void save(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(FILE_MAGIC);
+            out.writeUTF(sizeClass.name());
+            out.writeInt(payloads.length);
+            for (byte[] payload : payloads) {
+                out.writeInt(payload.length);
+                out.write(payload);
+            }
+        }
+    }
+
+    public SizeClass sizeClass() {
+        return sizeClass;
+    }
+
+    public int size() {
+        return payloads.length;
+    }
+
+    // JSON body of the todo at index, wrapping around the corpus size; the array must not be modified
+    public byte[] payload(int index) {
+        return payloads[Math.floorMod(index, payloads.length)];
+    }
+
+    private static JsonObject generateTodo(Faker faker, SizeClass sizeClass) {
+        switch (sizeClass) {
+            case TINY: {
+                JsonObject todo = new JsonObject();
+                todo.addProperty("title", faker.lorem().word());
+                todo.addProperty("doneStatus", faker.bool().bool());
+                todo.addProperty("description", "");
+                return todo;
+            }
+            case LARGE: {
+                JsonObject todo = RandomTodoGenerator.generateTodo(faker);
+                todo.addProperty("description", String.join("\n", faker.lorem().paragraphs(24)));
+                return todo;
+            }
+            default:
+                return RandomTodoGenerator.generateTodo(faker);
+        }
+    }
+}
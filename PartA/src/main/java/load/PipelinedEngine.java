@@ -0,0 +1,337 @@
+package load;
+
+import client.ResponseParser;
+import metrics.CpuClock;
+import metrics.LatencyHistogram;
+import metrics.TimeSeriesRecorder;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.time.Duration;
+
+/**
+ * Closed-model load from a single thread over raw SocketChannels, with HTTP/1.1 pipelining.
+ * <p>
+ * Each of the connections keeps up to depth requests in flight: requests are pre-encoded bytes from a
+ * RawRequestStream, copied into the connection's direct output buffer and written without waiting for
+ * the responses before them. Responses come back in order on each connection and are parsed
+ * incrementally by a ResponseParser straight from the direct input buffer, so the timed loop builds
+ * no HttpRequest, String or response object. Latency is measured from when a request is queued on
+ * its connection to when its response is complete, so it includes time spent behind earlier requests.
+ * <p>
+ * A connection the server closes, or that fails, is reopened; the requests it still had in flight count
+ * as errors. So do the requests of a connection whose oldest request got no response within the response
+ * timeout: the connection is closed, and reopened if the run is still sending. A stalled server therefore
+ * cannot hang a run, and a timed run ends at most one response timeout after its deadline.
+ * Buffers are allocated once per connection and reused across runs.
+ */
+public class PipelinedEngine {
+
+    private static final int BUFFER_BYTES = 64 << 10;
+    private static final long SELECT_MILLIS = 100;
+    // Same default as the HttpClient engines, see ClientConfig
+    private static final Duration DEFAULT_RESPONSE_TIMEOUT = Duration.ofSeconds(30);
+
+    private final InetSocketAddress address;
+    private final int connections;
+    private final int depth;
+    private final TimeSeriesRecorder timeSeries;
+    private final Connection[] pool;
+    private long responseTimeoutNanos = DEFAULT_RESPONSE_TIMEOUT.toNanos();
+
+    public PipelinedEngine(String baseURL, int connections, int depth) {
+        this(baseURL, connections, depth, null);
+    }
+
+    // Every request is also recorded into timeSeries, which may be null
+    public PipelinedEngine(String baseURL, int connections, int depth, TimeSeriesRecorder timeSeries) {
+        if (connections < 1 || depth < 1) {
+            throw new IllegalArgumentException("connections and depth must be at least 1");
+        }
+        URI uri = URI.create(baseURL);
+        this.address = new InetSocketAddress(uri.getHost(), uri.getPort() > 0 ? uri.getPort() : 80);
+        this.connections = connections;
+        this.depth = depth;
+        this.timeSeries = timeSeries;
+        this.pool = new Connection[connections];
+        for (int i = 0; i < connections; i++) {
+            pool[i] = new Connection();
+        }
+    }
+
+    // How long a connection waits for the response to its oldest request before failing what it has in flight
+    public PipelinedEngine responseTimeout(Duration timeout) {
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("response timeout must be positive");
+        }
+        this.responseTimeoutNanos = timeout.toNanos();
+        return this;
+    }
+
+    public LoadResult run(String operation, int totalRequests, RawRequestStream stream) throws IOException {
+        return run(operation, totalRequests, Long.MAX_VALUE, stream);
+    }
+
+    // Sends requests until the duration has elapsed; requests in flight at the deadline still complete
+    public LoadResult runFor(String operation, Duration duration, RawRequestStream stream) throws IOException {
+        return run(operation, Integer.MAX_VALUE, duration.toNanos(), stream);
+    }
+
+    // Same, but stops early once maxRequests were sent, e.g. when only that many requests are worth sending
+    public LoadResult runFor(String operation, int maxRequests, Duration duration, RawRequestStream stream)
+            throws IOException {
+        return run(operation, maxRequests, duration.toNanos(), stream);
+    }
+
+    private LoadResult run(String operation, int totalRequests, long durationNanos, RawRequestStream stream)
+            throws IOException {
+        Run run = new Run(totalRequests, durationNanos, stream);
+        try (Selector selector = Selector.open()) {
+            for (Connection connection : pool) {
+                connection.pending = null;
+                connection.open(selector);
+            }
+            run.cpuStart = CpuClock.processCpuNanos();
+            run.startTime = System.nanoTime();
+            run.deadline = run.startTime + durationNanos;
+            while (true) {
+                run.checkSending();
+                for (Connection connection : pool) {
+                    connection.fill(run);
+                    connection.flush();
+                }
+                if (!run.sending && run.inFlight == 0) {
+                    break;
+                }
+                selector.select(SELECT_MILLIS);
+                for (SelectionKey key : selector.selectedKeys()) {
+                    Connection connection = (Connection) key.attachment();
+                    if (key.isValid() && key.isReadable()) {
+                        connection.read(run, selector);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.flush();
+                    }
+                }
+                selector.selectedKeys().clear();
+                long now = System.nanoTime();
+                for (Connection connection : pool) {
+                    if (connection.stalled(now)) {
+                        connection.expire(run, selector);
+                    }
+                }
+            }
+        } finally {
+            for (Connection connection : pool) {
+                connection.close();
+            }
+        }
+        long endTime = System.nanoTime();
+        long cpuEnd = CpuClock.processCpuNanos();
+        return new LoadResult(operation, connections, run.sent, run.errors, endTime - run.startTime, run.latencies,
+                run.cpuStart < 0 ? -1 : cpuEnd - run.cpuStart, run.statuses);
+    }
+
+    // Counters of one run, only touched by the engine thread
+    private final class Run {
+        private final int totalRequests;
+        private final boolean timed;
+        private final RawRequestStream stream;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final StatusCounts statuses = new StatusCounts();
+        private long startTime;
+        private long cpuStart;
+        private long deadline;
+        private boolean sending = true;
+        private int sent;
+        private long errors;
+        private int inFlight;
+
+        Run(int totalRequests, long durationNanos, RawRequestStream stream) {
+            this.totalRequests = totalRequests;
+            this.timed = durationNanos != Long.MAX_VALUE;
+            this.stream = stream;
+        }
+
+        void checkSending() {
+            // sent >= 0 stops a timed run before the int sequence overflows
+            if (sending && (sent >= totalRequests || sent < 0 || (timed && System.nanoTime() - deadline >= 0))) {
+                sending = false;
+            }
+        }
+
+        void completed(long latency, int status) {
+            inFlight--;
+            boolean success = status > 0 && status < 400;
+            statuses.record(status);
+            if (success) {
+                latencies.record(latency);
+            } else {
+                errors++;
+            }
+            if (timeSeries != null) {
+                timeSeries.record(latency, success);
+            }
+        }
+    }
+
+    private final class Connection {
+        private final ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final ByteBuffer in = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        // Queue times of the requests in flight, oldest at head
+        private final long[] queued = new long[depth];
+        private final ResponseParser parser = new ResponseParser();
+        private SocketChannel channel;
+        private SelectionKey key;
+        private int head;
+        private int count;
+        // Next request, when it did not fit into out
+        private byte[] pending;
+
+        void open(Selector selector) throws IOException {
+            channel = SocketChannel.open(address);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.configureBlocking(false);
+            key = channel.register(selector, SelectionKey.OP_READ, this);
+            out.clear();
+            in.clear();
+            parser.reset();
+            head = 0;
+            count = 0;
+        }
+
+        // Queues requests into out until the connection has depth in flight or the run stops sending
+        void fill(Run run) {
+            while (count < depth) {
+                byte[] request = pending;
+                if (request == null) {
+                    run.checkSending();
+                    if (!run.sending) {
+                        return;
+                    }
+                    request = run.stream.next(run.sent);
+                    run.sent++;
+                    run.inFlight++;
+                }
+                if (request.length > out.remaining()) {
+                    if (out.position() > 0 || request.length <= out.capacity()) {
+                        pending = request;
+                        return;
+                    }
+                    throw new IllegalArgumentException("Request of " + request.length + " bytes exceeds the "
+                            + out.capacity() + " byte buffer");
+                }
+                pending = null;
+                out.put(request);
+                queued[(head + count++) % depth] = System.nanoTime();
+            }
+        }
+
+        void flush() throws IOException {
+            if (out.position() == 0) {
+                return;
+            }
+            out.flip();
+            try {
+                channel.write(out);
+            } finally {
+                out.compact();
+            }
+            key.interestOps(out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+        }
+
+        void read(Run run, Selector selector) throws IOException {
+            int read;
+            try {
+                read = channel.read(in);
+            } catch (IOException e) {
+                read = -1;
+            }
+            in.flip();
+            boolean reconnect = false;
+            while (!reconnect && parser.parse(in)) {
+                reconnect = response(run);
+            }
+            in.clear();
+            if (read < 0) {
+                if (parser.endOfInput()) {
+                    response(run);
+                }
+                reconnect = true;
+            }
+            if (reconnect) {
+                reconnect(run, selector);
+            }
+        }
+
+        // Records the oldest request's response, true when the server closes the connection after it
+        private boolean response(Run run) {
+            if (count == 0) {
+                // A response nobody asked for, e.g. an error page before closing
+                return true;
+            }
+            long latency = System.nanoTime() - queued[head];
+            head = (head + 1) % depth;
+            count--;
+            run.completed(latency, parser.status());
+            return parser.closeAfter();
+        }
+
+        // Whether the oldest request in flight has waited longer than the response timeout
+        boolean stalled(long now) {
+            return count > 0 && now - queued[head] - responseTimeoutNanos >= 0;
+        }
+
+        // Gives up on a stalled connection: fails what is in flight, then reopens it only if the run still sends
+        void expire(Run run, Selector selector) throws IOException {
+            if (run.sending) {
+                reconnect(run, selector);
+                return;
+            }
+            while (count > 0) {
+                fail(run, System.nanoTime() - queued[head]);
+            }
+            if (pending != null) {
+                // Counted as sent when it was drawn, but never queued
+                pending = null;
+                run.completed(0, -1);
+            }
+            out.clear();
+            close();
+        }
+
+        // Fails what is still in flight and opens a fresh connection
+        private void reconnect(Run run, Selector selector) throws IOException {
+            while (count > 0) {
+                fail(run, System.nanoTime() - queued[head]);
+            }
+            close();
+            open(selector);
+        }
+
+        private void fail(Run run, long latency) {
+            head = (head + 1) % depth;
+            count--;
+            run.completed(latency, -1);
+        }
+
+        void close() {
+            if (key != null) {
+                key.cancel();
+            }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    // Nothing left to release
+                }
+            }
+        }
+    }
+}
@@ -1,3 +1,5 @@
+package load;
+
 import com.google.gson.JsonObject;
 import com.github.javafaker.Faker;
 
@@ -6,6 +8,11 @@ public class RandomTodoGenerator {
     private static final Faker faker = new Faker();
 
     public static JsonObject generateTodo() {
+        return generateTodo(faker);
+    }
+
+    // Generates a todo from the given Faker, use a seeded one for reproducible todos
+    public static JsonObject generateTodo(Faker faker) {
         JsonObject todo = new JsonObject();
         todo.addProperty("title", faker.lorem().sentence());
         todo.addProperty("doneStatus", faker.bool().bool());
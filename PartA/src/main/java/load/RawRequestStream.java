@@ -0,0 +1,12 @@
+package load;
+
+/**
+ * Supplies the pre-encoded HTTP/1.1 requests sent by the pipelining engine, see RawRequests.
+ * <p>
+ * Called from the engine's single thread; returned arrays are only read and may be shared between sequences.
+ */
+@FunctionalInterface
+public interface RawRequestStream {
+
+    byte[] next(int sequence);
+}
@@ -0,0 +1,15 @@
+package load;
+
+import java.net.http.HttpRequest;
+
+/**
+ * Supplies the requests sent by one load worker.
+ * <p>
+ * Implementations are called from several workers at once and must be thread-safe;
+ * the worker index lets each worker build its own stream (e.g. its own id range).
+ */
+@FunctionalInterface
+public interface RequestStream {
+
+    HttpRequest next(int worker, int sequence);
+}
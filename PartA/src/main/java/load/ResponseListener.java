@@ -0,0 +1,14 @@
+package load;
+
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+/**
+ * Sees every response of a load run, e.g. an IdRegistry keeping track of the todos that were created and deleted.
+ * Called from the load workers concurrently, after the request's latency was taken.
+ */
+@FunctionalInterface
+public interface ResponseListener {
+
+    void received(HttpRequest request, HttpResponse<?> response);
+}
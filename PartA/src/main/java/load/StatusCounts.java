@@ -0,0 +1,67 @@
+package load;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Number of responses per HTTP status code in a load run, so a run's 404s or 500s are reported as such
+ * rather than only as errors next to the success latencies.
+ * <p>
+ * Thread-safe and lock-free: one counter per status code. Requests that got no response (I/O failure,
+ * status -1) are counted as status 0, as are status codes outside 100-599.
+ */
+public final class StatusCounts {
+
+    private static final int STATUSES = 600;
+
+    private final AtomicLongArray counts = new AtomicLongArray(STATUSES);
+
+    public void record(int status) {
+        counts.incrementAndGet(index(status));
+    }
+
+    public void add(StatusCounts other) {
+        for (int status = 0; status < STATUSES; status++) {
+            long count = other.counts.get(status);
+            if (count != 0) {
+                counts.addAndGet(status, count);
+            }
+        }
+    }
+
+    // Responses with this status, 0 for requests without a response
+    public long count(int status) {
+        return counts.get(index(status));
+    }
+
+    public long total() {
+        long total = 0;
+        for (int status = 0; status < STATUSES; status++) {
+            total += counts.get(status);
+        }
+        return total;
+    }
+
+    // e.g. "200=950;404=48;none=2", empty when nothing was recorded; no commas so it fits in a CSV field
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int status = 100; status < STATUSES; status++) {
+            append(text, Integer.toString(status), counts.get(status));
+        }
+        append(text, "none", counts.get(0));
+        return text.toString();
+    }
+
+    private static void append(StringBuilder text, String status, long count) {
+        if (count != 0) {
+            if (text.length() > 0) {
+                text.append(';');
+            }
+            text.append(status).append('=').append(count);
+        }
+    }
+
+    private static int index(int status) {
+        return status >= 100 && status < STATUSES ? status : 0;
+    }
+}
@@ -0,0 +1,121 @@
+package load;
+
+import client.RawRequests;
+import client.TodoClient;
+import client.TodoRequests;
+
+import java.net.http.HttpRequest;
+import java.util.Locale;
+
+/**
+ * The /todos operations the load tools can send, each built with TodoRequests (or RawRequests).
+ * Operations on one todo take a target id; the ones with a body take a pre-encoded JSON payload.
+ */
+public enum TodoOperation {
+
+    // GET /todos
+    LIST("GET /todos") {
+        @Override
+        public HttpRequest request(TodoClient client, int id, byte[] payload) {
+            return TodoRequests.getTodos(client, "");
+        }
+
+        @Override
+        public byte[] encode(RawRequests raw, int id, byte[] payload) {
+            return raw.getTodos("");
+        }
+    },
+    // GET /todos/{id}
+    GET("GET /todos/{id}") {
+        @Override
+        public HttpRequest request(TodoClient client, int id, byte[] payload) {
+            return TodoRequests.getTodo(client, id);
+        }
+
+        @Override
+        public byte[] encode(RawRequests raw, int id, byte[] payload) {
+            return raw.getTodo(id);
+        }
+    },
+    // POST /todos
+    CREATE("POST /todos") {
+        @Override
+        public HttpRequest request(TodoClient client, int id, byte[] payload) {
+            return TodoRequests.createTodo(client, payload);
+        }
+
+        @Override
+        public byte[] encode(RawRequests raw, int id, byte[] payload) {
+            return raw.createTodo(payload);
+        }
+    },
+    // POST /todos/{id}
+    AMEND("POST /todos/{id}") {
+        @Override
+        public HttpRequest request(TodoClient client, int id, byte[] payload) {
+            return TodoRequests.amendTodo(client, id, payload);
+        }
+
+        @Override
+        public byte[] encode(RawRequests raw, int id, byte[] payload) {
+            return raw.amendTodo(id, payload);
+        }
+    },
+    // PUT /todos/{id}
+    UPDATE("PUT /todos/{id}") {
+        @Override
+        public HttpRequest request(TodoClient client, int id, byte[] payload) {
+            return TodoRequests.updateTodo(client, id, payload);
+        }
+
+        @Override
+        public byte[] encode(RawRequests raw, int id, byte[] payload) {
+            return raw.updateTodo(id, payload);
+        }
+    },
+    // DELETE /todos/{id}
+    DELETE("DELETE /todos/{id}") {
+        @Override
+        public HttpRequest request(TodoClient client, int id, byte[] payload) {
+            return TodoRequests.deleteTodo(client, id);
+        }
+
+        @Override
+        public byte[] encode(RawRequests raw, int id, byte[] payload) {
+            return raw.deleteTodo(id);
+        }
+    };
+
+    private final String endpoint;
+
+    TodoOperation(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public abstract HttpRequest request(TodoClient client, int id, byte[] payload);
+
+    // The same request as raw HTTP/1.1 bytes, for the pipelining engine
+    public abstract byte[] encode(RawRequests raw, int id, byte[] payload);
+
+    public String endpoint() {
+        return endpoint;
+    }
+
+    // Whether the request targets an existing todo
+    public boolean needsId() {
+        return this != LIST && this != CREATE;
+    }
+
+    // Lower-case name as used on the command line
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    public static TodoOperation parse(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown operation '" + name + "', expected one of list, get, create, amend, update, delete");
+        }
+    }
+}
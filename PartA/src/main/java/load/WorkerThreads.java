@@ -0,0 +1,36 @@
+package load;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the executor that runs load workers.
+ * <p>
+ * On Java 21+ each worker gets its own virtual thread, so thousands of blocking workers are cheap.
+ * The project still compiles for Java 17, so the virtual-thread factory is looked up reflectively
+ * and a cached platform-thread pool is used when it is not available.
+ */
+public class WorkerThreads {
+
+    private WorkerThreads() {
+    }
+
+    public static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+}
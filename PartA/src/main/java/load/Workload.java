@@ -0,0 +1,264 @@
+package load;
+
+import client.TodoClient;
+import client.TodoRequests;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A weighted mix of /todos operations sent in one load run, e.g. doneStatus polls interleaved with creates.
+ * <p>
+ * Built with builder() or read from a JSON file:
+ * <pre>
+ * {"name": "read-heavy", "seed": 7, "operations": [
+ *   {"operation": "list", "query": "?doneStatus=false", "weight": 60},
+ *   {"name": "get-one", "operation": "get", "weight": 30},
+ *   {"operation": "create", "weight": 10}]}
+ * </pre>
+ * The entry for a sequence number is a pure function of the seed and the sequence, so workers need no
+ * shared random generator and the same workload always sends the same mix in the same order.
+ */
+public class Workload {
+
+    /**
+     * One operation of the mix. Only list operations take a query (filters on doneStatus or title).
+     */
+    public static class Entry {
+
+        private final String name;
+        private final TodoOperation operation;
+        private final String query;
+        private final int weight;
+
+        private Entry(String name, TodoOperation operation, String query, int weight) {
+            this.name = name;
+            this.operation = operation;
+            this.query = query;
+            this.weight = weight;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public TodoOperation operation() {
+            return operation;
+        }
+
+        public String query() {
+            return query;
+        }
+
+        public int weight() {
+            return weight;
+        }
+
+        // The id is ignored by operations that do not target one todo, the payload by those without a body
+        public HttpRequest request(TodoClient client, int id, byte[] payload) {
+            return operation == TodoOperation.LIST
+                    ? TodoRequests.getTodos(client, query)
+                    : operation.request(client, id, payload);
+        }
+    }
+
+    private final String name;
+    private final long seed;
+    private final List<Entry> entries;
+    // cumulativeWeights[i] is the sum of the weights of entries 0..i
+    private final int[] cumulativeWeights;
+
+    private Workload(String name, long seed, List<Entry> entries) {
+        this.name = name;
+        this.seed = seed;
+        this.entries = Collections.unmodifiableList(new ArrayList<>(entries));
+        this.cumulativeWeights = new int[entries.size()];
+        int total = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            total += entries.get(i).weight();
+            cumulativeWeights[i] = total;
+        }
+    }
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    // Mostly reads: doneStatus polls, single-todo reads and the odd create or update
+    public static Workload readHeavy() {
+        return builder("read-heavy")
+                .add(TodoOperation.LIST, "?doneStatus=false", 50)
+                .add(TodoOperation.GET, 30)
+                .add(TodoOperation.LIST, "?title=scan%20paperwork", 10)
+                .add(TodoOperation.CREATE, 5)
+                .add(TodoOperation.AMEND, 5)
+                .build();
+    }
+
+    // Mostly writes, with doneStatus polls to see how reads fare against them
+    public static Workload writeHeavy() {
+        return builder("write-heavy")
+                .add(TodoOperation.CREATE, 40)
+                .add(TodoOperation.UPDATE, 25)
+                .add(TodoOperation.AMEND, 15)
+                .add(TodoOperation.LIST, "?doneStatus=false", 20)
+                .build();
+    }
+
+    // Every endpoint in equal parts
+    public static Workload crudCycle() {
+        return builder("crud-cycle")
+                .add(TodoOperation.CREATE, 1)
+                .add(TodoOperation.LIST, "", 1)
+                .add(TodoOperation.GET, 1)
+                .add(TodoOperation.AMEND, 1)
+                .add(TodoOperation.UPDATE, 1)
+                .add(TodoOperation.DELETE, 1)
+                .build();
+    }
+
+    // Resolves a built-in workload name (read-heavy, write-heavy, crud-cycle), otherwise reads a JSON file
+    public static Workload named(String nameOrFile) throws IOException {
+        switch (nameOrFile) {
+            case "read-heavy":
+                return readHeavy();
+            case "write-heavy":
+                return writeHeavy();
+            case "crud-cycle":
+                return crudCycle();
+            default:
+                return load(Path.of(nameOrFile));
+        }
+    }
+
+    public static Workload load(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return parse(reader);
+        }
+    }
+
+    public static Workload parse(Reader json) {
+        JsonObject definition;
+        try {
+            definition = JsonParser.parseReader(json).getAsJsonObject();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Workload is not a JSON object: " + e.getMessage(), e);
+        }
+        Builder builder = builder(definition.has("name") ? definition.get("name").getAsString() : "workload");
+        if (definition.has("seed")) {
+            builder.seed(definition.get("seed").getAsLong());
+        }
+        if (!definition.has("operations")) {
+            throw new IllegalArgumentException("Workload has no operations");
+        }
+        for (JsonElement element : definition.getAsJsonArray("operations")) {
+            JsonObject entry = element.getAsJsonObject();
+            if (!entry.has("operation") || !entry.has("weight")) {
+                throw new IllegalArgumentException("Workload operation needs an operation and a weight: " + entry);
+            }
+            TodoOperation operation = TodoOperation.parse(entry.get("operation").getAsString());
+            String query = entry.has("query") ? entry.get("query").getAsString() : "";
+            int weight = entry.get("weight").getAsInt();
+            if (entry.has("name")) {
+                builder.add(entry.get("name").getAsString(), operation, query, weight);
+            } else {
+                builder.add(operation, query, weight);
+            }
+        }
+        return builder.build();
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public List<Entry> entries() {
+        return entries;
+    }
+
+    // Index in entries() of the operation sent as the given sequence number
+    public int entryIndex(long sequence) {
+        int total = cumulativeWeights[cumulativeWeights.length - 1];
+        int ticket = (int) Long.remainderUnsigned(mix(seed + sequence), total);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (ticket < cumulativeWeights[i]) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    public Entry entry(long sequence) {
+        return entries.get(entryIndex(sequence));
+    }
+
+    // SplitMix64 finalizer, spreads consecutive sequences over the whole range
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    public static class Builder {
+
+        private final String name;
+        private final List<Entry> entries = new ArrayList<>();
+        private final Set<String> names = new HashSet<>();
+        private long seed = 429;
+
+        private Builder(String name) {
+            this.name = name;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder add(TodoOperation operation, int weight) {
+            return add(operation, "", weight);
+        }
+
+        // Named after the operation and its filter, e.g. "list?doneStatus=false"
+        public Builder add(TodoOperation operation, String query, int weight) {
+            return add(operation.label() + query, operation, query, weight);
+        }
+
+        public Builder add(String entryName, TodoOperation operation, String query, int weight) {
+            if (weight < 1) {
+                throw new IllegalArgumentException("Weight of " + entryName + " must be at least 1");
+            }
+            if (!query.isEmpty() && operation != TodoOperation.LIST) {
+                throw new IllegalArgumentException("Only list operations take a query, not " + operation.label());
+            }
+            if (!query.isEmpty() && !query.startsWith("?")) {
+                throw new IllegalArgumentException("Query of " + entryName + " must start with '?'");
+            }
+            if (!names.add(entryName)) {
+                throw new IllegalArgumentException("Duplicate workload operation " + entryName
+                        + ", give the entries distinct names");
+            }
+            entries.add(new Entry(entryName, operation, query, weight));
+            return this;
+        }
+
+        public Workload build() {
+            if (entries.isEmpty()) {
+                throw new IllegalArgumentException("Workload " + name + " has no operations");
+            }
+            return new Workload(name, seed, entries);
+        }
+    }
+}
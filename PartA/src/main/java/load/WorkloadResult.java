@@ -0,0 +1,59 @@
+package load;
+
+import metrics.LatencyHistogram;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of one workload run: a LoadResult per workload entry, in the workload's order, and their total.
+ * Every entry shares the run's duration, so per-entry throughput is that entry's share of the mix.
+ */
+public class WorkloadResult {
+
+    private final Workload workload;
+    private final List<LoadResult> operations;
+    private final LoadResult total;
+
+    public WorkloadResult(Workload workload, List<LoadResult> operations) {
+        this.workload = workload;
+        this.operations = Collections.unmodifiableList(operations);
+        LatencyHistogram latencies = new LatencyHistogram();
+        long requests = 0;
+        long errors = 0;
+        long cpuNanos = 0;
+        StatusCounts statuses = new StatusCounts();
+        for (LoadResult result : operations) {
+            latencies.add(result.latencies());
+            requests += result.requests();
+            errors += result.errors();
+            cpuNanos = cpuNanos < 0 || result.cpuNanos() < 0 ? -1 : cpuNanos + result.cpuNanos();
+            statuses.add(result.statuses());
+        }
+        LoadResult first = operations.get(0);
+        this.total = new LoadResult(workload.name(), first.concurrency(), requests, errors, first.durationNanos(),
+                latencies, cpuNanos, statuses);
+    }
+
+    public Workload workload() {
+        return workload;
+    }
+
+    public List<LoadResult> operations() {
+        return operations;
+    }
+
+    // All entries together, named after the workload
+    public LoadResult total() {
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(total.toString());
+        for (LoadResult result : operations) {
+            text.append(System.lineSeparator()).append("  ").append(result);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,13 @@
+package load;
+
+import java.net.http.HttpRequest;
+
+/**
+ * Supplies the requests of a workload run: the engine picks the entry, the stream picks its target and body.
+ * Called from several workers at once, like RequestStream.
+ */
+@FunctionalInterface
+public interface WorkloadStream {
+
+    HttpRequest next(int worker, int sequence, Workload.Entry entry);
+}
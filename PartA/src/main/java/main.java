@@ -1,5 +1,7 @@
+import cli.LoadCli;
+
 public class main {
     public static void main(String[] args) {
-        System.out.println("Hello World!");
+        System.exit(LoadCli.run(args, System.out, System.err));
     }
 }
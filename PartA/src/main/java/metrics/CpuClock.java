@@ -0,0 +1,57 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU time used by this JVM, to charge client-side work to the requests it sent.
+ * <p>
+ * Process CPU time covers all threads together. Against the Todo Manager jar this is the load generator's
+ * cost alone; with the in-process stand-in server it includes the server's work too. It is accounted in
+ * scheduler ticks, 10 ms on common Linux kernels, so a reading only means something over a run that used
+ * many ticks: below {@link #MIN_PROCESS_CPU_NANOS} it is reported as unknown.
+ * <p>
+ * Thread CPU time covers the calling thread alone, at nanosecond resolution on Linux. It suits single-threaded
+ * loops, but leaves out what other threads do for them, e.g. the HttpClient's selector thread.
+ */
+public final class CpuClock {
+
+    // Granularity of processCpuNanos() on common Linux kernels
+    public static final long PROCESS_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    // Process CPU below this is mostly rounding to whole ticks
+    public static final long MIN_PROCESS_CPU_NANOS = 5 * PROCESS_TICK_NANOS;
+
+    private static final com.sun.management.OperatingSystemMXBean OS = operatingSystem();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private CpuClock() {
+    }
+
+    private static com.sun.management.OperatingSystemMXBean operatingSystem() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        return os instanceof com.sun.management.OperatingSystemMXBean ? (com.sun.management.OperatingSystemMXBean) os : null;
+    }
+
+    // Process CPU time in nanoseconds, -1 when the JVM does not report it
+    public static long processCpuNanos() {
+        return OS != null ? OS.getProcessCpuTime() : -1;
+    }
+
+    // CPU time of the calling thread in nanoseconds, -1 when the JVM does not measure it
+    public static long currentThreadCpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() && THREADS.isThreadCpuTimeEnabled()
+                ? THREADS.getCurrentThreadCpuTime() : -1;
+    }
+
+    // The CPU time between two processCpuNanos() readings, -1 when unknown or too few ticks to tell
+    public static long resolvedProcessCpu(long cpuNanos) {
+        return cpuNanos < MIN_PROCESS_CPU_NANOS ? -1 : cpuNanos;
+    }
+
+    // CPU time per request in microseconds, -1 when unknown
+    public static double microsPerRequest(long cpuNanos, long requests) {
+        return cpuNanos < 0 || requests == 0 ? -1 : cpuNanos / 1e3 / requests;
+    }
+}
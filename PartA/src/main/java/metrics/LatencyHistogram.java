@@ -0,0 +1,168 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size, thread-safe latency histogram in nanoseconds.
+ * <p>
+ * Values below 128 get one bucket each; above that every power of two is split into 64 buckets,
+ * so any recorded value is reported within 1/64 (~1.6%) of its true value. The whole positive long
+ * range fits in 3712 counters allocated up front, and record() only does atomic increments,
+ * so recording never allocates and can be called from any number of threads.
+ */
+public class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 128;
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = LINEAR_BUCKETS + (63 - SUB_BUCKET_BITS - 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+        min.accumulateAndGet(value, Math::min);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    public long count() {
+        return totalCount.get();
+    }
+
+    public long min() {
+        return count() == 0 ? 0 : min.get();
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    public double mean() {
+        long count = count();
+        return count == 0 ? 0 : (double) totalNanos.get() / count;
+    }
+
+    // Value at the given percentile (0-100) in nanoseconds, reported as the upper bound of its bucket
+    public long percentile(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        return valueAtRank(Math.max(1, (long) Math.ceil(percentile / 100 * count)));
+    }
+
+    // Distribution-free confidence interval of a percentile as {lower, upper} nanoseconds: the samples whose ranks
+    // lie z binomial standard deviations below and above the percentile's rank (z = 1.96 for 95%)
+    public long[] percentileInterval(double percentile, double z) {
+        long count = count();
+        if (count == 0) {
+            return new long[] {0, 0};
+        }
+        double rank = percentile / 100 * count;
+        double spread = z * Math.sqrt(count * (percentile / 100) * (1 - percentile / 100));
+        long lower = Math.max(1, (long) Math.floor(rank - spread));
+        long upper = Math.min(count, Math.max(1, (long) Math.ceil(rank + spread)));
+        return new long[] {valueAtRank(lower), valueAtRank(upper)};
+    }
+
+    // Value of the sample with the given 1-based rank, reported as the upper bound of its bucket
+    private long valueAtRank(long rank) {
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(bucket), max());
+            }
+        }
+        return max();
+    }
+
+    // Adds every sample of other into this histogram
+    public void add(LatencyHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long bucketCount = other.counts.get(bucket);
+            if (bucketCount != 0) {
+                counts.addAndGet(bucket, bucketCount);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalNanos.addAndGet(other.totalNanos.get());
+        min.accumulateAndGet(other.min.get(), Math::min);
+        max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    // Clears all samples; not atomic with respect to concurrent record() calls
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        totalCount.set(0);
+        totalNanos.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(0);
+    }
+
+    // Text form "min max totalNanos bucket:count ...", listing only non-empty buckets, read back by decode()
+    public String encode() {
+        StringBuilder text = new StringBuilder().append(min()).append(' ').append(max()).append(' ').append(totalNanos.get());
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            long bucketCount = counts.get(bucket);
+            if (bucketCount != 0) {
+                text.append(' ').append(bucket).append(':').append(bucketCount);
+            }
+        }
+        return text.toString();
+    }
+
+    public static LatencyHistogram decode(String text) {
+        String[] fields = text.trim().split(" ");
+        if (fields.length < 3) {
+            throw new IllegalArgumentException("Not an encoded histogram: " + text);
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 3; i < fields.length; i++) {
+            int colon = fields[i].indexOf(':');
+            int bucket = Integer.parseInt(fields[i].substring(0, colon));
+            long bucketCount = Long.parseLong(fields[i].substring(colon + 1));
+            if (bucket < 0 || bucket >= BUCKETS || bucketCount < 0) {
+                throw new IllegalArgumentException("Bad bucket " + fields[i]);
+            }
+            histogram.counts.addAndGet(bucket, bucketCount);
+            histogram.totalCount.addAndGet(bucketCount);
+        }
+        if (histogram.count() > 0) {
+            histogram.min.set(Long.parseLong(fields[0]));
+            histogram.max.set(Long.parseLong(fields[1]));
+            histogram.totalNanos.set(Long.parseLong(fields[2]));
+        }
+        return histogram;
+    }
+
+    static int bucketOf(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return LINEAR_BUCKETS + (shift - 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int offset = bucket - LINEAR_BUCKETS;
+        int shift = offset / SUB_BUCKETS + 1;
+        long subBucket = offset % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
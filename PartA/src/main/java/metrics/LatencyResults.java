@@ -0,0 +1,95 @@
+package metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Latency histograms of one run, one per result row (e.g. "POST n=50" or "LIST c=4"), kept so a later run
+ * can be compared against it with {@link RegressionReport}.
+ * <p>
+ * Stored as text: a "# todo-results v1" header, then one "key TAB encoded histogram" line per row.
+ */
+public class LatencyResults {
+
+    static final String MAGIC = "# todo-results v1";
+
+    private final Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+
+    // Adds a copy of the histogram's samples to the row, merging with any earlier samples of the same row
+    public synchronized void add(String key, LatencyHistogram histogram) {
+        if (key.indexOf('\t') >= 0 || key.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Result key must not contain tabs or newlines: " + key);
+        }
+        histograms.computeIfAbsent(key, k -> new LatencyHistogram()).add(histogram);
+    }
+
+    public synchronized LatencyHistogram get(String key) {
+        return histograms.get(key);
+    }
+
+    public synchronized Set<String> keys() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(histograms.keySet()));
+    }
+
+    public synchronized boolean isEmpty() {
+        return histograms.isEmpty();
+    }
+
+    public synchronized void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(MAGIC);
+            writer.write('\n');
+            for (Map.Entry<String, LatencyHistogram> row : histograms.entrySet()) {
+                writer.write(row.getKey());
+                writer.write('\t');
+                writer.write(row.getValue().encode());
+                writer.write('\n');
+            }
+        }
+    }
+
+    public static LatencyResults read(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    public static LatencyResults read(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        String header = lines.readLine();
+        if (header == null || !header.startsWith(MAGIC)) {
+            throw new IOException("Not a results file, expected header " + MAGIC);
+        }
+        LatencyResults results = new LatencyResults();
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            int tab = line.indexOf('\t');
+            if (tab < 0) {
+                throw new IOException("Malformed results line: " + line);
+            }
+            try {
+                results.add(line.substring(0, tab), LatencyHistogram.decode(line.substring(tab + 1)));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed results line: " + line, e);
+            }
+        }
+        return results;
+    }
+}
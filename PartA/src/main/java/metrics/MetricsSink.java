@@ -0,0 +1,239 @@
+package metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes metrics to a file from a background thread.
+ * <p>
+ * Producers hand records to a bounded lock-free ring buffer (multi-producer, single consumer) whose
+ * slots are preallocated, so offering a sample is a CAS plus a few array stores and never touches the disk.
+ * The writer thread drains the ring in batches, formats them and flushes once per batch.
+ * <p>
+ * Overflow: with {@link OverflowPolicy#DROP} a full ring rejects the record and counts it in
+ * {@link #dropped()}; with {@link OverflowPolicy#WAIT} the producer parks until the writer frees a slot.
+ * Shutdown: {@link #close()} stops accepting records, lets the writer drain everything already
+ * accepted, appends a comment line if anything was dropped and closes the file; it throws if the writer
+ * has not finished after 30 seconds rather than returning with records silently unwritten.
+ */
+public class MetricsSink implements AutoCloseable {
+
+    public enum OverflowPolicy { DROP, WAIT }
+
+    private static final int SAMPLE = 0;
+    private static final int LINE = 1;
+    private static final int BATCH_SIZE = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long CLOSE_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private final int capacity;
+    private final int mask;
+    private final OverflowPolicy overflowPolicy;
+
+    // Slot sequence numbers, see Vyukov's bounded queue: slot i is writable when sequence == position
+    private final AtomicLongArray sequences;
+    private final int[] kinds;
+    private final int[] operations;
+    private final long[] timestamps;
+    private final long[] values;
+    private final int[] statuses;
+    private final String[] lines;
+
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    private final Map<String, Integer> operationIds = new ConcurrentHashMap<>();
+    private final List<String> operationNames = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private volatile boolean closed;
+    private volatile IOException failure;
+
+    private final Writer writer;
+    private final Thread writerThread;
+
+    // Sample lines are written as "timestampNanos,operation,latencyNanos,status"
+    public MetricsSink(Path file, String header, int capacity, OverflowPolicy overflowPolicy) throws IOException {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.overflowPolicy = overflowPolicy;
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.kinds = new int[capacity];
+        this.operations = new int[capacity];
+        this.timestamps = new long[capacity];
+        this.values = new long[capacity];
+        this.statuses = new int[capacity];
+        this.lines = new String[capacity];
+
+        this.writer = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8), 1 << 16);
+        if (header != null) {
+            writer.write(header);
+            writer.write('\n');
+        }
+        this.writerThread = new Thread(this::drainLoop, "metrics-sink-" + file.getFileName());
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // Returns a stable id for an operation name, call it once outside the hot path
+    public int operation(String name) {
+        return operationIds.computeIfAbsent(name, key -> {
+            synchronized (operationNames) {
+                operationNames.add(key);
+                return operationNames.size() - 1;
+            }
+        });
+    }
+
+    // Offers one request sample; returns false if the record was dropped
+    public boolean offerSample(int operation, long latencyNanos, int status) {
+        long position = claim();
+        if (position < 0) {
+            return false;
+        }
+        int slot = (int) position & mask;
+        kinds[slot] = SAMPLE;
+        operations[slot] = operation;
+        timestamps[slot] = System.nanoTime();
+        values[slot] = latencyNanos;
+        statuses[slot] = status;
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    // Offers a preformatted line (without trailing newline); returns false if the record was dropped
+    public boolean offerLine(String line) {
+        long position = claim();
+        if (position < 0) {
+            return false;
+        }
+        int slot = (int) position & mask;
+        kinds[slot] = LINE;
+        lines[slot] = line;
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    public long written() {
+        return written.get();
+    }
+
+    // Claims the next free slot position, or returns -1 when the record must be dropped
+    private long claim() {
+        while (!closed) {
+            long position = tail.get();
+            long difference = sequences.get((int) position & mask) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+            } else if (difference < 0) {
+                if (overflowPolicy == OverflowPolicy.DROP) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        dropped.incrementAndGet();
+        return -1;
+    }
+
+    private void drainLoop() {
+        StringBuilder batch = new StringBuilder(BATCH_SIZE * 48);
+        try {
+            while (true) {
+                boolean closing = closed;
+                int drained = drain(batch);
+                if (drained > 0) {
+                    writer.append(batch);
+                    writer.flush();
+                    batch.setLength(0);
+                    written.addAndGet(drained);
+                } else if (closing && tail.get() == head) {
+                    break;
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            if (dropped.get() > 0) {
+                writer.write("# dropped " + dropped.get() + " records\n");
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+    }
+
+    // Moves up to BATCH_SIZE published records into the batch buffer
+    private int drain(StringBuilder batch) {
+        int drained = 0;
+        while (drained < BATCH_SIZE) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) {
+                break;
+            }
+            if (kinds[slot] == LINE) {
+                batch.append(lines[slot]).append('\n');
+                lines[slot] = null;
+            } else {
+                batch.append(timestamps[slot]).append(',')
+                        .append(operationNames.get(operations[slot])).append(',')
+                        .append(values[slot]).append(',')
+                        .append(statuses[slot]).append('\n');
+            }
+            sequences.lazySet(slot, head + capacity);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    // Stops accepting records and waits for everything accepted so far to reach the file;
+    // fails when the writer is still busy after the timeout, with the records it had not written yet
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            writerThread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            throw new IOException("Metrics sink " + writerThread.getName() + " did not finish writing, "
+                    + (tail.get() - written.get()) + " records not written");
+        }
+        if (failure != null) {
+            throw new IOException("Metrics sink failed to write", failure);
+        }
+    }
+}
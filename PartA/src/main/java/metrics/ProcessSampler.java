@@ -0,0 +1,181 @@
+package metrics;
+
+import com.sun.tools.attach.VirtualMachine;
+
+import javax.management.MBeanServerConnection;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Samples the resource usage of another process (the Todo Manager server) on a background thread.
+ * <p>
+ * CPU time, RSS and thread count come from /proc/&lt;pid&gt;/stat and /proc/&lt;pid&gt;/status, so they
+ * cost the target nothing but only work on Linux. GC count and time are read over JMX after attaching to
+ * the target JVM and starting its local management agent; the agent adds a few RMI threads to the target's
+ * thread count. GC values are -1 until the attach has succeeded, or for good if it fails.
+ */
+public class ProcessSampler implements AutoCloseable {
+
+    public static final String HEADER = "timestamp,cpuTime,rss,threads,gcCount,gcTime";
+
+    // USER_HZ, the unit of the CPU times in /proc/<pid>/stat, is 100 on every mainstream Linux
+    private static final long NANOS_PER_TICK = 10_000_000L;
+
+    private final long pid;
+    private final Duration interval;
+    private final Consumer<ResourceSample> listener;
+    private final ScheduledExecutorService scheduler;
+
+    private volatile ResourceSample first;
+    private volatile ResourceSample latest;
+    private volatile List<GarbageCollectorMXBean> collectors;
+    private volatile JMXConnector connector;
+    private boolean attachTried;
+
+    // listener is called on the sampling thread with every periodic sample, may be null
+    public ProcessSampler(long pid, Duration interval, Consumer<ResourceSample> listener) {
+        this.pid = pid;
+        this.interval = interval;
+        this.listener = listener;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "process-sampler-" + pid);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Whether /proc is there to read, i.e. whether sampling can work on this machine
+    public static boolean supported() {
+        return Files.isReadable(Path.of("/proc/self/stat"));
+    }
+
+    public void start() {
+        // Read once right away so first() is set before the slower JMX attach on the sampling thread
+        try {
+            first = sample();
+            latest = first;
+        } catch (IOException | RuntimeException e) {
+            // The first periodic sample will be first()
+        }
+        scheduler.scheduleAtFixedRate(this::samplePeriodically, 0, interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public long pid() {
+        return pid;
+    }
+
+    // The sample taken when sampling started, null if the process could not be read then
+    public ResourceSample first() {
+        return first;
+    }
+
+    // The last periodic sample, null before the first one
+    public ResourceSample latest() {
+        return latest;
+    }
+
+    // Reads a sample now, on the calling thread
+    public ResourceSample sample() throws IOException {
+        long timestamp = System.nanoTime();
+        String stat = Files.readString(Path.of("/proc", Long.toString(pid), "stat"), StandardCharsets.US_ASCII);
+        // The command name is in parentheses and may contain spaces, fields are counted after it
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        long cpuTicks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]); // utime + stime
+        int threads = Integer.parseInt(fields[17]);
+
+        long rssBytes = -1;
+        for (String line : Files.readAllLines(Path.of("/proc", Long.toString(pid), "status"), StandardCharsets.US_ASCII)) {
+            if (line.startsWith("VmRSS:")) {
+                rssBytes = Long.parseLong(line.substring(6).trim().split("\\s+")[0]) * 1024;
+                break;
+            }
+        }
+
+        long gcCount = -1;
+        long gcMillis = -1;
+        List<GarbageCollectorMXBean> gcBeans = collectors;
+        if (gcBeans != null) {
+            try {
+                gcCount = 0;
+                gcMillis = 0;
+                for (GarbageCollectorMXBean collector : gcBeans) {
+                    gcCount += collector.getCollectionCount();
+                    gcMillis += collector.getCollectionTime();
+                }
+            } catch (RuntimeException e) {
+                // Connection lost, the target is probably exiting
+                gcCount = -1;
+                gcMillis = -1;
+            }
+        }
+        return new ResourceSample(timestamp, cpuTicks * NANOS_PER_TICK, rssBytes, threads, gcCount, gcMillis);
+    }
+
+    private void samplePeriodically() {
+        if (!attachTried) {
+            attachTried = true;
+            attachJmx();
+        }
+        try {
+            ResourceSample sample = sample();
+            if (first == null) {
+                first = sample;
+            }
+            latest = sample;
+            if (listener != null) {
+                listener.accept(sample);
+            }
+        } catch (IOException | RuntimeException e) {
+            // The process has exited or /proc is not available, keep the last sample
+        }
+    }
+
+    private void attachJmx() {
+        try {
+            VirtualMachine vm = VirtualMachine.attach(Long.toString(pid));
+            String address;
+            try {
+                address = vm.startLocalManagementAgent();
+            } finally {
+                vm.detach();
+            }
+            connector = JMXConnectorFactory.connect(new JMXServiceURL(address));
+            MBeanServerConnection connection = connector.getMBeanServerConnection();
+            collectors = ManagementFactory.getPlatformMXBeans(connection, GarbageCollectorMXBean.class);
+        } catch (Exception e) {
+            // Not a JVM, attach disabled or another user: sample without GC activity
+            collectors = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        collectors = null;
+        if (connector != null) {
+            try {
+                connector.close();
+            } catch (IOException e) {
+                // The target is gone already
+            }
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares the latency percentiles of a run against a baseline run, row by row.
+ * <p>
+ * A percentile only counts as changed when the difference is significant: the 95% confidence intervals of
+ * the two percentiles (see {@link LatencyHistogram#percentileInterval}) must not overlap. Non-overlapping
+ * intervals is a conservative test, so noise in one run rarely trips it. A significant change must also
+ * exceed the threshold, in percent of the baseline, to be reported as a regression or improvement.
+ * Rows found in only one of the runs are listed but never fail the comparison.
+ */
+public class RegressionReport {
+
+    public static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private static final double Z_95 = 1.96;
+
+    public enum Verdict { REGRESSED, IMPROVED, UNCHANGED }
+
+    public static class Comparison {
+        private final String key;
+        private final double percentile;
+        private final long[] baseline;
+        private final long[] current;
+        private final Verdict verdict;
+
+        // baseline and current are {value, lower, upper} in nanoseconds
+        Comparison(String key, double percentile, long[] baseline, long[] current, Verdict verdict) {
+            this.key = key;
+            this.percentile = percentile;
+            this.baseline = baseline;
+            this.current = current;
+            this.verdict = verdict;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public double percentile() {
+            return percentile;
+        }
+
+        public long baseline() {
+            return baseline[0];
+        }
+
+        public long current() {
+            return current[0];
+        }
+
+        // Relative change of the percentile in percent of the baseline
+        public double changePercent() {
+            return baseline[0] == 0 ? 0 : (current[0] - baseline[0]) * 100.0 / baseline[0];
+        }
+
+        public Verdict verdict() {
+            return verdict;
+        }
+    }
+
+    private final double thresholdPercent;
+    private final List<Comparison> comparisons = new ArrayList<>();
+    private final List<String> missing = new ArrayList<>();
+    private final List<String> added = new ArrayList<>();
+
+    private RegressionReport(double thresholdPercent) {
+        this.thresholdPercent = thresholdPercent;
+    }
+
+    public static RegressionReport compare(LatencyResults baseline, LatencyResults current, double thresholdPercent) {
+        RegressionReport report = new RegressionReport(thresholdPercent);
+        for (String key : baseline.keys()) {
+            LatencyHistogram before = baseline.get(key);
+            LatencyHistogram after = current.get(key);
+            if (after == null || after.count() == 0 || before.count() == 0) {
+                report.missing.add(key);
+                continue;
+            }
+            for (double percentile : PERCENTILES) {
+                long[] b = estimate(before, percentile);
+                long[] c = estimate(after, percentile);
+                report.comparisons.add(new Comparison(key, percentile, b, c, verdict(b, c, thresholdPercent)));
+            }
+        }
+        for (String key : current.keys()) {
+            if (baseline.get(key) == null) {
+                report.added.add(key);
+            }
+        }
+        return report;
+    }
+
+    private static long[] estimate(LatencyHistogram histogram, double percentile) {
+        long[] interval = histogram.percentileInterval(percentile, Z_95);
+        return new long[] {histogram.percentile(percentile), interval[0], interval[1]};
+    }
+
+    static Verdict verdict(long[] baseline, long[] current, double thresholdPercent) {
+        double change = baseline[0] == 0 ? 0 : (current[0] - baseline[0]) * 100.0 / baseline[0];
+        if (current[1] > baseline[2] && change > thresholdPercent) {
+            return Verdict.REGRESSED;
+        }
+        if (current[2] < baseline[1] && change < -thresholdPercent) {
+            return Verdict.IMPROVED;
+        }
+        return Verdict.UNCHANGED;
+    }
+
+    public List<Comparison> comparisons() {
+        return comparisons;
+    }
+
+    public List<Comparison> regressions() {
+        List<Comparison> regressions = new ArrayList<>();
+        for (Comparison comparison : comparisons) {
+            if (comparison.verdict() == Verdict.REGRESSED) {
+                regressions.add(comparison);
+            }
+        }
+        return regressions;
+    }
+
+    public boolean hasRegressions() {
+        return !regressions().isEmpty();
+    }
+
+    // Rows of the baseline that the current run did not produce
+    public List<String> missing() {
+        return missing;
+    }
+
+    // Rows of the current run that the baseline does not have
+    public List<String> added() {
+        return added;
+    }
+
+    // One line per row and percentile, latencies in milliseconds with their 95% intervals
+    public String format() {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT,
+                "Latency change against baseline, threshold %.1f%%, 95%% confidence%n", thresholdPercent));
+        text.append(String.format(Locale.ROOT, "%-32s %6s %28s %28s %9s  %s%n",
+                "row", "pct", "baseline ms [95% CI]", "current ms [95% CI]", "change", "verdict"));
+        int regressed = 0;
+        int improved = 0;
+        for (Comparison c : comparisons) {
+            text.append(String.format(Locale.ROOT, "%-32s %6s %28s %28s %+8.1f%%  %s%n",
+                    c.key(), "p" + formatPercentile(c.percentile()), interval(c.baseline), interval(c.current),
+                    c.changePercent(), c.verdict() == Verdict.UNCHANGED ? "" : c.verdict()));
+            if (c.verdict() == Verdict.REGRESSED) {
+                regressed++;
+            } else if (c.verdict() == Verdict.IMPROVED) {
+                improved++;
+            }
+        }
+        for (String key : missing) {
+            text.append(String.format(Locale.ROOT, "%-32s not in this run%n", key));
+        }
+        for (String key : added) {
+            text.append(String.format(Locale.ROOT, "%-32s not in the baseline%n", key));
+        }
+        text.append(String.format(Locale.ROOT, "%d regressed, %d improved, %d unchanged%n",
+                regressed, improved, comparisons.size() - regressed - improved));
+        return text.toString();
+    }
+
+    private static String interval(long[] estimate) {
+        return String.format(Locale.ROOT, "%.3f [%.3f, %.3f]", estimate[0] / 1e6, estimate[1] / 1e6, estimate[2] / 1e6);
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile);
+    }
+}
@@ -0,0 +1,62 @@
+package metrics;
+
+/**
+ * Resource usage of a process at one instant, as read by ProcessSampler.
+ * Counters (CPU time, GC count and time) are cumulative since the process started; -1 means not available.
+ */
+public class ResourceSample {
+
+    private final long timestamp;
+    private final long cpuNanos;
+    private final long rssBytes;
+    private final int threads;
+    private final long gcCount;
+    private final long gcMillis;
+
+    public ResourceSample(long timestamp, long cpuNanos, long rssBytes, int threads, long gcCount, long gcMillis) {
+        this.timestamp = timestamp;
+        this.cpuNanos = cpuNanos;
+        this.rssBytes = rssBytes;
+        this.threads = threads;
+        this.gcCount = gcCount;
+        this.gcMillis = gcMillis;
+    }
+
+    // System.nanoTime() when the sample was taken
+    public long timestamp() {
+        return timestamp;
+    }
+
+    // User plus system CPU time
+    public long cpuNanos() {
+        return cpuNanos;
+    }
+
+    // Resident set size
+    public long rssBytes() {
+        return rssBytes;
+    }
+
+    public int threads() {
+        return threads;
+    }
+
+    public long gcCount() {
+        return gcCount;
+    }
+
+    public long gcMillis() {
+        return gcMillis;
+    }
+
+    // CPU used between two samples of the same process, in percent of one core
+    public static double cpuPercent(ResourceSample from, ResourceSample to) {
+        long wall = to.timestamp - from.timestamp;
+        return wall <= 0 ? 0 : 100.0 * (to.cpuNanos - from.cpuNanos) / wall;
+    }
+
+    // Same columns as ProcessSampler.HEADER
+    public String toCsv() {
+        return timestamp + "," + cpuNanos + "," + rssBytes + "," + threads + "," + gcCount + "," + gcMillis;
+    }
+}
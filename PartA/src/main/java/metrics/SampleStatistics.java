@@ -0,0 +1,77 @@
+package metrics;
+
+/**
+ * Mean, standard deviation and confidence interval of repeated measurements, e.g. the durations of
+ * N iterations of one batch size.
+ * <p>
+ * Uses Welford's online algorithm. The 95% confidence interval of the mean uses Student's t
+ * distribution, which matters for the small iteration counts of a test sweep.
+ */
+public class SampleStatistics {
+
+    // Two-sided 95% critical values of Student's t for 1 to 30 degrees of freedom
+    private static final double[] T_95 = {
+            12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+            2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+            2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042};
+    private static final double Z_95 = 1.960;
+
+    private long count;
+    private double mean;
+    private double sumOfSquares;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public static SampleStatistics of(double... values) {
+        SampleStatistics statistics = new SampleStatistics();
+        for (double value : values) {
+            statistics.add(value);
+        }
+        return statistics;
+    }
+
+    public void add(double value) {
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        sumOfSquares += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public double mean() {
+        return mean;
+    }
+
+    public double min() {
+        return count == 0 ? 0 : min;
+    }
+
+    public double max() {
+        return count == 0 ? 0 : max;
+    }
+
+    // Sample standard deviation, 0 for fewer than two values
+    public double stdev() {
+        return count < 2 ? 0 : Math.sqrt(sumOfSquares / (count - 1));
+    }
+
+    // Half-width of the 95% confidence interval of the mean, 0 for fewer than two values
+    public double confidenceInterval95() {
+        if (count < 2) {
+            return 0;
+        }
+        long degreesOfFreedom = count - 1;
+        double t = degreesOfFreedom <= T_95.length ? T_95[(int) degreesOfFreedom - 1] : Z_95;
+        return t * stdev() / Math.sqrt(count);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.2f ± %.2f (n=%d, sd=%.2f)", mean, confidenceInterval95(), count, stdev());
+    }
+}
@@ -0,0 +1,374 @@
+package metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Fits how the cost of each operation grows with the number of objects, from a metrics CSV with
+ * operation, numObjects and duration columns (the suites' todo_metrics.csv).
+ * <p>
+ * The batch duration T(n) of every operation measured at {@link #MIN_SIZES} or more sizes is fitted by least
+ * squares to a + b·n^0 (constant), a + b·n (linear), a + b·n·ln n and a + b·n + c·n² (quadratic); the model
+ * with the lowest corrected Akaike information criterion wins, so a model with more terms has to earn its keep.
+ * A batch of n requests that costs n log n or n² means every request gets slower as the collection
+ * grows, e.g. a list that returns every todo or a linear id lookup on the server. Such an operation is flagged
+ * when the superlinear model beats the linear one by more than {@link #GROWTH_MARGIN} and its fitted cost per
+ * request is higher at the largest size than at the smallest.
+ */
+public class ScalingAnalysis {
+
+    // Sizes needed to fit every model with a degree of freedom left for the corrected AIC
+    public static final int MIN_SIZES = 6;
+    // AICc difference below which two models fit about equally well
+    public static final double GROWTH_MARGIN = 2;
+
+    public enum Model {
+        CONSTANT("O(1)", 1),
+        LINEAR("O(n)", 2),
+        N_LOG_N("O(n log n)", 2),
+        QUADRATIC("O(n^2)", 3);
+
+        private final String label;
+        private final int terms;
+
+        Model(String label, int terms) {
+            this.label = label;
+            this.terms = terms;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        // Basis functions of the model evaluated at n
+        double[] basis(double n) {
+            switch (this) {
+                case CONSTANT:
+                    return new double[] {1};
+                case LINEAR:
+                    return new double[] {1, n};
+                case N_LOG_N:
+                    return new double[] {1, n * Math.log(n)};
+                default:
+                    return new double[] {1, n, n * n};
+            }
+        }
+    }
+
+    public static class Fit {
+        private final Model model;
+        private final double[] coefficients;
+        private final double rss;
+        private final double r2;
+        private final double aicc;
+
+        Fit(Model model, double[] coefficients, double rss, double r2, double aicc) {
+            this.model = model;
+            this.coefficients = coefficients;
+            this.rss = rss;
+            this.r2 = r2;
+            this.aicc = aicc;
+        }
+
+        public Model model() {
+            return model;
+        }
+
+        // Coefficients of the model's basis functions, intercept first
+        public double[] coefficients() {
+            return coefficients.clone();
+        }
+
+        public double predict(double n) {
+            double[] basis = model.basis(n);
+            double value = 0;
+            for (int i = 0; i < basis.length; i++) {
+                value += coefficients[i] * basis[i];
+            }
+            return value;
+        }
+
+        public double residualSumOfSquares() {
+            return rss;
+        }
+
+        public double r2() {
+            return r2;
+        }
+
+        public double aicc() {
+            return aicc;
+        }
+    }
+
+    public static class Curve {
+        private final String operation;
+        private final double[] sizes;
+        private final double[] durations;
+        private final Map<Model, Fit> fits;
+        private final Fit best;
+
+        Curve(String operation, double[] sizes, double[] durations, Map<Model, Fit> fits) {
+            this.operation = operation;
+            this.sizes = sizes;
+            this.durations = durations;
+            this.fits = fits;
+            Fit lowest = fits.get(Model.CONSTANT);
+            for (Fit fit : fits.values()) {
+                if (fit.aicc() < lowest.aicc()) {
+                    lowest = fit;
+                }
+            }
+            this.best = lowest;
+        }
+
+        public String operation() {
+            return operation;
+        }
+
+        public double[] sizes() {
+            return sizes.clone();
+        }
+
+        // Mean batch duration in milliseconds at each size
+        public double[] durations() {
+            return durations.clone();
+        }
+
+        public Map<Model, Fit> fits() {
+            return fits;
+        }
+
+        public Fit best() {
+            return best;
+        }
+
+        // Milliseconds per request at the given size, by the best model
+        public double perRequestMillis(double n) {
+            return best.predict(n) / n;
+        }
+
+        // True when the best model is superlinear, clearly better than linear and has each request get slower
+        // from the smallest size to the largest
+        public boolean growsWithSize() {
+            if (best.model() != Model.N_LOG_N && best.model() != Model.QUADRATIC) {
+                return false;
+            }
+            double first = sizes[0];
+            double last = sizes[sizes.length - 1];
+            return fits.get(Model.LINEAR).aicc() - best.aicc() > GROWTH_MARGIN
+                    && best.predict(last) / last > best.predict(first) / first;
+        }
+    }
+
+    private final List<Curve> curves;
+
+    private ScalingAnalysis(List<Curve> curves) {
+        this.curves = curves;
+    }
+
+    public static ScalingAnalysis read(Path csv) throws IOException {
+        try (Reader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    // Rows of one operation and size are averaged; operations with fewer than MIN_SIZES sizes are skipped
+    public static ScalingAnalysis read(Reader input) throws IOException {
+        BufferedReader lines = new BufferedReader(input);
+        String header = lines.readLine();
+        List<String> columns = header == null ? List.of() : Arrays.asList(header.split(","));
+        int operationColumn = columns.indexOf("operation");
+        int sizeColumn = columns.indexOf("numObjects");
+        int durationColumn = columns.indexOf("duration");
+        if (operationColumn < 0 || sizeColumn < 0 || durationColumn < 0) {
+            throw new IOException("Expected operation, numObjects and duration columns, got " + header);
+        }
+        Map<String, TreeMap<Integer, double[]>> samples = new LinkedHashMap<>();
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            try {
+                int size = Integer.parseInt(fields[sizeColumn]);
+                double duration = Double.parseDouble(fields[durationColumn]);
+                if (size < 1 || duration < 0) {
+                    continue;
+                }
+                // {sum, count} of the durations at this size
+                double[] sum = samples.computeIfAbsent(fields[operationColumn], key -> new TreeMap<>())
+                        .computeIfAbsent(size, key -> new double[2]);
+                sum[0] += duration;
+                sum[1]++;
+            } catch (RuntimeException e) {
+                throw new IOException("Malformed metrics row: " + line, e);
+            }
+        }
+        List<Curve> curves = new ArrayList<>();
+        for (Map.Entry<String, TreeMap<Integer, double[]>> operation : samples.entrySet()) {
+            if (operation.getValue().size() < MIN_SIZES) {
+                continue;
+            }
+            double[] sizes = new double[operation.getValue().size()];
+            double[] durations = new double[sizes.length];
+            int i = 0;
+            for (Map.Entry<Integer, double[]> point : operation.getValue().entrySet()) {
+                sizes[i] = point.getKey();
+                durations[i] = point.getValue()[0] / point.getValue()[1];
+                i++;
+            }
+            curves.add(fit(operation.getKey(), sizes, durations));
+        }
+        return new ScalingAnalysis(curves);
+    }
+
+    // Fits every model; needs at least MIN_SIZES distinct sizes
+    public static Curve fit(String operation, double[] sizes, double[] durations) {
+        int points = sizes.length;
+        if (points < MIN_SIZES || durations.length != points) {
+            throw new IllegalArgumentException("Fitting " + operation + " needs " + MIN_SIZES
+                    + " or more sizes with a duration each, got " + points);
+        }
+        double mean = Arrays.stream(durations).average().orElse(0);
+        double tss = 0;
+        for (double duration : durations) {
+            tss += (duration - mean) * (duration - mean);
+        }
+        Map<Model, Fit> fits = new EnumMap<>(Model.class);
+        for (Model model : Model.values()) {
+            int k = model.terms + 1; // plus the residual variance
+            double[][] x = new double[points][];
+            for (int i = 0; i < points; i++) {
+                x[i] = model.basis(sizes[i]);
+            }
+            double[] coefficients = leastSquares(x, durations);
+            double rss = 0;
+            for (int i = 0; i < points; i++) {
+                double residual = durations[i] - dot(x[i], coefficients);
+                rss += residual * residual;
+            }
+            // A perfect fit would make ln(rss) infinite, a tiny floor keeps the comparison finite
+            double aicc = points * Math.log(Math.max(rss, 1e-12) / points) + 2.0 * k + 2.0 * k * (k + 1) / (points - k - 1);
+            double r2 = tss == 0 ? 1 : 1 - rss / tss;
+            fits.put(model, new Fit(model, coefficients, rss, r2, aicc));
+        }
+        return new Curve(operation, sizes.clone(), durations.clone(), fits);
+    }
+
+    // Solves the normal equations XᵀX·b = Xᵀy by Gaussian elimination with partial pivoting; sizes are scaled first
+    // so n² does not swamp the intercept
+    static double[] leastSquares(double[][] x, double[] y) {
+        int terms = x[0].length;
+        double[] scale = new double[terms];
+        for (double[] row : x) {
+            for (int j = 0; j < terms; j++) {
+                scale[j] = Math.max(scale[j], Math.abs(row[j]));
+            }
+        }
+        for (int j = 0; j < terms; j++) {
+            if (scale[j] == 0) {
+                scale[j] = 1;
+            }
+        }
+        double[][] a = new double[terms][terms + 1];
+        for (int r = 0; r < x.length; r++) {
+            for (int i = 0; i < terms; i++) {
+                double xi = x[r][i] / scale[i];
+                for (int j = 0; j < terms; j++) {
+                    a[i][j] += xi * x[r][j] / scale[j];
+                }
+                a[i][terms] += xi * y[r];
+            }
+        }
+        for (int column = 0; column < terms; column++) {
+            int pivot = column;
+            for (int row = column + 1; row < terms; row++) {
+                if (Math.abs(a[row][column]) > Math.abs(a[pivot][column])) {
+                    pivot = row;
+                }
+            }
+            double[] swap = a[column];
+            a[column] = a[pivot];
+            a[pivot] = swap;
+            if (Math.abs(a[column][column]) < 1e-12) {
+                continue; // Degenerate, e.g. a single size; leave this coefficient at zero
+            }
+            for (int row = 0; row < terms; row++) {
+                if (row != column) {
+                    double factor = a[row][column] / a[column][column];
+                    for (int j = column; j <= terms; j++) {
+                        a[row][j] -= factor * a[column][j];
+                    }
+                }
+            }
+        }
+        double[] coefficients = new double[terms];
+        for (int i = 0; i < terms; i++) {
+            coefficients[i] = Math.abs(a[i][i]) < 1e-12 ? 0 : a[i][terms] / a[i][i] / scale[i];
+        }
+        return coefficients;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    public List<Curve> curves() {
+        return curves;
+    }
+
+    // One line per operation with its best model and the measured per-request cost at the smallest and largest size
+    public String format() {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT, "%-24s %6s %9s %12s %6s %14s %14s  %s%n",
+                "operation", "sizes", "max n", "best fit", "r2", "ms/req @min n", "ms/req @max n", ""));
+        for (Curve curve : curves) {
+            double[] sizes = curve.sizes();
+            double first = sizes[0];
+            double last = sizes[sizes.length - 1];
+            text.append(String.format(Locale.ROOT, "%-24s %6d %9d %12s %6.3f %14.3f %14.3f  %s%n",
+                    curve.operation(), sizes.length, (long) last, curve.best().model().label(), curve.best().r2(),
+                    curve.durations[0] / first, curve.durations[sizes.length - 1] / last,
+                    curve.growsWithSize() ? "GROWS WITH SIZE" : ""));
+        }
+        return text.toString();
+    }
+
+    // Long-format CSV for plotting: the measured duration and every fitted model at each size, per operation
+    public void writeCsv(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("operation,numObjects,duration,perRequest,constant,linear,nlogn,quadratic,best,growsWithSize\n");
+            for (Curve curve : curves) {
+                for (int i = 0; i < curve.sizes.length; i++) {
+                    double n = curve.sizes[i];
+                    StringBuilder row = new StringBuilder(String.format(Locale.ROOT, "%s,%d,%.3f,%.4f",
+                            curve.operation(), (long) n, curve.durations[i], curve.durations[i] / n));
+                    for (Model model : Model.values()) {
+                        Fit fit = curve.fits().get(model);
+                        row.append(',').append(fit == null ? "" : String.format(Locale.ROOT, "%.3f", fit.predict(n)));
+                    }
+                    row.append(',').append(curve.best().model().label()).append(',').append(curve.growsWithSize());
+                    writer.write(row.append('\n').toString());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Records a load run as a time series: one record per interval instead of one row per batch.
+ * <p>
+ * Requests are recorded into the histogram of the current interval; a background thread closes the
+ * interval every tick and appends its request count, error count and latency percentiles, followed by
+ * the latest resource sample of the server if one is being sampled. phase() closes the partial interval,
+ * appends a fresh resource record and then the marker, so no interval straddles two phases and every
+ * phase has a resource record at both ends. A request recorded while an interval is
+ * being closed may be counted in the next one, or missed if it lands in the closed interval after it was read.
+ * <p>
+ * The file is line-oriented and only ever appended to, so a run that dies still leaves a readable
+ * prefix. After a "# todo-timeseries v1 interval=&lt;ms&gt;" header, each line is one record, times in
+ * milliseconds since the recorder started and latencies in microseconds:
+ * <pre>
+ * P,time,phase,label                               phase marker
+ * I,time,requests,errors,p50,p90,p99,max           interval
+ * R,time,cpuTime(ms),rss(KB),threads,gcCount,gcTime(ms)  server resources, cumulative counters
+ * </pre>
+ * TimeSeriesReport replays a file into per-phase summaries.
+ */
+public class TimeSeriesRecorder implements AutoCloseable {
+
+    public enum Phase { WARMUP, MEASURE, COOLDOWN, RESET }
+
+    static final String MAGIC = "# todo-timeseries v1";
+
+    private final MetricsSink sink;
+    private final long interval;
+    private final long startTime = System.nanoTime();
+    private final ScheduledExecutorService ticker;
+    private final Supplier<ProcessSampler> serverSampler;
+
+    // Recorders write to current; the ticker swaps in a fresh histogram and reads the old one, which is never
+    // reused: a recorder that fetched it just before the swap may still be writing to it
+    private final AtomicReference<LatencyHistogram> current = new AtomicReference<>(new LatencyHistogram());
+    private final AtomicReference<LongAdder> errors = new AtomicReference<>(new LongAdder());
+    private ResourceSample lastResources;
+
+    // serverSampler may be null, or supply null while no server is sampled
+    public TimeSeriesRecorder(Path file, Duration interval, Supplier<ProcessSampler> serverSampler) throws IOException {
+        this.interval = interval.toNanos();
+        this.serverSampler = serverSampler;
+        this.sink = new MetricsSink(file, MAGIC + " interval=" + interval.toMillis(), 1 << 12, MetricsSink.OverflowPolicy.WAIT);
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "timeseries-" + file.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::closeInterval, this.interval, this.interval, TimeUnit.NANOSECONDS);
+    }
+
+    // Records one request; failures are counted but kept out of the latencies
+    public void record(long latencyNanos, boolean success) {
+        if (success) {
+            current.get().record(latencyNanos);
+        } else {
+            errors.get().increment();
+        }
+    }
+
+    // Closes the running interval and marks the start of a phase, with a fresh resource record at the boundary
+    public synchronized void phase(Phase phase, String label) {
+        closeInterval();
+        ProcessSampler sampler = serverSampler != null ? serverSampler.get() : null;
+        if (sampler != null) {
+            try {
+                writeResources(elapsedMillis(), sampler.sample());
+            } catch (IOException | RuntimeException e) {
+                // The server is not running, no boundary record
+            }
+        }
+        sink.offerLine("P," + elapsedMillis() + "," + phase.name().toLowerCase(Locale.ROOT) + "," + label.replace(',', ';'));
+    }
+
+    private synchronized void closeInterval() {
+        LatencyHistogram latencies = current.getAndSet(new LatencyHistogram());
+        long failed = errors.getAndSet(new LongAdder()).sum();
+        long time = elapsedMillis();
+        if (latencies.count() > 0 || failed > 0) {
+            sink.offerLine(String.format(Locale.ROOT, "I,%d,%d,%d,%d,%d,%d,%d", time, latencies.count() + failed, failed,
+                    micros(latencies.percentile(50)), micros(latencies.percentile(90)),
+                    micros(latencies.percentile(99)), micros(latencies.max())));
+        }
+
+        ProcessSampler sampler = serverSampler != null ? serverSampler.get() : null;
+        ResourceSample resources = sampler != null ? sampler.latest() : null;
+        if (resources != null && resources != lastResources) {
+            lastResources = resources;
+            writeResources(time, resources);
+        }
+    }
+
+    private void writeResources(long time, ResourceSample resources) {
+        sink.offerLine("R," + time + "," + resources.cpuNanos() / 1_000_000 + "," + resources.rssBytes() / 1024
+                + "," + resources.threads() + "," + resources.gcCount() + "," + resources.gcMillis());
+    }
+
+    private long elapsedMillis() {
+        return (System.nanoTime() - startTime) / 1_000_000;
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1_000;
+    }
+
+    @Override
+    public void close() throws IOException {
+        ticker.shutdownNow();
+        try {
+            ticker.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closeInterval();
+        sink.close();
+    }
+}
@@ -0,0 +1,218 @@
+package metrics;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replays a TimeSeriesRecorder file into one summary per phase.
+ * <p>
+ * Percentiles of separate intervals cannot be merged exactly, so a segment reports the median of its
+ * interval p50s and the worst interval p99 and max. Server CPU is the CPU time used between the first
+ * and last resource record of the segment, in percent of one core.
+ */
+public class TimeSeriesReport {
+
+    /**
+     * Everything recorded between one phase marker and the next.
+     */
+    public static class Segment {
+
+        private final String phase;
+        private final String label;
+        private final long startMillis;
+        private long endMillis;
+        private long requests;
+        private long errors;
+        private final List<Long> p50s = new ArrayList<>();
+        private long worstP99;
+        private long max;
+        private final List<long[]> resources = new ArrayList<>();
+
+        Segment(String phase, String label, long startMillis) {
+            this.phase = phase;
+            this.label = label;
+            this.startMillis = startMillis;
+            this.endMillis = startMillis;
+        }
+
+        public String phase() {
+            return phase;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public long durationMillis() {
+            return endMillis - startMillis;
+        }
+
+        public long requests() {
+            return requests;
+        }
+
+        public long errors() {
+            return errors;
+        }
+
+        public double throughput() {
+            return durationMillis() == 0 ? 0 : requests * 1000.0 / durationMillis();
+        }
+
+        // Median of the interval p50s, in microseconds
+        public long medianP50() {
+            if (p50s.isEmpty()) {
+                return 0;
+            }
+            List<Long> sorted = new ArrayList<>(p50s);
+            Collections.sort(sorted);
+            return sorted.get(sorted.size() / 2);
+        }
+
+        // Highest interval p99, in microseconds
+        public long worstP99() {
+            return worstP99;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        public int intervals() {
+            return p50s.size();
+        }
+
+        // Server CPU in percent of one core, -1 without two resource records
+        public double serverCpu() {
+            if (resources.size() < 2) {
+                return -1;
+            }
+            long wall = resources.get(resources.size() - 1)[0] - resources.get(0)[0];
+            return wall == 0 ? 0 : 100.0 * sumOfIncreases(1) / wall;
+        }
+
+        // Highest server RSS in KB, -1 without resource records
+        public long serverMaxRss() {
+            return resources.stream().mapToLong(record -> record[2]).max().orElse(-1);
+        }
+
+        // Collections during the segment, -1 when unknown
+        public long serverGcCount() {
+            if (resources.size() < 2 || resources.stream().anyMatch(record -> record[4] < 0)) {
+                return -1;
+            }
+            return sumOfIncreases(4);
+        }
+
+        // Growth of a cumulative counter; a drop means the server was restarted and its counters started over
+        private long sumOfIncreases(int field) {
+            long total = 0;
+            for (int i = 1; i < resources.size(); i++) {
+                long delta = resources.get(i)[field] - resources.get(i - 1)[field];
+                total += delta > 0 ? delta : 0;
+            }
+            return total;
+        }
+    }
+
+    private final long intervalMillis;
+    private final List<Segment> segments;
+
+    private TimeSeriesReport(long intervalMillis, List<Segment> segments) {
+        this.intervalMillis = intervalMillis;
+        this.segments = segments;
+    }
+
+    public static TimeSeriesReport read(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    public static TimeSeriesReport read(Reader input) throws IOException {
+        BufferedReader reader = new BufferedReader(input);
+        String header = reader.readLine();
+        if (header == null || !header.startsWith(TimeSeriesRecorder.MAGIC)) {
+            throw new IOException("Not a time series file, header is " + header);
+        }
+        long intervalMillis = Long.parseLong(header.substring(header.indexOf("interval=") + 9).trim());
+
+        List<Segment> segments = new ArrayList<>();
+        Segment segment = new Segment("none", "", 0);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split(",", -1);
+            long time = Long.parseLong(fields[1]);
+            switch (fields[0]) {
+                case "P":
+                    segment.endMillis = Math.max(segment.endMillis, time);
+                    addSegment(segments, segment);
+                    List<long[]> previousResources = segment.resources;
+                    segment = new Segment(fields[2], fields[3], time);
+                    // The resource record written just before a marker is also where the new phase starts from
+                    if (!previousResources.isEmpty()) {
+                        segment.resources.add(previousResources.get(previousResources.size() - 1));
+                    }
+                    break;
+                case "I":
+                    segment.requests += Long.parseLong(fields[2]);
+                    segment.errors += Long.parseLong(fields[3]);
+                    segment.p50s.add(Long.parseLong(fields[4]));
+                    segment.worstP99 = Math.max(segment.worstP99, Long.parseLong(fields[6]));
+                    segment.max = Math.max(segment.max, Long.parseLong(fields[7]));
+                    segment.endMillis = Math.max(segment.endMillis, time);
+                    break;
+                case "R":
+                    segment.resources.add(Arrays.stream(fields, 1, 7).mapToLong(Long::parseLong).toArray());
+                    segment.endMillis = Math.max(segment.endMillis, time);
+                    break;
+                default:
+                    throw new IOException("Unknown time series record: " + line);
+            }
+        }
+        addSegment(segments, segment);
+        return new TimeSeriesReport(intervalMillis, segments);
+    }
+
+    // Records before the first phase marker only make a segment if there are any
+    private static void addSegment(List<Segment> segments, Segment segment) {
+        if (!segment.phase.equals("none") || segment.intervals() > 0 || segment.resources.size() > 1) {
+            segments.add(segment);
+        }
+    }
+
+    public long intervalMillis() {
+        return intervalMillis;
+    }
+
+    public List<Segment> segments() {
+        return segments;
+    }
+
+    // One line per segment, latencies in milliseconds
+    public String format() {
+        StringBuilder text = new StringBuilder(String.format(Locale.ROOT,
+                "%-9s %-40s %9s %9s %7s %10s %9s %9s %9s %8s %9s %5s%n",
+                "phase", "label", "duration", "requests", "errors", "req/s", "p50", "worst p99", "max", "cpu%", "rss MB", "gc"));
+        for (Segment segment : segments) {
+            text.append(String.format(Locale.ROOT, "%-9s %-40s %8dms %9d %7d %10.1f %9.3f %9.3f %9.3f %8.1f %9d %5d%n",
+                    segment.phase(), segment.label(), segment.durationMillis(), segment.requests(), segment.errors(),
+                    segment.throughput(), segment.medianP50() / 1e3, segment.worstP99() / 1e3, segment.max() / 1e3,
+                    segment.serverCpu(), segment.serverMaxRss() < 0 ? -1 : segment.serverMaxRss() / 1024,
+                    segment.serverGcCount()));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,112 @@
+package server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * One HTTP response of the stand-in server, encoded in a single buffer with a Content-Length.
+ */
+public final class Response {
+
+    // Sentinel for /shutdown: the connection is closed without an answer and the server stops
+    public static final Response SHUTDOWN = new Response(0, null, new byte[0], null, null);
+
+    private static final String HTML = "text/html;charset=utf-8";
+
+    private final int status;
+    private final String contentType;
+    private final byte[] body;
+    private final String location;
+    private final String allow;
+
+    private Response(int status, String contentType, byte[] body, String location, String allow) {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+        this.location = location;
+        this.allow = allow;
+    }
+
+    public static Response of(int status, String contentType, String body) {
+        return new Response(status, contentType, body.getBytes(StandardCharsets.UTF_8), null, null);
+    }
+
+    public static Response created(String contentType, String body, String location) {
+        return new Response(201, contentType, body.getBytes(StandardCharsets.UTF_8), location, null);
+    }
+
+    // Empty HTML response, like the Todo Manager's 404 and 405 answers
+    public static Response empty(int status) {
+        return new Response(status, HTML, new byte[0], null, null);
+    }
+
+    public static Response options(String allow) {
+        return new Response(200, HTML, new byte[0], null, allow);
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public String contentType() {
+        return contentType;
+    }
+
+    public byte[] body() {
+        return body;
+    }
+
+    public String bodyText() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    // Status line, headers and, unless answering a HEAD request, the body
+    public ByteBuffer encode(boolean head, boolean close) {
+        StringBuilder headers = new StringBuilder(160)
+                .append("HTTP/1.1 ").append(status).append(' ').append(reason(status)).append("\r\n")
+                .append("Content-Type: ").append(contentType).append("\r\n")
+                .append("Content-Length: ").append(body.length).append("\r\n");
+        if (location != null) {
+            headers.append("Location: ").append(location).append("\r\n");
+        }
+        if (allow != null) {
+            headers.append("Allow: ").append(allow).append("\r\n");
+        }
+        if (close) {
+            headers.append("Connection: close\r\n");
+        }
+        headers.append("\r\n");
+        byte[] headerBytes = headers.toString().getBytes(StandardCharsets.ISO_8859_1);
+        ByteBuffer buffer = ByteBuffer.allocate(headerBytes.length + (head ? 0 : body.length));
+        buffer.put(headerBytes);
+        if (!head) {
+            buffer.put(body);
+        }
+        return buffer.flip();
+    }
+
+    static String reason(int status) {
+        switch (status) {
+            case 200:
+                return "OK";
+            case 201:
+                return "Created";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 406:
+                return "Not Acceptable";
+            case 413:
+                return "Payload Too Large";
+            case 431:
+                return "Request Header Fields Too Large";
+            case 415:
+                return "Unsupported Media Type";
+            default:
+                return status >= 500 ? "Server Error" : "Status";
+        }
+    }
+}
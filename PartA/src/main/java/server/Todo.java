@@ -0,0 +1,76 @@
+package server;
+
+import java.util.List;
+
+/**
+ * One todo of the stand-in server. Immutable: every change stores a new instance, so readers never
+ * see a half-updated todo. Relationships are kept as the ids the Todo Manager lists for them.
+ */
+public final class Todo {
+
+    private final int id;
+    private final String title;
+    private final boolean doneStatus;
+    private final String description;
+    private final List<Integer> categories;
+    private final List<Integer> tasksof;
+
+    public Todo(int id, String title, boolean doneStatus, String description,
+                List<Integer> categories, List<Integer> tasksof) {
+        this.id = id;
+        this.title = title;
+        this.doneStatus = doneStatus;
+        this.description = description;
+        this.categories = List.copyOf(categories);
+        this.tasksof = List.copyOf(tasksof);
+    }
+
+    public Todo(int id, String title, boolean doneStatus, String description) {
+        this(id, title, doneStatus, description, List.of(), List.of());
+    }
+
+    public int id() {
+        return id;
+    }
+
+    public String title() {
+        return title;
+    }
+
+    public boolean doneStatus() {
+        return doneStatus;
+    }
+
+    public String description() {
+        return description;
+    }
+
+    public List<Integer> categories() {
+        return categories;
+    }
+
+    public List<Integer> tasksof() {
+        return tasksof;
+    }
+
+    // Same todo with the given fields, relationships kept
+    public Todo with(String title, boolean doneStatus, String description) {
+        return new Todo(id, title, doneStatus, description, categories, tasksof);
+    }
+
+    // Value of a field as the API prints it, null for fields a todo does not have
+    public String field(String name) {
+        switch (name) {
+            case "id":
+                return String.valueOf(id);
+            case "title":
+                return title;
+            case "doneStatus":
+                return String.valueOf(doneStatus);
+            case "description":
+                return description;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The /todos API of the Todo Manager, answered from a TodoStore: statuses, error messages and
+ * content negotiation follow what runTodoManagerRestAPI-1.5.5.jar answers to the same requests.
+ * <p>
+ * The response type is the first of application/json, application/xml or a wildcard in the Accept
+ * header (JSON for a wildcard or no header); anything else gets 406. Request bodies may be JSON or
+ * XML by Content-Type. Ids are only taken on successful creates, the jar also uses some up on failed ones.
+ */
+public class TodoApi {
+
+    private static final String TODOS = "/todos";
+    private static final Set<String> FIELDS = Set.of("title", "doneStatus", "description");
+
+    private final TodoStore store;
+
+    public TodoApi(TodoStore store) {
+        this.store = store;
+    }
+
+    public TodoStore store() {
+        return store;
+    }
+
+    public Response handle(Request request) {
+        String path = request.path();
+        String method = request.method();
+        if (path.equals("/shutdown")) {
+            return method.equals("GET") ? Response.SHUTDOWN : Response.empty(404);
+        }
+        boolean collection = path.equals(TODOS);
+        String idText = !collection && path.startsWith(TODOS + "/") ? path.substring(TODOS.length() + 1) : null;
+        if (!collection && (idText == null || idText.isEmpty() || idText.indexOf('/') >= 0)) {
+            return Response.empty(404);
+        }
+
+        Boolean xml = acceptsXml(request.header("accept"));
+        if (xml == null) {
+            return error(406, "Unrecognised Accept Type", false);
+        }
+        try {
+            if (collection) {
+                switch (method) {
+                    case "GET":
+                    case "HEAD":
+                        return ok(TodoFormat.todos(store.list(request.parameters()), xml), xml);
+                    case "POST":
+                        return create(request, xml);
+                    case "OPTIONS":
+                        return Response.options("OPTIONS, GET, HEAD, POST");
+                    default:
+                        return Response.empty(405);
+                }
+            }
+            int id = TodoStore.parseId(idText);
+            switch (method) {
+                case "GET":
+                case "HEAD":
+                    Todo todo = id > 0 ? store.get(id) : null;
+                    return todo != null
+                            ? ok(TodoFormat.todos(List.of(todo), xml), xml)
+                            : error(404, "Could not find an instance with todos/" + idText, xml);
+                case "POST":
+                    return amend(request, id, idText, xml);
+                case "PUT":
+                    return replace(request, id, idText, xml);
+                case "DELETE":
+                    return id > 0 && store.delete(id)
+                            ? Response.of(200, TodoFormat.JSON, "")
+                            : error(404, "Could not find any instances with todos/" + idText, xml);
+                case "OPTIONS":
+                    return Response.options("OPTIONS, GET, HEAD, POST, PUT, DELETE");
+                default:
+                    return Response.empty(405);
+            }
+        } catch (InvalidBody e) {
+            return error(e.status, e.getMessage(), xml);
+        }
+    }
+
+    private Response create(Request request, boolean xml) {
+        JsonObject fields = fields(request);
+        if (fields.has("id")) {
+            throw new InvalidBody(400, "Invalid Creation: Failed Validation: Not allowed to create with id");
+        }
+        validate(fields, true);
+        Todo todo = store.create(text(fields, "title", ""), bool(fields, false), text(fields, "description", ""));
+        return Response.created(type(xml), TodoFormat.todo(todo, xml), "todos/" + todo.id());
+    }
+
+    // POST /todos/{id} changes only the fields in the body
+    private Response amend(Request request, int id, String idText, boolean xml) {
+        String missing = "No such todo entity instance with GUID or ID " + idText + " found";
+        if (id < 1 || store.get(id) == null) {
+            return error(404, missing, xml);
+        }
+        JsonObject fields = fields(request);
+        validate(fields, false);
+        Todo todo = store.update(id, old -> old.with(text(fields, "title", old.title()), bool(fields, old.doneStatus()),
+                text(fields, "description", old.description())));
+        return todo != null ? ok(TodoFormat.todo(todo, xml), xml) : error(404, missing, xml);
+    }
+
+    // PUT /todos/{id} replaces the todo: fields not in the body go back to their defaults, relationships are dropped
+    private Response replace(Request request, int id, String idText, boolean xml) {
+        String missing = "Invalid GUID for " + idText + " entity todo";
+        if (id < 1 || store.get(id) == null) {
+            return error(404, missing, xml);
+        }
+        JsonObject fields = fields(request);
+        validate(fields, true);
+        Todo todo = store.update(id, old -> new Todo(id, text(fields, "title", ""), bool(fields, false),
+                text(fields, "description", "")));
+        return todo != null ? ok(TodoFormat.todo(todo, xml), xml) : error(404, missing, xml);
+    }
+
+    private static JsonObject fields(Request request) {
+        String contentType = request.header("content-type");
+        String type = contentType == null ? "" : contentType.split(";")[0].trim().toLowerCase(Locale.ROOT);
+        try {
+            if (type.isEmpty() || type.equals(TodoFormat.JSON)) {
+                return TodoFormat.parseJson(request.bodyText());
+            } else if (type.equals(TodoFormat.XML) || type.equals("text/xml")) {
+                return TodoFormat.parseXml(request.bodyText());
+            }
+        } catch (JsonParseException e) {
+            throw new InvalidBody(400, e.getMessage());
+        }
+        throw new InvalidBody(415, "Unsupported Content Type - " + contentType);
+    }
+
+    private static void validate(JsonObject fields, boolean titleMandatory) {
+        for (Map.Entry<String, JsonElement> field : fields.entrySet()) {
+            String name = field.getKey();
+            if (!FIELDS.contains(name) && !name.equals("id")) {
+                throw new InvalidBody(400, "Could not find field: " + name);
+            }
+        }
+        JsonElement done = fields.get("doneStatus");
+        if (done != null && !(done.isJsonPrimitive() && done.getAsJsonPrimitive().isBoolean())) {
+            throw new InvalidBody(400, "Failed Validation: doneStatus should be BOOLEAN");
+        }
+        for (String name : new String[] {"title", "description"}) {
+            JsonElement value = fields.get(name);
+            if (value != null && !value.isJsonNull() && !value.isJsonPrimitive()) {
+                throw new InvalidBody(400, "Failed Validation: " + name + " should be STRING");
+            }
+        }
+        JsonElement title = fields.get("title");
+        if (title == null || title.isJsonNull()) {
+            if (titleMandatory) {
+                throw new InvalidBody(400, "title : field is mandatory");
+            }
+        } else if (title.getAsString().isEmpty()) {
+            throw new InvalidBody(400, "Failed Validation: title : can not be empty");
+        }
+    }
+
+    private static String text(JsonObject fields, String name, String fallback) {
+        JsonElement value = fields.get(name);
+        return value == null || value.isJsonNull() ? fallback : value.getAsString();
+    }
+
+    private static boolean bool(JsonObject fields, boolean fallback) {
+        JsonElement value = fields.get("doneStatus");
+        return value == null ? fallback : value.getAsBoolean();
+    }
+
+    // True for XML, false for JSON, null when the Accept header names neither
+    static Boolean acceptsXml(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return false;
+        }
+        for (String range : accept.split(",")) {
+            String type = range.split(";")[0].trim().toLowerCase(Locale.ROOT);
+            if (type.equals(TodoFormat.XML)) {
+                return true;
+            }
+            if (type.equals(TodoFormat.JSON) || type.equals("*/*") || type.equals("application/*")) {
+                return false;
+            }
+        }
+        return null;
+    }
+
+    private static String type(boolean xml) {
+        return xml ? TodoFormat.XML : TodoFormat.JSON;
+    }
+
+    private static Response ok(String body, boolean xml) {
+        return Response.of(200, type(xml), body);
+    }
+
+    private static Response error(int status, String message, boolean xml) {
+        return Response.of(status, type(xml), TodoFormat.error(message, xml));
+    }
+
+    // A request body the API rejects, with the status and message to answer
+    private static class InvalidBody extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        InvalidBody(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package server;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.List;
+
+/**
+ * JSON and XML bodies of the stand-in server, written the way the Todo Manager writes them:
+ * JSON values are all strings, XML elements come in the Todo Manager's order and empty ones are
+ * self-closing. Request bodies of either type are read into a JsonObject, so validation is shared.
+ */
+public final class TodoFormat {
+
+    public static final String JSON = "application/json";
+    public static final String XML = "application/xml";
+
+    private static final ThreadLocal<XMLInputFactory> XML_FACTORY = ThreadLocal.withInitial(() -> {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    });
+
+    private TodoFormat() {
+    }
+
+    // {"todos":[...]} or <todos>...</todos>
+    public static String todos(List<Todo> todos, boolean xml) {
+        StringBuilder body = new StringBuilder(64 + todos.size() * 96);
+        if (xml) {
+            body.append("<todos>");
+            for (Todo todo : todos) {
+                appendXml(body, todo);
+            }
+            return body.append("</todos>").toString();
+        }
+        body.append("{\"todos\":[");
+        for (int i = 0; i < todos.size(); i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            appendJson(body, todos.get(i));
+        }
+        return body.append("]}").toString();
+    }
+
+    // A single todo, as returned by create, amend and replace
+    public static String todo(Todo todo, boolean xml) {
+        StringBuilder body = new StringBuilder(128);
+        if (xml) {
+            appendXml(body, todo);
+        } else {
+            appendJson(body, todo);
+        }
+        return body.toString();
+    }
+
+    public static String error(String message, boolean xml) {
+        StringBuilder body = new StringBuilder(message.length() + 48);
+        if (xml) {
+            body.append("<errorMessages><errorMessage>");
+            escapeXml(body, message);
+            return body.append("</errorMessage></errorMessages>").toString();
+        }
+        body.append("{\"errorMessages\":[");
+        quote(body, message);
+        return body.append("]}").toString();
+    }
+
+    private static void appendJson(StringBuilder body, Todo todo) {
+        body.append("{\"id\":\"").append(todo.id()).append("\",\"title\":");
+        quote(body, todo.title());
+        body.append(",\"doneStatus\":\"").append(todo.doneStatus()).append("\",\"description\":");
+        quote(body, todo.description());
+        appendJsonIds(body, "categories", todo.categories());
+        appendJsonIds(body, "tasksof", todo.tasksof());
+        body.append('}');
+    }
+
+    private static void appendJsonIds(StringBuilder body, String name, List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        body.append(",\"").append(name).append("\":[");
+        for (int i = 0; i < ids.size(); i++) {
+            body.append(i > 0 ? ",{\"id\":\"" : "{\"id\":\"").append(ids.get(i)).append("\"}");
+        }
+        body.append(']');
+    }
+
+    private static void appendXml(StringBuilder body, Todo todo) {
+        body.append("<todo><doneStatus>").append(todo.doneStatus()).append("</doneStatus>");
+        appendXmlElement(body, "description", todo.description());
+        appendXmlIds(body, "tasksof", todo.tasksof());
+        body.append("<id>").append(todo.id()).append("</id>");
+        appendXmlIds(body, "categories", todo.categories());
+        appendXmlElement(body, "title", todo.title());
+        body.append("</todo>");
+    }
+
+    private static void appendXmlElement(StringBuilder body, String name, String value) {
+        if (value.isEmpty()) {
+            body.append('<').append(name).append("/>");
+            return;
+        }
+        body.append('<').append(name).append('>');
+        escapeXml(body, value);
+        body.append("</").append(name).append('>');
+    }
+
+    private static void appendXmlIds(StringBuilder body, String name, List<Integer> ids) {
+        for (Integer id : ids) {
+            body.append('<').append(name).append("><id>").append(id).append("</id></").append(name).append('>');
+        }
+    }
+
+    // JSON string literal without HTML escaping, like the Todo Manager
+    static void quote(StringBuilder body, String value) {
+        body.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    body.append("\\\"");
+                    break;
+                case '\\':
+                    body.append("\\\\");
+                    break;
+                case '\n':
+                    body.append("\\n");
+                    break;
+                case '\r':
+                    body.append("\\r");
+                    break;
+                case '\t':
+                    body.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        body.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        body.append(c);
+                    }
+            }
+        }
+        body.append('"');
+    }
+
+    static void escapeXml(StringBuilder body, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    body.append("&amp;");
+                    break;
+                case '<':
+                    body.append("&lt;");
+                    break;
+                case '>':
+                    body.append("&gt;");
+                    break;
+                default:
+                    body.append(c);
+            }
+        }
+    }
+
+    // The fields of a JSON request body; an empty body has none
+    public static JsonObject parseJson(String body) {
+        if (body.isBlank()) {
+            return new JsonObject();
+        }
+        JsonElement fields = JsonParser.parseString(body);
+        if (!fields.isJsonObject()) {
+            throw new JsonParseException("Expected a JSON object but was " + fields);
+        }
+        return fields.getAsJsonObject();
+    }
+
+    // The fields of an XML request body <todo><name>text</name>...</todo>; "true" and "false" become booleans
+    public static JsonObject parseXml(String body) {
+        JsonObject fields = new JsonObject();
+        if (body.isBlank()) {
+            return fields;
+        }
+        try {
+            XMLStreamReader reader = XML_FACTORY.get().createXMLStreamReader(new StringReader(body));
+            try {
+                reader.nextTag();
+                if (!reader.getLocalName().equals("todo")) {
+                    throw new JsonParseException("Expected a <todo> element but was <" + reader.getLocalName() + ">");
+                }
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    String text = reader.getElementText();
+                    fields.add(name, text.equals("true") || text.equals("false")
+                            ? new JsonPrimitive(Boolean.parseBoolean(text)) : new JsonPrimitive(text));
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new JsonParseException("Malformed XML: " + e.getMessage(), e);
+        }
+        return fields;
+    }
+}
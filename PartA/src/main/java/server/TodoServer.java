@@ -0,0 +1,418 @@
+package server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stand-in for runTodoManagerRestAPI-1.5.5.jar: the /todos API of TodoApi behind a small NIO HTTP/1.1 server.
+ * <p>
+ * A fixed number of event loops each own a Selector and their connections; loop 0 also accepts and
+ * hands new connections out round-robin. Requests are parsed incrementally from a per-connection buffer,
+ * handled on the loop thread (every store operation is short and non-blocking) and answered in order,
+ * so keep-alive and pipelined requests work. While a connection has unwritten output it is not read,
+ * which bounds what a fast client can make the server hold. GET /shutdown stops the server, which
+ * ends the JVM when it was started through main().
+ */
+public class TodoServer implements AutoCloseable {
+
+    private static final int MAX_HEADER_BYTES = 64 << 10;
+    private static final int MAX_BODY_BYTES = 16 << 20;
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    private final TodoApi api;
+    private final ServerSocketChannel serverChannel;
+    private final EventLoop[] loops;
+    private final CountDownLatch terminated;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private int nextLoop;
+
+    private TodoServer(TodoApi api, int port, int threads) throws IOException {
+        this.api = api;
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        serverChannel.bind(new InetSocketAddress(port), 1024);
+        serverChannel.configureBlocking(false);
+        this.loops = new EventLoop[Math.max(1, threads)];
+        this.terminated = new CountDownLatch(loops.length);
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new EventLoop(i);
+        }
+        serverChannel.register(loops[0].selector, SelectionKey.OP_ACCEPT);
+        for (EventLoop loop : loops) {
+            loop.thread.start();
+        }
+    }
+
+    // Listens on port with the two todos the Todo Manager starts with, one event loop per processor
+    public static TodoServer start(int port) throws IOException {
+        return start(port, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static TodoServer start(int port, int threads) throws IOException {
+        return new TodoServer(new TodoApi(TodoStore.seeded()), port, threads);
+    }
+
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public TodoStore store() {
+        return api.store();
+    }
+
+    // False as soon as the server is closing, awaitTermination() waits for the event loops to end
+    public boolean isRunning() {
+        return !closed.get();
+    }
+
+    // Waits for the server to stop, e.g. after GET /shutdown; true if it did within the timeout
+    public boolean awaitTermination(Duration timeout) throws InterruptedException {
+        return terminated.await(timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    // Stops accepting, closes every connection and lets the event loops end
+    @Override
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            // Nothing left to release
+        }
+        for (EventLoop loop : loops) {
+            loop.selector.wakeup();
+        }
+    }
+
+    // Same arguments as the Todo Manager jar: -port=N, plus -threads=N for the number of event loops
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = 4567;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("-port=")) {
+                port = Integer.parseInt(arg.substring("-port=".length()));
+            } else if (arg.startsWith("-threads=")) {
+                threads = Integer.parseInt(arg.substring("-threads=".length()));
+            } else {
+                System.err.println("Usage: java -cp PartA.jar server.TodoServer [-port=4567] [-threads=N]");
+                System.exit(2);
+            }
+        }
+        TodoServer server = start(port, threads);
+        System.out.println("Stand-in Todo Manager listening on port " + server.port());
+        server.terminated.await();
+    }
+
+    private final class EventLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> incoming = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "todo-server-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!closed.get()) {
+                    selector.select();
+                    SocketChannel accepted;
+                    while ((accepted = incoming.poll()) != null) {
+                        register(accepted);
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid()) {
+                            handle(key);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                close();
+            } finally {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly(key);
+                }
+                closeQuietly(selector);
+                terminated.countDown();
+            }
+        }
+
+        private void handle(SelectionKey key) {
+            try {
+                if (key.isAcceptable()) {
+                    accept();
+                    return;
+                }
+                Connection connection = (Connection) key.attachment();
+                if (key.isWritable()) {
+                    connection.flush();
+                }
+                if (key.isValid() && key.isReadable()) {
+                    connection.read();
+                }
+            } catch (IOException | RuntimeException e) {
+                closeQuietly(key);
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                EventLoop loop = loops[nextLoop++ % loops.length];
+                if (loop == this) {
+                    register(channel);
+                } else {
+                    loop.incoming.add(channel);
+                    loop.selector.wakeup();
+                }
+            }
+        }
+
+        private void register(SocketChannel channel) throws IOException {
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new Connection(channel, key));
+        }
+    }
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        // Bytes read and not yet parsed, in write mode between reads
+        private ByteBuffer in = ByteBuffer.allocate(8 << 10);
+        private final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        private boolean closeAfterWrite;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        void read() throws IOException {
+            if (!in.hasRemaining()) {
+                if (in.capacity() >= MAX_HEADER_BYTES + MAX_BODY_BYTES) {
+                    respond(Response.empty(413), false, true);
+                    flush();
+                    return;
+                }
+                in = ByteBuffer.allocate(in.capacity() * 2).put(in.flip());
+            }
+            if (channel.read(in) < 0) {
+                closeQuietly(key);
+                return;
+            }
+            in.flip();
+            try {
+                while (!closeAfterWrite && in.hasRemaining() && handleNext()) {
+                    // Every complete request in the buffer, answered in order
+                }
+            } finally {
+                in.compact();
+            }
+            flush();
+        }
+
+        // Parses and answers the request at the buffer's position; false when it has not fully arrived
+        private boolean handleNext() {
+            byte[] bytes = in.array();
+            int start = in.position();
+            int headerEnd = indexOf(bytes, start, in.limit(), HEADER_END);
+            if (headerEnd < 0) {
+                if (in.remaining() > MAX_HEADER_BYTES) {
+                    respond(Response.empty(431), false, true);
+                }
+                return false;
+            }
+            String[] lines = new String(bytes, start, headerEnd - start, StandardCharsets.ISO_8859_1).split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3) {
+                respond(Response.empty(400), false, true);
+                return false;
+            }
+            Map<String, String> headers = new HashMap<>();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon > 0) {
+                    headers.putIfAbsent(lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT),
+                            lines[i].substring(colon + 1).trim());
+                }
+            }
+
+            int bodyStart = headerEnd + HEADER_END.length;
+            byte[] body;
+            int end;
+            String transferEncoding = headers.get("transfer-encoding");
+            if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ROOT).contains("chunked")) {
+                ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+                end = dechunk(bytes, bodyStart, in.limit(), chunks);
+                if (end == -2) {
+                    respond(Response.empty(400), false, true);
+                    return false;
+                }
+                body = chunks.toByteArray();
+            } else {
+                long length;
+                try {
+                    length = Long.parseLong(headers.getOrDefault("content-length", "0"));
+                } catch (NumberFormatException e) {
+                    length = -1;
+                }
+                if (length < 0 || length > MAX_BODY_BYTES) {
+                    respond(Response.empty(length < 0 ? 400 : 413), false, true);
+                    return false;
+                }
+                end = bodyStart + (int) length <= in.limit() ? bodyStart + (int) length : -1;
+                body = end < 0 ? null : Arrays.copyOfRange(bytes, bodyStart, end);
+            }
+            if (end < 0) {
+                return false;
+            }
+            in.position(end);
+
+            String method = requestLine[0];
+            String target = requestLine[1];
+            if (target.startsWith("http://") || target.startsWith("https://")) {
+                int slash = target.indexOf('/', target.indexOf("//") + 2);
+                target = slash < 0 ? "/" : target.substring(slash);
+            }
+            int question = target.indexOf('?');
+            String path = question < 0 ? target : target.substring(0, question);
+            String query = question < 0 ? "" : target.substring(question + 1);
+            String connection = headers.getOrDefault("connection", "").toLowerCase(Locale.ROOT);
+            boolean close = requestLine[2].equals("HTTP/1.0") ? !connection.contains("keep-alive") : connection.contains("close");
+
+            Response response;
+            try {
+                response = api.handle(new Request(method, path, query, headers, body));
+            } catch (RuntimeException e) {
+                response = Response.of(500, TodoFormat.JSON, TodoFormat.error(e.toString(), false));
+            }
+            if (response == Response.SHUTDOWN) {
+                TodoServer.this.close();
+                closeQuietly(key);
+                return false;
+            }
+            respond(response, method.equals("HEAD"), close);
+            return true;
+        }
+
+        private void respond(Response response, boolean head, boolean close) {
+            out.add(response.encode(head, close));
+            closeAfterWrite |= close;
+        }
+
+        // Writes as much pending output as the socket takes, then waits for either more output room or requests
+        void flush() throws IOException {
+            if (!key.isValid()) {
+                return;
+            }
+            if (!out.isEmpty()) {
+                channel.write(out.toArray(new ByteBuffer[0]));
+                while (!out.isEmpty() && !out.peek().hasRemaining()) {
+                    out.poll();
+                }
+            }
+            if (!out.isEmpty()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+            } else if (closeAfterWrite) {
+                closeQuietly(key);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+        }
+    }
+
+    // Decodes a chunked body into chunks; returns the offset after it, -1 if incomplete, -2 if malformed
+    static int dechunk(byte[] bytes, int offset, int limit, ByteArrayOutputStream chunks) {
+        int position = offset;
+        while (true) {
+            int lineEnd = indexOf(bytes, position, limit, HEADER_END, 2);
+            if (lineEnd < 0) {
+                return -1;
+            }
+            String sizeLine = new String(bytes, position, lineEnd - position, StandardCharsets.ISO_8859_1);
+            int semicolon = sizeLine.indexOf(';');
+            int size;
+            try {
+                size = Integer.parseInt((semicolon < 0 ? sizeLine : sizeLine.substring(0, semicolon)).trim(), 16);
+            } catch (NumberFormatException e) {
+                return -2;
+            }
+            position = lineEnd + 2;
+            if (size == 0) {
+                // Trailers, if any, end with an empty line
+                int trailerEnd = limit - position >= 2 && bytes[position] == '\r' && bytes[position + 1] == '\n'
+                        ? position : indexOf(bytes, position, limit, HEADER_END);
+                return trailerEnd < 0 ? -1 : trailerEnd + (trailerEnd == position ? 2 : 4);
+            }
+            if (size < 0 || chunks.size() + size > MAX_BODY_BYTES) {
+                return -2;
+            }
+            if (limit - position < size + 2) {
+                return -1;
+            }
+            chunks.write(bytes, position, size);
+            position += size + 2;
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte[] pattern) {
+        return indexOf(bytes, from, to, pattern, pattern.length);
+    }
+
+    // Offset of the first length bytes of pattern in bytes[from, to), or -1
+    private static int indexOf(byte[] bytes, int from, int to, byte[] pattern, int length) {
+        outer:
+        for (int i = from; i <= to - length; i++) {
+            for (int j = 0; j < length; j++) {
+                if (bytes[i + j] != pattern[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        closeQuietly(key.channel());
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception e) {
+            // Already closed or broken, nothing to release
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package server;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * Concurrent in-memory todos of the stand-in server.
+ * <p>
+ * Todos live in a ConcurrentHashMap by id; every change of one todo runs inside compute() on its key,
+ * so changes of the same todo are serialised while different todos never contend. A secondary index
+ * keeps the ids of done and not-done todos, so ?doneStatus= filters visit only the matching todos.
+ * The index is updated inside the same compute(), adding the new entry before removing the old one;
+ * a lookup through the index re-checks each todo, so a concurrent move never yields a wrong match.
+ */
+public class TodoStore {
+
+    private final Map<Integer, Todo> todos = new ConcurrentHashMap<>();
+    private final Set<Integer> done = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> notDone = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+
+    // The two todos the Todo Manager starts with
+    public static TodoStore seeded() {
+        TodoStore store = new TodoStore();
+        store.put(new Todo(store.nextId.getAndIncrement(), "scan paperwork", false, "", List.of(1), List.of(1)));
+        store.put(new Todo(store.nextId.getAndIncrement(), "file paperwork", false, "", List.of(), List.of(1)));
+        return store;
+    }
+
+    private void put(Todo todo) {
+        todos.compute(todo.id(), (id, old) -> {
+            index(old, todo);
+            return todo;
+        });
+    }
+
+    public Todo create(String title, boolean doneStatus, String description) {
+        Todo todo = new Todo(nextId.getAndIncrement(), title, doneStatus, description);
+        put(todo);
+        return todo;
+    }
+
+    // Null when there is no such todo
+    public Todo get(int id) {
+        return todos.get(id);
+    }
+
+    // Applies change to the todo atomically, returns the new todo or null when there is no such todo
+    public Todo update(int id, UnaryOperator<Todo> change) {
+        return todos.computeIfPresent(id, (key, old) -> {
+            Todo todo = change.apply(old);
+            index(old, todo);
+            return todo;
+        });
+    }
+
+    public boolean delete(int id) {
+        boolean[] deleted = new boolean[1];
+        todos.computeIfPresent(id, (key, old) -> {
+            index(old, null);
+            deleted[0] = true;
+            return null;
+        });
+        return deleted[0];
+    }
+
+    public int size() {
+        return todos.size();
+    }
+
+    // Todos whose fields equal every filter value; filters on names that are not todo fields are ignored
+    public List<Todo> list(Map<String, String> filters) {
+        Collection<Integer> candidates = null;
+        String idFilter = filters.get("id");
+        String doneFilter = filters.get("doneStatus");
+        if (idFilter != null) {
+            int id = parseId(idFilter);
+            Todo todo = id > 0 ? todos.get(id) : null;
+            return todo != null && matches(todo, filters) ? List.of(todo) : List.of();
+        } else if (doneFilter != null) {
+            if (!doneFilter.equals("true") && !doneFilter.equals("false")) {
+                return List.of();
+            }
+            candidates = doneFilter.equals("true") ? done : notDone;
+        }
+        List<Todo> matching = new ArrayList<>();
+        if (candidates == null) {
+            for (Todo todo : todos.values()) {
+                if (matches(todo, filters)) {
+                    matching.add(todo);
+                }
+            }
+        } else {
+            for (Integer id : candidates) {
+                Todo todo = todos.get(id);
+                if (todo != null && matches(todo, filters)) {
+                    matching.add(todo);
+                }
+            }
+        }
+        return matching;
+    }
+
+    // Positive id, or -1 when the text is not one
+    public static int parseId(String text) {
+        try {
+            int id = Integer.parseInt(text);
+            return id > 0 ? id : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static boolean matches(Todo todo, Map<String, String> filters) {
+        for (Map.Entry<String, String> filter : filters.entrySet()) {
+            String value = todo.field(filter.getKey());
+            if (value != null && !value.equals(filter.getValue())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Moves the id between the doneStatus sets, called inside compute() on the todo's key
+    private void index(Todo old, Todo todo) {
+        if (todo != null) {
+            (todo.doneStatus() ? done : notDone).add(todo.id());
+        }
+        if (old != null && (todo == null || old.doneStatus() != todo.doneStatus())) {
+            (old.doneStatus() ? done : notDone).remove(old.id());
+        }
+    }
+}
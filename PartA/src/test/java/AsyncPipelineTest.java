@@ -0,0 +1,84 @@
+import client.ClientConfig;
+import client.TodoClient;
+import client.TodoRequests;
+import load.AsyncPipeline;
+import load.LoadResult;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.TodoServer;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsyncPipelineTest {
+
+    private TodoServer server;
+    private TodoClient client;
+
+    @BeforeEach
+    public void start() throws Exception {
+        server = TodoServer.start(0, 1);
+        client = new TodoClient("http://localhost:" + server.port(), ClientConfig.defaults());
+    }
+
+    @AfterEach
+    public void stop() throws Exception {
+        server.close();
+        server.awaitTermination(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void testWindowBoundsRequestsInFlight() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        AsyncPipeline pipeline = new AsyncPipeline(client, 4, AsyncPipeline.Completion.UNORDERED)
+                .onCompletion((sequence, status, latency) -> inFlight.decrementAndGet());
+        LoadResult result = pipeline.run("POST", 200, (worker, sequence) -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return TodoRequests.createTodo(client, "{\"title\":\"async " + sequence + "\"}");
+        });
+        Assertions.assertEquals(200, result.requests());
+        Assertions.assertEquals(0, result.errors());
+        Assertions.assertEquals(200, result.latencies().count());
+        Assertions.assertTrue(maxInFlight.get() <= 4, "max in flight " + maxInFlight.get());
+        Assertions.assertEquals(202, server.store().size());
+    }
+
+    @Test
+    public void testOrderedCompletionFollowsSendOrder() throws Exception {
+        List<Integer> sequences = new CopyOnWriteArrayList<>();
+        List<Integer> statuses = new CopyOnWriteArrayList<>();
+        AsyncPipeline pipeline = new AsyncPipeline(client, 8, AsyncPipeline.Completion.ORDERED)
+                .onCompletion((sequence, status, latency) -> {
+                    sequences.add(sequence);
+                    statuses.add(status);
+                });
+        // Every other request targets a missing todo, failures are counted but keep their place
+        LoadResult result = pipeline.run("GET", 50,
+                (worker, sequence) -> TodoRequests.getTodo(client, sequence % 2 == 0 ? 1 : 999));
+        Assertions.assertEquals(25, result.errors());
+        for (int i = 0; i < 50; i++) {
+            Assertions.assertEquals(i, sequences.get(i));
+            Assertions.assertEquals(i % 2 == 0 ? 200 : 404, statuses.get(i));
+        }
+    }
+
+    @Test
+    public void testThrowingListenerFailsTheRunWithoutHanging() {
+        for (AsyncPipeline.Completion completion : AsyncPipeline.Completion.values()) {
+            AsyncPipeline pipeline = new AsyncPipeline(client, 4, completion)
+                    .onResponse((request, response) -> {
+                        throw new IllegalArgumentException("listener failed");
+                    });
+            IllegalStateException failure = Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10),
+                    () -> Assertions.assertThrows(IllegalStateException.class,
+                            () -> pipeline.run("GET", 50, (worker, sequence) -> TodoRequests.getTodo(client, 1))),
+                    completion.name());
+            Assertions.assertEquals("listener failed", failure.getCause().getMessage(), completion.name());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import client.RequestBodies;
+import client.ResponseBodies;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.TodoServer;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+public class BodiesTest {
+
+    private TodoServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void start() throws Exception {
+        server = TodoServer.start(0, 1);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    public void stop() throws Exception {
+        server.close();
+        Assertions.assertTrue(server.awaitTermination(Duration.ofSeconds(5)));
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path));
+    }
+
+    @Test
+    public void testSamePublisherSentTwice() throws Exception {
+        byte[] json = "{\"title\":\"shared body\"}".getBytes(StandardCharsets.UTF_8);
+        HttpRequest.BodyPublisher body = RequestBodies.of(json);
+        Assertions.assertEquals(json.length, body.contentLength());
+        HttpRequest create = request("/todos").header("Content-Type", "application/json").POST(body).build();
+        for (int i = 0; i < 2; i++) {
+            HttpResponse<String> created = client.send(create, HttpResponse.BodyHandlers.ofString());
+            Assertions.assertEquals(201, created.statusCode());
+            Assertions.assertTrue(created.body().contains("shared body"), created.body());
+        }
+        Assertions.assertEquals("{\"title\":\"shared body\"}", new String(json, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testPrefixAndChecksum() throws Exception {
+        HttpRequest list = request("/todos").build();
+        byte[] body = client.send(list, HttpResponse.BodyHandlers.ofByteArray()).body();
+        Assertions.assertTrue(body.length > 16);
+
+        byte[] prefix = client.send(list, ResponseBodies.prefix(16)).body();
+        Assertions.assertArrayEquals(Arrays.copyOf(body, 16), prefix);
+        Assertions.assertArrayEquals(body, client.send(list, ResponseBodies.prefix(1 << 20)).body());
+
+        long checksum = client.send(list, ResponseBodies.checksum()).body();
+        Assertions.assertEquals(ResponseBodies.checksumOf(body), checksum);
+    }
+}
@@ -0,0 +1,84 @@
+import cli.CliOptions;
+import load.AsyncPipeline;
+import load.IdRegistry;
+import load.PayloadCorpus;
+import load.TodoOperation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+public class CliOptionsTest {
+
+    @Test
+    public void testDefaults() {
+        CliOptions options = CliOptions.parse();
+        Assertions.assertEquals("http://localhost:4567", options.url());
+        Assertions.assertEquals(List.of(TodoOperation.CREATE), options.operations());
+        Assertions.assertEquals(1000, options.requests());
+        Assertions.assertNull(options.duration());
+    }
+
+    @Test
+    public void testParsesAllOptions() {
+        CliOptions options = CliOptions.parse("--url", "http://todo:8080/", "--ops=list,get,delete",
+                "--concurrency", "1,8", "--duration", "1500ms", "--output", "out.csv", "--payload-size", "large");
+        Assertions.assertEquals("http://todo:8080", options.url());
+        Assertions.assertEquals(List.of(TodoOperation.LIST, TodoOperation.GET, TodoOperation.DELETE), options.operations());
+        Assertions.assertEquals(List.of(1, 8), options.concurrencyLevels());
+        Assertions.assertEquals(Duration.ofMillis(1500), options.duration());
+        Assertions.assertEquals(Path.of("out.csv"), options.output());
+        Assertions.assertEquals(PayloadCorpus.SizeClass.LARGE, options.payloadSize());
+    }
+
+    @Test
+    public void testRejectsInvalidOptions() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CliOptions.parse("--ops", "patch"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CliOptions.parse("--concurrency", "0"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CliOptions.parse("--requests", "5", "--duration", "2s"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CliOptions.parse("--duration", "soon"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CliOptions.parse("--url"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CliOptions.parse("--compare", "run.txt"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CliOptions.parse("--threshold", "-5"));
+    }
+
+    @Test
+    public void testBaselineOptions() {
+        CliOptions options = CliOptions.parse("--baseline", "base.txt", "--threshold=7.5%", "--results", "run.txt");
+        Assertions.assertEquals(Path.of("base.txt"), options.baseline());
+        Assertions.assertEquals(7.5, options.threshold());
+        Assertions.assertEquals(Path.of("run.txt"), options.results());
+        Assertions.assertNull(options.compare());
+        Assertions.assertEquals(10, CliOptions.parse().threshold());
+    }
+
+    @Test
+    public void testEngineOptions() {
+        Assertions.assertEquals(CliOptions.Engine.THREADS, CliOptions.parse().engine());
+        CliOptions options = CliOptions.parse("--engine", "async", "--completion=ordered", "--concurrency", "64");
+        Assertions.assertEquals(CliOptions.Engine.ASYNC, options.engine());
+        Assertions.assertEquals(AsyncPipeline.Completion.ORDERED, options.completion());
+        Assertions.assertEquals(8, options.pipeline());
+        Assertions.assertEquals(32, CliOptions.parse("--engine", "nio", "--pipeline", "32").pipeline());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CliOptions.parse("--engine", "fibers"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CliOptions.parse("--pipeline", "0"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CliOptions.parse("--engine", "async", "--workload", "read-heavy"));
+    }
+
+    @Test
+    public void testTargetsOption() {
+        Random random = new Random(3);
+        Assertions.assertTrue(CliOptions.parse().targets().index(3, random) < 3);
+        // A steep skew draws the oldest id most of the time, 1 - 1/2^3 of it
+        int oldest = 0;
+        IdRegistry.Selection steep = CliOptions.parse("--targets=zipf:4").targets();
+        for (int i = 0; i < 1000; i++) {
+            oldest += steep.index(1000, random) == 0 ? 1 : 0;
+        }
+        Assertions.assertTrue(oldest > 800, "oldest drawn " + oldest + " times");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CliOptions.parse("--targets", "zipf:"));
+    }
+}
@@ -0,0 +1,137 @@
+import client.TodoClient;
+import client.TodoRequests;
+import load.IdRegistry;
+import load.LoadEngine;
+import load.LoadResult;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import server.TodoServer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class IdRegistryTest {
+
+    @Test
+    public void testAddRemoveAndPick() {
+        IdRegistry ids = new IdRegistry();
+        Assertions.assertEquals(-1, ids.pick(IdRegistry.Selection.uniform()));
+        Assertions.assertTrue(ids.add(3));
+        Assertions.assertTrue(ids.add(7));
+        Assertions.assertFalse(ids.add(7));
+        Assertions.assertTrue(ids.add(100_000));
+        Assertions.assertEquals(3, ids.size());
+
+        Assertions.assertTrue(ids.remove(7));
+        Assertions.assertFalse(ids.remove(7));
+        Assertions.assertFalse(ids.remove(8));
+        Assertions.assertFalse(ids.contains(7));
+        Random random = new Random(1);
+        Set<Integer> picked = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            picked.add(ids.pick(IdRegistry.Selection.uniform(), random));
+        }
+        Assertions.assertEquals(Set.of(3, 100_000), picked);
+
+        // A removed id can come back, e.g. when a todo is restored under its old id
+        Assertions.assertTrue(ids.add(7));
+        Assertions.assertTrue(ids.contains(7));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ids.add(0));
+    }
+
+    @Test
+    public void testConcurrentTakesGetEveryIdOnce() throws Exception {
+        IdRegistry ids = new IdRegistry();
+        int count = 20_000;
+        for (int id = 1; id <= count; id++) {
+            ids.add(id);
+        }
+        Set<Integer> taken = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> workers = new ArrayList<>();
+            for (int w = 0; w < 4; w++) {
+                IdRegistry.Selection selection = w % 2 == 0 ? IdRegistry.Selection.uniform() : IdRegistry.Selection.zipf(1.1);
+                workers.add(executor.submit(() -> {
+                    int duplicates = 0;
+                    int id;
+                    while ((id = ids.take(selection)) > 0) {
+                        if (!taken.add(id)) {
+                            duplicates++;
+                        }
+                    }
+                    return duplicates;
+                }));
+            }
+            for (Future<Integer> worker : workers) {
+                Assertions.assertEquals(0, worker.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(count, taken.size());
+        Assertions.assertEquals(0, ids.size());
+    }
+
+    @Test
+    public void testZipfSkewsTowardsOldestIds() {
+        int size = 1000;
+        Random random = new Random(42);
+        int[] zipf = new int[size];
+        int[] uniform = new int[size];
+        for (int i = 0; i < 200_000; i++) {
+            zipf[IdRegistry.Selection.zipf(1).index(size, random)]++;
+            uniform[IdRegistry.Selection.uniform().index(size, random)]++;
+        }
+        // With exponent 1 the first rank gets about ln(2) / ln(1001), some 10% of the draws, the tenth 1.4%
+        Assertions.assertTrue(zipf[0] > 18_000 && zipf[0] < 22_000, "rank 0 drawn " + zipf[0] + " times");
+        Assertions.assertTrue(zipf[0] > 5 * zipf[9], "rank 0 " + zipf[0] + " vs rank 9 " + zipf[9]);
+        Assertions.assertTrue(uniform[0] < 400 && uniform[size - 1] < 400);
+        // Exponent 0 is uniform
+        Assertions.assertTrue(IdRegistry.Selection.zipf(0).index(size, new Random(1)) < size);
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IdRegistry.Selection.parse("zipf:x"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IdRegistry.Selection.parse("gaussian"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> IdRegistry.Selection.zipf(-1));
+    }
+
+    @Test
+    public void testFollowsALoadRunAndCountsStatuses() throws Exception {
+        TodoServer server = TodoServer.start(0, 1);
+        try {
+            TodoClient client = TodoClient.forTarget("http://localhost:" + server.port());
+            IdRegistry ids = new IdRegistry();
+            LoadEngine engine = new LoadEngine(client, 4).onResponse(ids);
+            byte[] body = "{\"title\":\"tracked\"}".getBytes(StandardCharsets.UTF_8);
+
+            engine.run("POST", 50, (worker, sequence) -> TodoRequests.createTodo(client, body));
+            // Only the created todos, not the two the server was seeded with
+            Assertions.assertEquals(50, ids.size());
+            Assertions.assertFalse(ids.contains(1));
+
+            LoadResult deleted = engine.run("DELETE", 50,
+                    (worker, sequence) -> TodoRequests.deleteTodo(client, ids.take(IdRegistry.Selection.uniform())));
+            Assertions.assertEquals(50, deleted.statuses().count(200), deleted.toString());
+            Assertions.assertEquals(0, deleted.errors());
+
+            // Nothing left to take: the 404s are counted as such and kept out of the latencies
+            LoadResult missing = engine.run("DELETE", 10,
+                    (worker, sequence) -> TodoRequests.deleteTodo(client, ids.take(IdRegistry.Selection.uniform())));
+            Assertions.assertEquals(10, missing.statuses().count(404));
+            Assertions.assertEquals("404=10", missing.statuses().toString());
+            Assertions.assertEquals(0, missing.latencies().count());
+        } finally {
+            server.close();
+            Assertions.assertTrue(server.awaitTermination(Duration.ofSeconds(5)));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+import metrics.LatencyHistogram;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assertions.assertEquals(0, histogram.count());
+        Assertions.assertEquals(0, histogram.percentile(99));
+        Assertions.assertEquals(0, histogram.max());
+    }
+
+    @Test
+    public void testPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(millis * 1_000_000);
+        }
+        Assertions.assertEquals(1000, histogram.count());
+        assertClose(500_000_000, histogram.percentile(50));
+        assertClose(990_000_000, histogram.percentile(99));
+        Assertions.assertEquals(1_000_000_000, histogram.percentile(100));
+        Assertions.assertEquals(1_000_000_000, histogram.max());
+        Assertions.assertEquals(1_000_000, histogram.min());
+    }
+
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(7);
+        Assertions.assertEquals(3, histogram.percentile(50));
+        Assertions.assertEquals(7, histogram.percentile(100));
+    }
+
+    @Test
+    public void testAddAndReset() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        first.record(1_000);
+        second.record(Long.MAX_VALUE);
+        first.add(second);
+        Assertions.assertEquals(2, first.count());
+        Assertions.assertEquals(Long.MAX_VALUE, first.percentile(100));
+
+        first.reset();
+        Assertions.assertEquals(0, first.count());
+        Assertions.assertEquals(0, first.max());
+    }
+
+    private static void assertClose(long expected, long actual) {
+        Assertions.assertTrue(Math.abs(expected - actual) <= expected / 64,
+                "Expected " + expected + " within 1/64, was " + actual);
+    }
+
+    @Test
+    public void testEncodeRoundTrip() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 500; micros++) {
+            histogram.record(micros * 1_000);
+        }
+        LatencyHistogram decoded = LatencyHistogram.decode(histogram.encode());
+        Assertions.assertEquals(histogram.count(), decoded.count());
+        Assertions.assertEquals(histogram.percentile(90), decoded.percentile(90));
+        Assertions.assertEquals(histogram.min(), decoded.min());
+        Assertions.assertEquals(histogram.max(), decoded.max());
+        Assertions.assertEquals(histogram.mean(), decoded.mean());
+        Assertions.assertEquals(0, LatencyHistogram.decode(new LatencyHistogram().encode()).count());
+    }
+
+    @Test
+    public void testPercentileIntervalNarrowsWithSamples() {
+        LatencyHistogram few = new LatencyHistogram();
+        LatencyHistogram many = new LatencyHistogram();
+        for (int i = 0; i < 100_000; i++) {
+            long value = (i % 1000 + 1) * 1_000L;
+            many.record(value);
+            if (i % 1000 == 0) {
+                few.record(value + i);
+            }
+        }
+        long[] wide = few.percentileInterval(50, 1.96);
+        long[] narrow = many.percentileInterval(50, 1.96);
+        Assertions.assertTrue(wide[0] <= few.percentile(50) && few.percentile(50) <= wide[1]);
+        Assertions.assertTrue(narrow[0] <= many.percentile(50) && many.percentile(50) <= narrow[1]);
+        Assertions.assertTrue(narrow[1] - narrow[0] < wide[1] - wide[0]);
+    }
+}
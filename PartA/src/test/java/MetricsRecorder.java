@@ -1,29 +1,197 @@
-import java.io.FileWriter;
+import load.LoadResult;
+import load.StatusCounts;
+import metrics.CpuClock;
+import metrics.LatencyHistogram;
+import metrics.LatencyResults;
+import metrics.MetricsSink;
+import metrics.ProcessSampler;
+import metrics.ResourceSample;
+import metrics.SampleStatistics;
+
 import java.io.IOException;
-import java.lang.management.ManagementFactory;
-import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 public class MetricsRecorder {
 
-    private static final OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
-    private static final Runtime runtime = Runtime.getRuntime();
-    private final FileWriter writer;
+    // Rows, raw request samples and server samples are written off-thread so no disk I/O happens inside the timed loops
+    private final MetricsSink rows;
+    private final MetricsSink samples;
+    private final MetricsSink serverSamples;
+    // Latency histogram of every row, saved next to the CSV for comparisons with a baseline run
+    private final Path resultsFile;
+    private final LatencyResults results = new LatencyResults();
+
+    // Resource columns describe the Todo Manager process, not this JVM
+    private final Supplier<ProcessSampler> serverSampler;
+    private ResourceSample previousServerSample;
+
+    // Per-request samples of the batch in progress, drained into the row written by recordMetrics
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> cpuNanos = new ConcurrentHashMap<>();
+    private final Map<String, StatusCounts> statuses = new ConcurrentHashMap<>();
+
+    public MetricsRecorder(String fileName, Supplier<ProcessSampler> serverSampler) throws IOException {
+        this.serverSampler = serverSampler;
+        // Write the header, latencies are in milliseconds and throughput in requests per second.
+        // cpuUsage is the server's CPU in percent of one core since the previous row, memoryUsage its RSS in MB,
+        // gcCount and gcTime (ms) its collections since the previous row; -1 when the server is not sampled.
+        // duration is the mean over the iterations of the batch, durationCi95 the half-width of its 95% interval.
+        // clientCpu is the client CPU time per request in microseconds: of the test thread over the timed loops of
+        // a sweep, of this JVM over a load run; -1 when not measured or the run used too few ticks to tell,
+        // statuses the requests per response status, e.g. 200=990;404=10 (none for no response)
+        rows = new MetricsSink(Path.of(fileName),
+                "operation,numObjects,duration,cpuUsage,memoryUsage,requests,errors,throughput,p50,p90,p99,p99.9,max,"
+                        + "serverThreads,gcCount,gcTime,iterations,durationStdev,durationCi95,clientCpu,statuses",
+                1 << 10, MetricsSink.OverflowPolicy.WAIT);
+        // Every request, dropped rather than slowing the load down if the writer falls behind
+        samples = new MetricsSink(Path.of(fileName.replace(".csv", "_requests.csv")),
+                "timestamp,operation,latency,status", 1 << 16, MetricsSink.OverflowPolicy.DROP);
+        serverSamples = new MetricsSink(Path.of(fileName.replace(".csv", "_server.csv")),
+                ProcessSampler.HEADER, 1 << 12, MetricsSink.OverflowPolicy.DROP);
+        resultsFile = Path.of(fileName.replace(".csv", "_results.txt"));
+    }
+
+    // Histograms of the rows recorded so far, keyed "operation n=numObjects"
+    public LatencyResults results() {
+        return results;
+    }
+
+    // Records one periodic resource sample of the server process
+    public void recordServerSample(ResourceSample sample) {
+        serverSamples.offerLine(sample.toCsv());
+    }
+
+    // Id of the operation in the request samples, to be resolved once before a timed loop
+    public int operationId(String operation) {
+        return samples.operation(operation);
+    }
+
+    // Records one request of the given operation; status 0 means no response, failures are kept out of the latencies
+    public void recordRequest(String operation, long nanos, int status) {
+        recordRequest(operation, operationId(operation), nanos, status);
+    }
+
+    // Same, with the operation's id
+    public void recordRequest(String operation, int operationId, long nanos, int status) {
+        samples.offerSample(operationId, nanos, status);
+        statuses.computeIfAbsent(operation, key -> new StatusCounts()).record(status);
+        if (status > 0 && status < 400) {
+            latencies.computeIfAbsent(operation, key -> new LatencyHistogram()).record(nanos);
+        } else {
+            errors.computeIfAbsent(operation, key -> new LongAdder()).increment();
+        }
+    }
 
-    public MetricsRecorder(String fileName) throws IOException {
-        writer = new FileWriter(fileName);
-        writer.write("operation,numObjects,duration,cpuUsage,memoryUsage\n"); // Write the header
+    // Adds the client CPU time of one timed loop of the batch in progress (see CpuClock), ignored when not measured
+    public void recordCpu(String operation, long cpu) {
+        if (cpu >= 0) {
+            cpuNanos.computeIfAbsent(operation, key -> new LongAdder()).add(cpu);
+        }
     }
 
-    public void recordMetrics(String operation, int numObjects, long duration) throws IOException {
-        double cpuLoad = ((com.sun.management.OperatingSystemMXBean) osBean).getSystemCpuLoad() * 100;
-        long memoryUsage = (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024); // MB
+    public void recordMetrics(String operation, int numObjects, long duration) {
+        recordMetrics(operation, numObjects, SampleStatistics.of(duration));
+    }
+
+    // Row for repeated iterations of a batch: the request samples of every iteration, the duration of each
+    public void recordMetrics(String operation, int numObjects, SampleStatistics durations) {
+        LatencyHistogram histogram = latencies.remove(operation);
+        LongAdder failed = errors.remove(operation);
+        LongAdder cpu = cpuNanos.remove(operation);
+        StatusCounts counts = statuses.remove(operation);
+        writeRow(operation, numObjects, durations, histogram != null ? histogram : new LatencyHistogram(),
+                failed != null ? failed.sum() : 0, cpu != null ? cpu.sum() : -1,
+                counts != null ? counts : new StatusCounts());
+    }
+
+    public void recordMetrics(String operation, int numObjects, LoadResult result) {
+        recordMetrics(operation, numObjects, List.of(result));
+    }
+
+    // Row for repeated iterations of a load run, latencies and errors of all iterations together
+    public void recordMetrics(String operation, int numObjects, List<LoadResult> results) {
+        SampleStatistics durations = new SampleStatistics();
+        LatencyHistogram histogram = new LatencyHistogram();
+        long errorCount = 0;
+        long cpu = 0;
+        StatusCounts counts = new StatusCounts();
+        for (LoadResult result : results) {
+            durations.add(result.durationNanos() / 1e6);
+            histogram.add(result.latencies());
+            errorCount += result.errors();
+            cpu = cpu < 0 || result.cpuNanos() < 0 ? -1 : cpu + result.cpuNanos();
+            counts.add(result.statuses());
+        }
+        writeRow(operation, numObjects, durations, histogram, errorCount, cpu, counts);
+    }
+
+    // Writes a row for samples collected elsewhere, e.g. the server startup times
+    public void recordMetrics(String operation, int numObjects, long duration, LatencyHistogram histogram) {
+        writeRow(operation, numObjects, SampleStatistics.of(duration), histogram, 0, -1, new StatusCounts());
+    }
+
+    private void writeRow(String operation, int numObjects, SampleStatistics durations, LatencyHistogram histogram,
+                          long errorCount, long cpu, StatusCounts counts) {
+        double cpuLoad = -1;
+        long memoryUsage = -1;
+        int threads = -1;
+        long gcCount = -1;
+        long gcTime = -1;
+        ProcessSampler sampler = serverSampler.get();
+        ResourceSample current = sampler != null ? sampleNow(sampler) : null;
+        if (current != null) {
+            // Usage since the previous row of the same server, or since sampling of this server started
+            ResourceSample baseline = previousServerSample != null && previousServerSample.timestamp() >= sampler.first().timestamp()
+                    ? previousServerSample : sampler.first();
+            cpuLoad = ResourceSample.cpuPercent(baseline, current);
+            memoryUsage = current.rssBytes() / (1024 * 1024); // MB
+            threads = current.threads();
+            if (current.gcCount() >= 0 && baseline.gcCount() >= 0) {
+                gcCount = current.gcCount() - baseline.gcCount();
+                gcTime = current.gcMillis() - baseline.gcMillis();
+            }
+            previousServerSample = current;
+        }
+
+        results.add(operation + " n=" + numObjects, histogram);
+        long requests = histogram.count() + errorCount;
+        double totalDuration = durations.mean() * durations.count();
+        double throughput = totalDuration == 0 ? 0 : requests * 1000.0 / totalDuration;
+        rows.offerLine(String.format("%s,%d,%d,%.2f,%d,%d,%d,%.1f,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d,%d,%d,%.2f,%.2f,%.2f,%s",
+                operation, numObjects, Math.round(durations.mean()), cpuLoad, memoryUsage, requests, errorCount, throughput,
+                millis(histogram.percentile(50)), millis(histogram.percentile(90)), millis(histogram.percentile(99)),
+                millis(histogram.percentile(99.9)), millis(histogram.max()), threads, gcCount, gcTime,
+                durations.count(), durations.stdev(), durations.confidenceInterval95(), CpuClock.microsPerRequest(cpu, requests),
+                counts));
+    }
+
+    // A fresh sample of the server, or null if it has none yet or has exited
+    private static ResourceSample sampleNow(ProcessSampler sampler) {
+        if (sampler.first() == null) {
+            return null;
+        }
+        try {
+            return sampler.sample();
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
 
-        writer.write(String.format("%s,%d,%d,%.2f,%d\n", operation, numObjects, duration, cpuLoad, memoryUsage));
-        writer.flush();
+    private static double millis(long nanos) {
+        return nanos / 1e6;
     }
 
     public void close() throws IOException {
-        writer.close();
+        rows.close();
+        samples.close();
+        serverSamples.close();
+        results.write(resultsFile);
     }
 
 }
@@ -0,0 +1,70 @@
+import metrics.MetricsSink;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MetricsSinkTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSamplesAndLinesAreWrittenInOrder() throws IOException {
+        Path file = tempDir.resolve("samples.csv");
+        MetricsSink sink = new MetricsSink(file, "timestamp,operation,latency,status", 16, MetricsSink.OverflowPolicy.WAIT);
+        int post = sink.operation("POST");
+        for (int i = 0; i < 100; i++) {
+            Assertions.assertTrue(sink.offerSample(post, i, 201));
+        }
+        Assertions.assertTrue(sink.offerLine("# done"));
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file);
+        Assertions.assertEquals("timestamp,operation,latency,status", lines.get(0));
+        Assertions.assertEquals(102, lines.size());
+        Assertions.assertTrue(lines.get(1).endsWith(",POST,0,201"));
+        Assertions.assertTrue(lines.get(100).endsWith(",POST,99,201"));
+        Assertions.assertEquals("# done", lines.get(101));
+        Assertions.assertEquals(0, sink.dropped());
+    }
+
+    @Test
+    public void testConcurrentProducersLoseNothingWhenWaiting() throws Exception {
+        Path file = tempDir.resolve("concurrent.csv");
+        MetricsSink sink = new MetricsSink(file, null, 64, MetricsSink.OverflowPolicy.WAIT);
+        int operation = sink.operation("GET");
+        List<Thread> producers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    sink.offerSample(operation, i, 200);
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        sink.close();
+
+        Assertions.assertEquals(40_000, Files.readAllLines(file).size());
+        Assertions.assertEquals(40_000, sink.written());
+    }
+
+    @Test
+    public void testOffersAfterCloseAreDropped() throws IOException {
+        Path file = tempDir.resolve("closed.csv");
+        MetricsSink sink = new MetricsSink(file, null, 16, MetricsSink.OverflowPolicy.DROP);
+        sink.close();
+
+        Assertions.assertFalse(sink.offerLine("late"));
+        Assertions.assertEquals(1, sink.dropped());
+    }
+}
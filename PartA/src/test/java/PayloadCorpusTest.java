@@ -0,0 +1,58 @@
+import load.PayloadCorpus;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public class PayloadCorpusTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testSameSeedGivesSamePayloads() {
+        PayloadCorpus first = PayloadCorpus.generate(20, PayloadCorpus.SizeClass.TYPICAL, 429);
+        PayloadCorpus second = PayloadCorpus.generate(20, PayloadCorpus.SizeClass.TYPICAL, 429);
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertArrayEquals(first.payload(i), second.payload(i));
+        }
+    }
+
+    @Test
+    public void testPayloadIndexWrapsAround() {
+        PayloadCorpus corpus = PayloadCorpus.generate(5, PayloadCorpus.SizeClass.TINY, 1);
+        Assertions.assertSame(corpus.payload(2), corpus.payload(7));
+    }
+
+    @Test
+    public void testSizeClassesGrow() {
+        Assertions.assertTrue(averageSize(PayloadCorpus.SizeClass.TINY) < averageSize(PayloadCorpus.SizeClass.TYPICAL));
+        Assertions.assertTrue(averageSize(PayloadCorpus.SizeClass.TYPICAL) < averageSize(PayloadCorpus.SizeClass.LARGE));
+        Assertions.assertTrue(averageSize(PayloadCorpus.SizeClass.LARGE) > 2000);
+    }
+
+    @Test
+    public void testSaveAndLoad() throws IOException {
+        Path file = tempDir.resolve("corpus.bin");
+        PayloadCorpus corpus = PayloadCorpus.generate(10, PayloadCorpus.SizeClass.LARGE, 7);
+        corpus.save(file);
+
+        PayloadCorpus loaded = PayloadCorpus.load(file);
+        Assertions.assertEquals(PayloadCorpus.SizeClass.LARGE, loaded.sizeClass());
+        Assertions.assertEquals(10, loaded.size());
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertArrayEquals(corpus.payload(i), loaded.payload(i));
+        }
+    }
+
+    private static double averageSize(PayloadCorpus.SizeClass sizeClass) {
+        PayloadCorpus corpus = PayloadCorpus.generate(20, sizeClass, 3);
+        long total = 0;
+        for (int i = 0; i < corpus.size(); i++) {
+            total += corpus.payload(i).length;
+        }
+        return (double) total / corpus.size();
+    }
+}
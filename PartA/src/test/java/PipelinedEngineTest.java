@@ -0,0 +1,82 @@
+import client.RawRequests;
+import load.LoadResult;
+import load.PipelinedEngine;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.TodoServer;
+
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+public class PipelinedEngineTest {
+
+    private TodoServer server;
+    private String baseURL;
+
+    @BeforeEach
+    public void start() throws Exception {
+        server = TodoServer.start(0, 1);
+        baseURL = "http://localhost:" + server.port();
+    }
+
+    @AfterEach
+    public void stop() throws Exception {
+        server.close();
+        server.awaitTermination(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void testPipelinedCreates() throws Exception {
+        RawRequests raw = new RawRequests(baseURL);
+        byte[][] bodies = new byte[10][];
+        for (int i = 0; i < bodies.length; i++) {
+            bodies[i] = ("{\"title\":\"pipelined " + i + "\"}").getBytes(StandardCharsets.UTF_8);
+        }
+        PipelinedEngine engine = new PipelinedEngine(baseURL, 2, 8);
+        LoadResult result = engine.run("POST", 500, sequence -> raw.createTodo(bodies[sequence % bodies.length]));
+        Assertions.assertEquals(500, result.requests());
+        Assertions.assertEquals(0, result.errors());
+        Assertions.assertEquals(500, result.latencies().count());
+        Assertions.assertEquals(502, server.store().size());
+
+        // The same engine, and its buffers, serve the next run
+        LoadResult gets = engine.run("GET", 100, sequence -> raw.getTodo(sequence % 2 == 0 ? 1 : 9999));
+        Assertions.assertEquals(100, gets.requests());
+        Assertions.assertEquals(50, gets.errors());
+    }
+
+    @Test
+    public void testServerClosingConnectionsIsSurvived() throws Exception {
+        RawRequests raw = new RawRequests(baseURL);
+        // Connection: close after each response forces a reconnect, pipelined requests behind it fail
+        byte[] closing = new String(raw.getTodo(1), StandardCharsets.US_ASCII)
+                .replace("\r\n\r\n", "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        LoadResult result = new PipelinedEngine(baseURL, 1, 4).run("GET", 40, sequence -> closing);
+        Assertions.assertEquals(40, result.requests());
+        Assertions.assertTrue(result.latencies().count() >= 10, result.toString());
+        Assertions.assertEquals(40, result.latencies().count() + result.errors());
+    }
+
+    @Test
+    public void testStalledServerTimesOut() throws Exception {
+        // Accepts connections through its backlog but never reads or answers
+        try (ServerSocket stalled = new ServerSocket(0)) {
+            String url = "http://localhost:" + stalled.getLocalPort();
+            RawRequests raw = new RawRequests(url);
+            PipelinedEngine engine = new PipelinedEngine(url, 1, 4).responseTimeout(Duration.ofMillis(200));
+
+            LoadResult counted = engine.run("GET", 8, sequence -> raw.getTodo(1));
+            Assertions.assertEquals(8, counted.requests());
+            Assertions.assertEquals(8, counted.errors());
+
+            long start = System.nanoTime();
+            LoadResult timed = engine.runFor("GET", Duration.ofMillis(100), sequence -> raw.getTodo(1));
+            Assertions.assertTrue(System.nanoTime() - start < Duration.ofSeconds(2).toNanos(), timed.toString());
+            Assertions.assertEquals(timed.requests(), timed.errors());
+            Assertions.assertEquals(timed.requests(), timed.statuses().count(-1));
+        }
+    }
+}
@@ -0,0 +1,36 @@
+import metrics.ProcessSampler;
+import metrics.ResourceSample;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class ProcessSamplerTest {
+
+    @Test
+    public void testSamplesOwnProcess() throws Exception {
+        Assumptions.assumeTrue(ProcessSampler.supported(), "needs /proc");
+        List<ResourceSample> samples = new CopyOnWriteArrayList<>();
+        try (ProcessSampler sampler = new ProcessSampler(ProcessHandle.current().pid(), Duration.ofMillis(20), samples::add)) {
+            sampler.start();
+            ResourceSample first = sampler.first();
+            Assertions.assertNotNull(first);
+            Assertions.assertTrue(first.rssBytes() > 0);
+            Assertions.assertTrue(first.threads() > 0);
+
+            // Burn some CPU so the next sample shows it
+            long deadline = System.nanoTime() + 200_000_000L;
+            double sink = 0;
+            while (System.nanoTime() < deadline) {
+                sink += Math.sqrt(sink + 1);
+            }
+            ResourceSample later = sampler.sample();
+            Assertions.assertTrue(later.cpuNanos() > first.cpuNanos(), "cpu time did not grow: " + sink);
+            Assertions.assertTrue(ResourceSample.cpuPercent(first, later) > 0);
+        }
+        Assertions.assertFalse(samples.isEmpty());
+    }
+}
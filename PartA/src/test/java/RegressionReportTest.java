@@ -0,0 +1,92 @@
+import metrics.LatencyHistogram;
+import metrics.LatencyResults;
+import metrics.RegressionReport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public class RegressionReportTest {
+
+    // count latencies around meanMillis, normally distributed with 10% spread
+    private static LatencyHistogram latencies(double meanMillis, int count, long seed) {
+        Random random = new Random(seed);
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < count; i++) {
+            histogram.record((long) (meanMillis * 1e6 * (1 + 0.1 * random.nextGaussian())));
+        }
+        return histogram;
+    }
+
+    private static LatencyResults results(String key, LatencyHistogram histogram) {
+        LatencyResults results = new LatencyResults();
+        results.add(key, histogram);
+        return results;
+    }
+
+    @Test
+    public void testSameDistributionIsUnchanged() {
+        RegressionReport report = RegressionReport.compare(results("POST n=50", latencies(5, 2000, 1)),
+                results("POST n=50", latencies(5, 2000, 2)), 5);
+        Assertions.assertFalse(report.hasRegressions());
+        Assertions.assertEquals(RegressionReport.PERCENTILES.length, report.comparisons().size());
+    }
+
+    @Test
+    public void testSlowdownAboveThresholdRegresses() {
+        RegressionReport report = RegressionReport.compare(results("POST n=50", latencies(5, 2000, 1)),
+                results("POST n=50", latencies(6, 2000, 2)), 10);
+        Assertions.assertTrue(report.hasRegressions());
+        Assertions.assertEquals(RegressionReport.Verdict.REGRESSED, report.comparisons().get(0).verdict());
+        Assertions.assertTrue(report.format().contains("REGRESSED"));
+
+        RegressionReport lenient = RegressionReport.compare(results("POST n=50", latencies(5, 2000, 1)),
+                results("POST n=50", latencies(6, 2000, 2)), 50);
+        Assertions.assertFalse(lenient.hasRegressions());
+    }
+
+    @Test
+    public void testFewSamplesAreNotSignificant() {
+        // A 20% slower median from five requests each is within the noise
+        RegressionReport report = RegressionReport.compare(results("GET n=1", latencies(5, 5, 1)),
+                results("GET n=1", latencies(6, 5, 2)), 10);
+        Assertions.assertFalse(report.hasRegressions());
+    }
+
+    @Test
+    public void testSpeedupIsAnImprovement() {
+        RegressionReport report = RegressionReport.compare(results("PUT n=20", latencies(6, 2000, 1)),
+                results("PUT n=20", latencies(4, 2000, 2)), 10);
+        Assertions.assertFalse(report.hasRegressions());
+        Assertions.assertEquals(RegressionReport.Verdict.IMPROVED, report.comparisons().get(0).verdict());
+    }
+
+    @Test
+    public void testMissingAndNewRows() {
+        RegressionReport report = RegressionReport.compare(results("DELETE n=1", latencies(5, 100, 1)),
+                results("DELETE n=20", latencies(5, 100, 2)), 10);
+        Assertions.assertFalse(report.hasRegressions());
+        Assertions.assertEquals(1, report.missing().size());
+        Assertions.assertEquals(1, report.added().size());
+    }
+
+    @Test
+    public void testResultsFileRoundTrip() throws IOException {
+        LatencyResults results = results("POST n=50", latencies(5, 500, 1));
+        results.add("MIX-read-heavy/list n=300", latencies(2, 300, 2));
+        Path file = Files.createTempFile("todo_results", ".txt");
+        try {
+            results.write(file);
+            LatencyResults read = LatencyResults.read(file);
+            Assertions.assertEquals(results.keys(), read.keys());
+            Assertions.assertEquals(results.get("POST n=50").percentile(99), read.get("POST n=50").percentile(99));
+        } finally {
+            Files.delete(file);
+        }
+        Assertions.assertThrows(IOException.class, () -> LatencyResults.read(new StringReader("operation,numObjects\n")));
+    }
+}
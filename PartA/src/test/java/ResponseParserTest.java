@@ -0,0 +1,58 @@
+import client.ResponseParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class ResponseParserTest {
+
+    private static final String PIPELINED = "HTTP/1.1 201 Created\r\nContent-Type: application/json\r\nContent-Length: 13\r\n\r\n"
+            + "{\"id\":\"3\"}\r\n\r\n"
+            + "HTTP/1.1 100 Continue\r\n\r\n"
+            + "HTTP/1.1 404 Not Found\r\ntransfer-encoding: Chunked\r\n\r\n5;x=1\r\nabcde\r\n3\r\nfgh\r\n0\r\nX-Trailer: 1\r\n\r\n"
+            + "HTTP/1.1 200 OK\r\nContent-Length: 0\r\nConnection: close\r\n\r\n";
+
+    // Statuses, with -close for responses the server closes the connection after
+    private static List<String> parse(ResponseParser parser, byte[] bytes, int chunkSize) throws IOException {
+        List<String> responses = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            ByteBuffer in = ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset));
+            while (parser.parse(in)) {
+                responses.add(parser.status() + (parser.closeAfter() ? "-close" : ""));
+            }
+            Assertions.assertFalse(in.hasRemaining());
+        }
+        return responses;
+    }
+
+    @Test
+    public void testPipelinedResponsesInAnySplit() throws IOException {
+        byte[] bytes = PIPELINED.getBytes(StandardCharsets.US_ASCII);
+        for (int chunkSize : new int[]{1, 2, 7, 64, bytes.length}) {
+            Assertions.assertEquals(List.of("201", "404", "200-close"), parse(new ResponseParser(), bytes, chunkSize),
+                    "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    public void testBodyUntilClose() throws IOException {
+        ResponseParser parser = new ResponseParser();
+        byte[] bytes = "HTTP/1.0 200 OK\r\n\r\nbody without length".getBytes(StandardCharsets.US_ASCII);
+        Assertions.assertEquals(List.of(), parse(parser, bytes, 5));
+        Assertions.assertTrue(parser.endOfInput());
+        Assertions.assertEquals(200, parser.status());
+        Assertions.assertTrue(parser.closeAfter());
+    }
+
+    @Test
+    public void testRejectsMalformedResponses() {
+        Assertions.assertThrows(IOException.class,
+                () -> new ResponseParser().parse(ByteBuffer.wrap("garbage\r\n".getBytes(StandardCharsets.US_ASCII))));
+        Assertions.assertThrows(IOException.class, () -> new ResponseParser().parse(ByteBuffer.wrap(
+                "HTTP/1.1 200 OK\r\nContent-Length: ten\r\n\r\n".getBytes(StandardCharsets.US_ASCII))));
+    }
+}
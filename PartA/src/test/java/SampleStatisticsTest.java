@@ -0,0 +1,26 @@
+import metrics.SampleStatistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SampleStatisticsTest {
+
+    @Test
+    public void testMeanStdevAndInterval() {
+        SampleStatistics statistics = SampleStatistics.of(2, 4, 4, 4, 5, 5, 7, 9);
+        Assertions.assertEquals(8, statistics.count());
+        Assertions.assertEquals(5.0, statistics.mean(), 1e-9);
+        Assertions.assertEquals(2.138, statistics.stdev(), 1e-3);
+        // t(7) = 2.365
+        Assertions.assertEquals(2.365 * 2.138 / Math.sqrt(8), statistics.confidenceInterval95(), 1e-3);
+        Assertions.assertEquals(2, statistics.min());
+        Assertions.assertEquals(9, statistics.max());
+    }
+
+    @Test
+    public void testSingleValueHasNoSpread() {
+        SampleStatistics statistics = SampleStatistics.of(42);
+        Assertions.assertEquals(42, statistics.mean());
+        Assertions.assertEquals(0, statistics.stdev());
+        Assertions.assertEquals(0, statistics.confidenceInterval95());
+    }
+}
@@ -0,0 +1,84 @@
+import metrics.ScalingAnalysis;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ScalingAnalysisTest {
+
+    private static final double[] SIZES = {1, 20, 50, 70, 100, 500};
+
+    // Batch durations of the given per-request cost curve with a little alternating noise
+    private static double[] durations(java.util.function.DoubleUnaryOperator cost) {
+        double[] durations = new double[SIZES.length];
+        for (int i = 0; i < SIZES.length; i++) {
+            durations[i] = cost.applyAsDouble(SIZES[i]) * (i % 2 == 0 ? 1.02 : 0.98);
+        }
+        return durations;
+    }
+
+    @Test
+    public void testLinearCostIsNotFlagged() {
+        ScalingAnalysis.Curve curve = ScalingAnalysis.fit("POST", SIZES, durations(n -> 5 + 2 * n));
+        Assertions.assertEquals(ScalingAnalysis.Model.LINEAR, curve.best().model());
+        Assertions.assertFalse(curve.growsWithSize());
+        Assertions.assertEquals(2, curve.perRequestMillis(500), 0.1);
+    }
+
+    @Test
+    public void testQuadraticCostIsFlagged() {
+        // Like the DELETE rows: every request scans the collection, which soon outweighs the fixed cost of a batch
+        ScalingAnalysis.Curve curve = ScalingAnalysis.fit("DELETE", SIZES, durations(n -> 2 + n + 0.01 * n * n));
+        Assertions.assertEquals(ScalingAnalysis.Model.QUADRATIC, curve.best().model());
+        Assertions.assertTrue(curve.growsWithSize());
+        Assertions.assertTrue(curve.perRequestMillis(500) > curve.perRequestMillis(20));
+    }
+
+    @Test
+    public void testConstantCost() {
+        ScalingAnalysis.Curve curve = ScalingAnalysis.fit("STARTUP", SIZES, durations(n -> 40));
+        Assertions.assertEquals(ScalingAnalysis.Model.CONSTANT, curve.best().model());
+        Assertions.assertFalse(curve.growsWithSize());
+    }
+
+    @Test
+    public void testFallingPerRequestCostIsNotFlagged() {
+        // Like the POST rows: a fixed cost spread over more requests, with a slight curve in the batch duration
+        ScalingAnalysis.Curve curve = ScalingAnalysis.fit("POST", SIZES, durations(n -> 25 + 4 * n + 0.05 * n * Math.log(n)));
+        Assertions.assertFalse(curve.growsWithSize());
+        Assertions.assertTrue(curve.perRequestMillis(500) < curve.perRequestMillis(1));
+        Assertions.assertEquals(ScalingAnalysis.Model.values().length, curve.fits().size());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> ScalingAnalysis.fit("POST", new double[] {1, 20, 50}, new double[] {3, 41, 101}));
+    }
+
+    @Test
+    public void testReadsMetricsCsv(@TempDir Path tempDir) throws IOException {
+        String csv = "operation,numObjects,duration,cpuUsage\n"
+                + "POST,1,3,0\nPOST,20,41,0\nPOST,50,101,0\nPOST,50,99,0\nPOST,70,141,0\nPOST,100,201,0\nPOST,500,1001,0\n"
+                + "PUT,1,2,0\nPUT,20,40,0\nPUT,50,100,0\n"
+                + "STARTUP,12,480,0\n";
+        ScalingAnalysis analysis = ScalingAnalysis.read(new StringReader(csv));
+        // PUT has too few sizes to fit every model and STARTUP a single one, both are skipped
+        Assertions.assertEquals(1, analysis.curves().size());
+        ScalingAnalysis.Curve post = analysis.curves().get(0);
+        Assertions.assertArrayEquals(new double[] {1, 20, 50, 70, 100, 500}, post.sizes());
+        Assertions.assertEquals(100, post.durations()[2], 1e-9);
+        Assertions.assertEquals(ScalingAnalysis.Model.LINEAR, post.best().model());
+        Assertions.assertTrue(analysis.format().contains("POST"));
+        Assertions.assertThrows(IOException.class, () -> ScalingAnalysis.read(new StringReader("a,b\n1,2\n")));
+
+        // A sweep of three sizes leaves nothing to fit, which still formats and writes
+        ScalingAnalysis small = ScalingAnalysis.read(new StringReader("operation,numObjects,duration\n"
+                + "POST,1,3\nPOST,20,41\nPOST,50,101\n"));
+        Assertions.assertTrue(small.curves().isEmpty());
+        Assertions.assertFalse(small.format().contains("POST"));
+        Path file = tempDir.resolve("scaling.csv");
+        small.writeCsv(file);
+        Assertions.assertEquals(1, Files.readAllLines(file).size());
+    }
+}
@@ -0,0 +1,63 @@
+import metrics.TimeSeriesRecorder;
+import metrics.TimeSeriesReport;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+public class TimeSeriesRecorderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testReplaysPhases() throws Exception {
+        Path file = tempDir.resolve("series.log");
+        try (TimeSeriesRecorder recorder = new TimeSeriesRecorder(file, Duration.ofMillis(20), null)) {
+            recorder.phase(TimeSeriesRecorder.Phase.WARMUP, "POST");
+            for (int i = 0; i < 10; i++) {
+                recorder.record(1_000_000, true);
+            }
+            recorder.phase(TimeSeriesRecorder.Phase.MEASURE, "POST");
+            for (int i = 0; i < 30; i++) {
+                recorder.record(2_000_000, true);
+                Thread.sleep(2);
+            }
+            recorder.record(5_000_000, false);
+            recorder.phase(TimeSeriesRecorder.Phase.COOLDOWN, "POST");
+        }
+
+        List<TimeSeriesReport.Segment> segments = TimeSeriesReport.read(file).segments();
+        Assertions.assertEquals(3, segments.size());
+        Assertions.assertEquals("warmup", segments.get(0).phase());
+        Assertions.assertEquals(10, segments.get(0).requests());
+        TimeSeriesReport.Segment measure = segments.get(1);
+        Assertions.assertEquals("measure", measure.phase());
+        Assertions.assertEquals(31, measure.requests());
+        Assertions.assertEquals(1, measure.errors());
+        Assertions.assertTrue(measure.intervals() > 1, "measure should span several intervals");
+        Assertions.assertEquals(2000, measure.medianP50(), 100);
+        Assertions.assertEquals(0, segments.get(2).requests());
+    }
+
+    @Test
+    public void testReadsResourceRecords() throws IOException {
+        String series = "# todo-timeseries v1 interval=100\n"
+                + "P,0,measure,GET\n"
+                + "I,100,10,0,900,1000,1100,1200\n"
+                + "R,100,500,81920,30,1,5\n"
+                + "I,200,10,0,900,1000,1500,1600\n"
+                + "R,200,550,90112,31,3,9\n";
+        TimeSeriesReport.Segment segment = TimeSeriesReport.read(new StringReader(series)).segments().get(0);
+        Assertions.assertEquals(20, segment.requests());
+        Assertions.assertEquals(1500, segment.worstP99());
+        Assertions.assertEquals(50.0, segment.serverCpu(), 0.01);
+        Assertions.assertEquals(90112, segment.serverMaxRss());
+        Assertions.assertEquals(2, segment.serverGcCount());
+    }
+}
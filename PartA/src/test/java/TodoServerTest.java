@@ -0,0 +1,129 @@
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.TodoServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+public class TodoServerTest {
+
+    private TodoServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    public void start() throws Exception {
+        server = TodoServer.start(0, 2);
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterEach
+    public void stop() throws Exception {
+        server.close();
+        Assertions.assertTrue(server.awaitTermination(Duration.ofSeconds(5)));
+    }
+
+    private HttpResponse<String> send(String method, String path, String body, String... headers) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body));
+        if (headers.length > 0) {
+            request.headers(headers);
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JsonArray todos(HttpResponse<String> response) {
+        return JsonParser.parseString(response.body()).getAsJsonObject().getAsJsonArray("todos");
+    }
+
+    @Test
+    public void testSeededTodos() throws Exception {
+        HttpResponse<String> response = send("GET", "/todos/1", null);
+        Assertions.assertEquals(200, response.statusCode());
+        JsonObject todo = todos(response).get(0).getAsJsonObject();
+        Assertions.assertEquals("scan paperwork", todo.get("title").getAsString());
+        Assertions.assertEquals("false", todo.get("doneStatus").getAsString());
+        Assertions.assertEquals(2, todos(send("GET", "/todos", null)).size());
+    }
+
+    @Test
+    public void testCreateFilterAndDelete() throws Exception {
+        HttpResponse<String> created = send("POST", "/todos", "{\"title\":\"done one\",\"doneStatus\":true}",
+                "Content-Type", "application/json");
+        Assertions.assertEquals(201, created.statusCode());
+        Assertions.assertEquals("todos/3", created.headers().firstValue("Location").orElse(null));
+
+        JsonArray done = todos(send("GET", "/todos?doneStatus=true", null));
+        Assertions.assertEquals(1, done.size());
+        Assertions.assertEquals("3", done.get(0).getAsJsonObject().get("id").getAsString());
+
+        // Amending the doneStatus moves the todo between the index sets
+        Assertions.assertEquals(200, send("POST", "/todos/3", "{\"doneStatus\":false}").statusCode());
+        Assertions.assertEquals(0, todos(send("GET", "/todos?doneStatus=true", null)).size());
+        Assertions.assertEquals(3, todos(send("GET", "/todos?doneStatus=false", null)).size());
+
+        Assertions.assertEquals(200, send("DELETE", "/todos/3", null).statusCode());
+        HttpResponse<String> missing = send("DELETE", "/todos/3", null);
+        Assertions.assertEquals(404, missing.statusCode());
+        Assertions.assertEquals("{\"errorMessages\":[\"Could not find any instances with todos/3\"]}", missing.body());
+    }
+
+    @Test
+    public void testValidationErrors() throws Exception {
+        Assertions.assertEquals("{\"errorMessages\":[\"title : field is mandatory\"]}",
+                send("POST", "/todos", "{\"description\":\"x\"}").body());
+        Assertions.assertEquals("{\"errorMessages\":[\"Failed Validation: doneStatus should be BOOLEAN\"]}",
+                send("POST", "/todos", "{\"title\":\"x\",\"doneStatus\":\"true\"}").body());
+        Assertions.assertEquals(400, send("POST", "/todos", "{\"title\": \"x\"").statusCode());
+        Assertions.assertEquals(415, send("POST", "/todos", "title=x", "Content-Type", "text/plain").statusCode());
+        Assertions.assertEquals(406, send("GET", "/todos", null, "Accept", "text/plain").statusCode());
+        Assertions.assertEquals(405, send("DELETE", "/todos", null).statusCode());
+        Assertions.assertEquals(404, send("GET", "/nope", null).statusCode());
+    }
+
+    @Test
+    public void testXml() throws Exception {
+        HttpResponse<String> created = send("POST", "/todos",
+                "<todo><title>X &amp; Y</title><doneStatus>true</doneStatus></todo>",
+                "Content-Type", "application/xml", "Accept", "application/xml");
+        Assertions.assertEquals(201, created.statusCode());
+        Assertions.assertEquals("<todo><doneStatus>true</doneStatus><description/><id>3</id><title>X &amp; Y</title></todo>",
+                created.body());
+        Assertions.assertEquals("<errorMessages><errorMessage>Could not find an instance with todos/9</errorMessage></errorMessages>",
+                send("GET", "/todos/9", null, "Accept", "application/xml").body());
+    }
+
+    @Test
+    public void testPipelinedRequestsAnsweredInOrder() throws Exception {
+        try (Socket socket = new Socket("localhost", server.port())) {
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /todos/2 HTTP/1.1\r\nHost: x\r\n\r\n"
+                    + "GET /todos/1 HTTP/1.1\r\nHost: x\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            String responses = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            int second = responses.indexOf("file paperwork");
+            int first = responses.indexOf("scan paperwork");
+            Assertions.assertTrue(second > 0 && first > second, responses);
+        }
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        Assertions.assertThrows(IOException.class, () -> send("GET", "/shutdown", null));
+        Assertions.assertFalse(server.isRunning());
+        Assertions.assertTrue(server.awaitTermination(Duration.ofSeconds(5)));
+    }
+}
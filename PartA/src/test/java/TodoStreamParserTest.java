@@ -0,0 +1,39 @@
+import client.TodoStreamParser;
+import client.TodoSummary;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+public class TodoStreamParserTest {
+
+    private static final String TODOS = "{\"todos\":["
+            + "{\"id\":\"1\",\"title\":\"scan paperwork\",\"doneStatus\":\"false\",\"description\":\"\","
+            + "\"categories\":[{\"id\":\"1\"}],\"tasksof\":[{\"id\":\"1\"}]},"
+            + "{\"id\":\"2\",\"title\":\"file paperwork\",\"doneStatus\":true,\"description\":\"d\"}]}";
+
+    @Test
+    public void testReadTodosSkipsRelationships() throws IOException {
+        List<TodoSummary> todos = TodoStreamParser.readTodos(new StringReader(TODOS));
+        Assertions.assertEquals(2, todos.size());
+        Assertions.assertEquals(1, todos.get(0).id());
+        Assertions.assertEquals("scan paperwork", todos.get(0).title());
+        Assertions.assertFalse(todos.get(0).doneStatus());
+        Assertions.assertTrue(todos.get(1).doneStatus());
+        Assertions.assertEquals("d", todos.get(1).description());
+    }
+
+    @Test
+    public void testFindIdByTitleStopsAtMatch() throws IOException {
+        // The body is cut after the first todo, reading past it would fail
+        String truncated = TODOS.substring(0, TODOS.indexOf("{\"id\":\"2\""));
+        Assertions.assertEquals(1, TodoStreamParser.findIdByTitle(
+                new ByteArrayInputStream(truncated.getBytes(StandardCharsets.UTF_8)), "scan paperwork"));
+        Assertions.assertEquals(-1, TodoStreamParser.findIdByTitle(
+                new ByteArrayInputStream(TODOS.getBytes(StandardCharsets.UTF_8)), "missing"));
+    }
+}
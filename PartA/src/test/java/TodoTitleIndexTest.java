@@ -0,0 +1,55 @@
+import client.TodoStreamParser;
+import client.TodoSummary;
+import client.TodoTitleIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+public class TodoTitleIndexTest {
+
+    @Test
+    public void testPutRenameRemove() {
+        TodoTitleIndex index = new TodoTitleIndex();
+        index.put(1, "scan paperwork");
+        index.put(2, "file paperwork");
+        Assertions.assertEquals(1, index.idOf("scan paperwork"));
+
+        index.rename(1, "scan receipts");
+        Assertions.assertEquals(TodoTitleIndex.NOT_FOUND, index.idOf("scan paperwork"));
+        Assertions.assertEquals(1, index.idOf("scan receipts"));
+
+        index.remove(2);
+        Assertions.assertEquals(TodoTitleIndex.NOT_FOUND, index.idOf("file paperwork"));
+        Assertions.assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testDuplicateTitleFallsBackAfterRemove() {
+        TodoTitleIndex index = new TodoTitleIndex();
+        index.put(3, "same");
+        index.put(4, "same");
+        Assertions.assertEquals(3, index.idOf("same"));
+
+        index.remove(3);
+        Assertions.assertEquals(4, index.idOf("same"));
+    }
+
+    @Test
+    public void testRebuildAndVerify() throws IOException {
+        List<TodoSummary> todos = TodoStreamParser.readTodos(new StringReader(
+                "{\"todos\":[{\"id\":\"1\",\"title\":\"a\"},{\"id\":\"2\",\"title\":\"b\"}]}"));
+        TodoTitleIndex index = new TodoTitleIndex();
+        index.rebuild(todos);
+        Assertions.assertTrue(index.verify(todos).isEmpty());
+
+        index.rename(2, "c");
+        index.put(5, "d");
+        Assertions.assertEquals(2, index.verify(todos).size());
+
+        index.invalidate();
+        Assertions.assertEquals(TodoTitleIndex.NOT_FOUND, index.idOf("a"));
+    }
+}
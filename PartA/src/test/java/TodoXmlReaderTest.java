@@ -0,0 +1,34 @@
+import client.TodoXmlReader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+public class TodoXmlReaderTest {
+
+    @Test
+    public void testReadsFirstOccurrenceOfRequestedElements() throws XMLStreamException {
+        String xml = "<todos><todo><id>1</id><title> a </title><tasksof><id>9</id></tasksof></todo>"
+                + "<todo><id>2</id><title>b</title></todo></todos>";
+        Map<String, String> values = TodoXmlReader.readElements(new StringReader(xml), List.of("id", "title", "missing"));
+        Assertions.assertEquals("1", values.get("id"));
+        Assertions.assertEquals("a", values.get("title"));
+        Assertions.assertFalse(values.containsKey("missing"));
+    }
+
+    @Test
+    public void testTextContentIncludesNestedElements() throws XMLStreamException {
+        String xml = "<todo><tasksof><id>9</id></tasksof></todo>";
+        Assertions.assertEquals("9", TodoXmlReader.readElements(new StringReader(xml), List.of("tasksof")).get("tasksof"));
+    }
+
+    @Test
+    public void testStopsOnceAllElementsAreFound() throws XMLStreamException {
+        // Malformed after the title, reading past it would fail
+        String xml = "<todo><id>3</id><title>t</title><<<";
+        Assertions.assertEquals("t", TodoXmlReader.readElements(new StringReader(xml), List.of("title")).get("title"));
+    }
+}
@@ -1,3 +1,8 @@
+import client.TodoClient;
+import client.TodoRequests;
+import client.TodoStreamParser;
+import client.TodoSummary;
+import fixture.ServerFixture;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -5,27 +10,52 @@ import org.junit.jupiter.api.*;
 import org.w3c.dom.Document;
 import org.w3c.dom.NodeList;
 
+import load.AsyncPipeline;
+import load.IdRegistry;
+import load.LoadEngine;
+import load.LoadResult;
+import load.OpenLoadGenerator;
+import load.PayloadCorpus;
+import load.TodoOperation;
+import load.Workload;
+import load.WorkloadResult;
+import metrics.CpuClock;
+import metrics.LatencyHistogram;
+import metrics.LatencyResults;
+import metrics.RegressionReport;
+import metrics.ScalingAnalysis;
+import metrics.SampleStatistics;
+import metrics.TimeSeriesRecorder;
+import metrics.TimeSeriesReport;
+
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
-
-
-import static java.lang.Thread.sleep;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
 
 @TestMethodOrder(MethodOrderer.Random.class)
 public class TodosTest {
 
-    public static Process jar;
+    private static ServerFixture server;
+    // Keep one server alive and reset it between tests, -Dtodo.server.reuse=false starts one per test
+    private static final boolean reuseServer = ServerFixture.reuseEnabled();
     private static MetricsRecorder metricsRecorder;
 
-    static final String baseURL = "http://localhost:4567";
+    static final int port = 4567;
+    static final String baseURL = "http://localhost:" + port;
+    static final TodoClient client = TodoClient.forTarget(baseURL);
 
     static final int SUCCESS = 200;
     static final int CREATED = 201;
@@ -33,36 +63,129 @@ public class TodosTest {
     static final int NOT_FOUND = 404;
     static final int METHOD_NOT_ALLOWED = 405;
 
-    static final int sleepTime = 500;
-    private static final int[] objectCounts = {1, 20, 50, 70, 100, 500};
+    static final int shutdownTimeout = 10;
+    // Batch sizes of the bulk sweeps, e.g. -Dtodo.sweep.sizes=1,100,1000,10000,100000 to see how the server scales
+    private static final int[] objectCounts = parseCounts(System.getProperty("todo.sweep.sizes", "1,20,50,70,100,500"));
+    // Measured iterations per batch size, reported as mean, stdev and 95% confidence interval
+    private static final int iterations = Integer.getInteger("todo.sweep.iterations", 3);
+    // Unmeasured requests each bulk test sends first, to warm up the JIT and the connections
+    private static final int warmupRequests = Integer.getInteger("todo.sweep.warmup", 50);
+    // Number of concurrent clients for the concurrent bulk tests, override with -Dtodo.load.concurrency=1,8,64,1000
+    private static final int[] concurrencyLevels = parseCounts(System.getProperty("todo.load.concurrency", "1,4,16,64"));
+    // Arrival rate (requests per second) for the open-model bulk test, override with -Dtodo.load.rate=500
+    private static final double arrivalRate = Double.parseDouble(System.getProperty("todo.load.rate", "200"));
+    // Bulk responses are only checked for their status, -Dtodo.response.body=string reads them into Strings as the
+    // loops used to, to compare the clientCpu column before and after
+    private static final HttpResponse.BodyHandler<?> bulkResponseHandler =
+            System.getProperty("todo.response.body", "status").equals("string")
+                    ? HttpResponse.BodyHandlers.ofString() : HttpResponse.BodyHandlers.discarding();
+    // How the delete and update sweeps draw their targets among the todos they created, e.g. -Dtodo.targets=zipf:1.2;
+    // non-uniform selections are recorded as e.g. PUT-zipf1.2
+    private static final String targetSelection = System.getProperty("todo.targets", "uniform");
+    private static final IdRegistry.Selection targets = IdRegistry.Selection.parse(targetSelection);
     static final String csvFile = "todo_metrics.csv";
 
-    private JsonObject randomTodo;
+    // Todo bodies generated before the timed loops, -Dtodo.payload.size=TINY|TYPICAL|LARGE
+    private static final PayloadCorpus.SizeClass payloadSize =
+            PayloadCorpus.SizeClass.valueOf(System.getProperty("todo.payload.size", "TYPICAL").toUpperCase());
+    // Optional file to load the corpus from (or save it to), so runs share the exact same bodies
+    private static final String corpusFile = System.getProperty("todo.payload.corpus");
+    static final long corpusSeed = 429;
+    private static PayloadCorpus corpus;
+
+    // Time-series recording of the whole class, e.g. -Dtodo.timeseries=todo_timeseries.log; off by default
+    private static final String timeSeriesFile = System.getProperty("todo.timeseries");
+    private static TimeSeriesRecorder timeSeries;
+
+    // Latency baseline to compare the run with, e.g. -Dtodo.baseline=perf/baseline.txt; created from this run if missing
+    private static final String baselineFile = System.getProperty("todo.baseline");
+    // Slowdown in percent that fails the build when it is also statistically significant
+    private static final double regressionThreshold = Double.parseDouble(System.getProperty("todo.regression.threshold", "10"));
+    static final String regressionReportFile = "todo_regression.txt";
+    // Fitted cost vs. numObjects curves of every operation, see ScalingAnalysis
+    static final String scalingFile = "todo_metrics_scaling.csv";
 
 
 
+    private static int[] parseCounts(String list) {
+        return Arrays.stream(list.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
     @BeforeAll
     public static void setup() throws IOException {
-        metricsRecorder = new MetricsRecorder(csvFile);
+        server = new ServerFixture(port);
+        metricsRecorder = new MetricsRecorder(csvFile, server::sampler);
+        server.enableSampling(metricsRecorder::recordServerSample);
+
+        // Create and update loops each draw up to the largest count of bodies
+        int corpusSize = 2 * Arrays.stream(objectCounts).max().getAsInt();
+        corpus = corpusFile != null
+                ? PayloadCorpus.loadOrGenerate(Path.of(corpusFile), corpusSize, payloadSize, corpusSeed)
+                : PayloadCorpus.generate(corpusSize, payloadSize, corpusSeed);
+
+        if (timeSeriesFile != null) {
+            timeSeries = new TimeSeriesRecorder(Path.of(timeSeriesFile),
+                    Duration.ofMillis(Long.getLong("todo.timeseries.interval", 100)), server::sampler);
+        }
     }
 
     @AfterAll
-    public static void tearDown() throws IOException {
+    public static void tearDown() throws IOException, InterruptedException {
+        server.stop();
+        LatencyHistogram startups = server.startupTimes();
+        metricsRecorder.recordMetrics("STARTUP", (int) startups.count(), (long) (startups.mean() * startups.count() / 1e6), startups);
         metricsRecorder.close();
+        if (timeSeries != null) {
+            timeSeries.close();
+            System.out.print(TimeSeriesReport.read(Path.of(timeSeriesFile)).format());
+        }
+        ScalingAnalysis scaling = ScalingAnalysis.read(Path.of(csvFile));
+        scaling.writeCsv(Path.of(scalingFile));
+        System.out.print(scaling.format());
+        if (baselineFile != null) {
+            checkBaseline(metricsRecorder.results());
+        }
+    }
+
+    // Fails the class, and so the build, when a latency percentile regressed significantly against the baseline
+    private static void checkBaseline(LatencyResults results) throws IOException {
+        Path baseline = Path.of(baselineFile);
+        if (!Files.exists(baseline)) {
+            results.write(baseline);
+            System.out.println("No baseline yet, saved this run as " + baseline);
+            return;
+        }
+        RegressionReport report = RegressionReport.compare(LatencyResults.read(baseline), results, regressionThreshold);
+        Files.writeString(Path.of(regressionReportFile), report.format());
+        System.out.print(report.format());
+        if (report.hasRegressions()) {
+            Assertions.fail(report.regressions().size() + " latency percentiles regressed by more than "
+                    + regressionThreshold + "% against " + baseline + ", see " + regressionReportFile);
+        }
     }
 
     @BeforeEach
-    public void startServer() throws Exception {
-        jar = Runtime.getRuntime().exec("java -jar runTodoManagerRestAPI-1.5.5.jar");
-        sleep(sleepTime);
+    public void startServer(TestInfo test) throws Exception {
+        markPhase(TimeSeriesRecorder.Phase.RESET, test);
+        if (reuseServer) {
+            server.reset();
+        } else {
+            server.start();
+        }
+        markPhase(TimeSeriesRecorder.Phase.MEASURE, test);
     }
 
     @AfterEach
-    public void stopServer() throws InterruptedException{
+    public void stopServer(TestInfo test) throws InterruptedException{
+        markPhase(TimeSeriesRecorder.Phase.COOLDOWN, test);
+        if (!reuseServer) {
+            server.stop();
+        }
+    }
 
-        if(jar.isAlive()){
-            jar.destroy();
-            sleep(sleepTime);
+    private static void markPhase(TimeSeriesRecorder.Phase phase, TestInfo test) {
+        if (timeSeries != null) {
+            timeSeries.phase(phase, test.getTestMethod().map(method -> method.getName()).orElse(test.getDisplayName()));
         }
     }
 
@@ -72,12 +195,11 @@ public class TodosTest {
     // GET /todos
     @Test
     public void testGetTodos() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos"))
+        HttpRequest request = client.request("/todos")
                 .GET()
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
             JsonObject jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
 
@@ -95,12 +217,11 @@ public class TodosTest {
     // GET /todos?doneStatus=true
     @Test
     public void testGetTodosDoneStatusTrue() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos?doneStatus=true"))
+        HttpRequest request = client.request("/todos?doneStatus=true")
                 .GET()
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
             JsonObject jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
 
@@ -118,12 +239,11 @@ public class TodosTest {
     // GET /todos?doneStatus=false
     @Test
     public void testGetTodosDoneStatusFalse() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos?doneStatus=false"))
+        HttpRequest request = client.request("/todos?doneStatus=false")
                 .GET()
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
             JsonObject jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
 
@@ -141,12 +261,11 @@ public class TodosTest {
     // GET /todos?title=scan%20paperwork
     @Test
     public void testGetTodosTitle() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos?title=scan%20paperwork"))
+        HttpRequest request = client.request("/todos?title=scan%20paperwork")
                 .GET()
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
             JsonObject jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
 
@@ -164,12 +283,11 @@ public class TodosTest {
     // PUT /todos
     @Test
     public void testPutTodos() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos"))
+        HttpRequest request = client.request("/todos")
                 .PUT(HttpRequest.BodyPublishers.noBody())
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(METHOD_NOT_ALLOWED, response.statusCode());
@@ -186,13 +304,12 @@ public class TodosTest {
         newTodo.addProperty("doneStatus", false);
         newTodo.addProperty("description", "New Description");
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos"))
+        HttpRequest request = client.request("/todos")
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(newTodo.toString()))
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
             JsonObject jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
 
@@ -210,14 +327,13 @@ public class TodosTest {
     public void testPostTodosXml() {
         String newTodo = "<todo><title>New Todo</title><doneStatus>false</doneStatus><description>New Description</description></todo>";
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos"))
+        HttpRequest request = client.request("/todos")
                 .header("Content-Type", "application/xml")
                 .header("Accept", "application/xml")
                 .POST(HttpRequest.BodyPublishers.ofString(newTodo))
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(CREATED, response.statusCode());
@@ -248,13 +364,12 @@ public class TodosTest {
         newTodo.addProperty("doneStatus", false);
         newTodo.addProperty("description", "New Description");
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos"))
+        HttpRequest request = client.request("/todos")
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(newTodo.toString()))
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(BAD_REQUEST, response.statusCode());
@@ -267,12 +382,11 @@ public class TodosTest {
     // DELETE /todos
     @Test
     public void testDeleteTodos() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos"))
+        HttpRequest request = client.request("/todos")
                 .DELETE()
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(METHOD_NOT_ALLOWED, response.statusCode());
@@ -284,12 +398,11 @@ public class TodosTest {
     // OPTIONS /todos
     @Test
     public void testOptionsTodos() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos"))
+        HttpRequest request = client.request("/todos")
                 .method("OPTIONS", HttpRequest.BodyPublishers.noBody())
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(SUCCESS, response.statusCode());
@@ -302,12 +415,11 @@ public class TodosTest {
     // HEAD /todos
     @Test
     public void testHeadTodos() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos"))
+        HttpRequest request = client.request("/todos")
                 .method("HEAD", HttpRequest.BodyPublishers.noBody())
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(SUCCESS, response.statusCode());
@@ -320,12 +432,11 @@ public class TodosTest {
     // PATCH /todos
     @Test
     public void testPatchTodos() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos"))
+        HttpRequest request = client.request("/todos")
                 .method("PATCH", HttpRequest.BodyPublishers.noBody())
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(METHOD_NOT_ALLOWED, response.statusCode());
@@ -340,12 +451,11 @@ public class TodosTest {
     // GET /todos/:id existing id
     @Test
     public void testGetTodosId() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/1"))
+        HttpRequest request = client.request("/todos/1")
                 .GET()
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
             JsonObject jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
             Assertions.assertEquals(SUCCESS, response.statusCode());
@@ -366,12 +476,11 @@ public class TodosTest {
     // GET /todos/:id non-existing id
     @Test
     public void testGetTodosIdNotFound() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/3"))
+        HttpRequest request = client.request("/todos/3")
                 .GET()
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(NOT_FOUND, response.statusCode());
@@ -384,12 +493,11 @@ public class TodosTest {
     //WARN: Test will fail because it should return 400 but returns 200
     @Test
     public void testPostTodosIdNoBody() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/1"))
+        HttpRequest request = client.request("/todos/1")
                 .POST(HttpRequest.BodyPublishers.noBody())
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(BAD_REQUEST, response.statusCode());
@@ -406,13 +514,12 @@ public class TodosTest {
         newTodo.addProperty("doneStatus", true);
         newTodo.addProperty("description", "New Description");
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/1"))
+        HttpRequest request = client.request("/todos/1")
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(newTodo.toString()))
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
             JsonObject jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
 
@@ -428,12 +535,11 @@ public class TodosTest {
     // POST /todos/:id invalid id
     @Test
     public void testPostTodosInvalidId() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/3"))
+        HttpRequest request = client.request("/todos/3")
                 .POST(HttpRequest.BodyPublishers.noBody())
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(NOT_FOUND, response.statusCode());
@@ -445,12 +551,11 @@ public class TodosTest {
     // PUT /todos/:id No request Body
     @Test
     public void testPutTodosIdNoBody() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/1"))
+        HttpRequest request = client.request("/todos/1")
                 .PUT(HttpRequest.BodyPublishers.noBody())
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(BAD_REQUEST, response.statusCode());
@@ -467,13 +572,12 @@ public class TodosTest {
         newTodo.addProperty("doneStatus", true);
         newTodo.addProperty("description", "New Description");
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/1"))
+        HttpRequest request = client.request("/todos/1")
                 .header("Content-Type", "application/json")
                 .PUT(HttpRequest.BodyPublishers.ofString(newTodo.toString()))
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
             JsonObject jsonResponse = JsonParser.parseString(response.body()).getAsJsonObject();
 
@@ -489,12 +593,11 @@ public class TodosTest {
     // PUT /todos/:id invalid id
     @Test
     public void testPutTodosInvalidId() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/3"))
+        HttpRequest request = client.request("/todos/3")
                 .PUT(HttpRequest.BodyPublishers.noBody())
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(NOT_FOUND, response.statusCode());
@@ -506,12 +609,11 @@ public class TodosTest {
     // DELETE /todos/:id
     @Test
     public void testDeleteTodosId() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/1"))
+        HttpRequest request = client.request("/todos/1")
                 .DELETE()
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(SUCCESS, response.statusCode());
@@ -523,12 +625,11 @@ public class TodosTest {
     // DELETE /todos/:id invalid id
     @Test
     public void testDeleteTodosIdNotFound() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/3"))
+        HttpRequest request = client.request("/todos/3")
                 .DELETE()
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(NOT_FOUND, response.statusCode());
@@ -540,12 +641,11 @@ public class TodosTest {
     // OPTIONS /todos/:id
     @Test
     public void testOptionsTodosId() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/1"))
+        HttpRequest request = client.request("/todos/1")
                 .method("OPTIONS", HttpRequest.BodyPublishers.noBody())
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(SUCCESS, response.statusCode());
@@ -558,12 +658,11 @@ public class TodosTest {
     // HEAD /todos/:id valid id
     @Test
     public void testHeadTodosId() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/1"))
+        HttpRequest request = client.request("/todos/1")
                 .method("HEAD", HttpRequest.BodyPublishers.noBody())
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(SUCCESS, response.statusCode());
@@ -578,12 +677,11 @@ public class TodosTest {
     // HEAD /todos/:id invalid id
     @Test
     public void testHeadTodosIdNotFound() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/3"))
+        HttpRequest request = client.request("/todos/3")
                 .method("HEAD", HttpRequest.BodyPublishers.noBody())
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(NOT_FOUND, response.statusCode());
@@ -596,13 +694,12 @@ public class TodosTest {
     @Test
     public void testPatchTodosId() {
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/1"))
+        HttpRequest request = client.request("/todos/1")
                 .header("Content-Type", "application/json")
                 .method("PATCH", HttpRequest.BodyPublishers.noBody())
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(METHOD_NOT_ALLOWED, response.statusCode());
@@ -617,18 +714,23 @@ public class TodosTest {
     // GET /shutdown
     @Test
     public void testShutdown() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/shutdown"))
+        HttpRequest request = client.request("/shutdown")
                 .GET()
                 .build();
         try {
-            HttpClient.newHttpClient()
+            client
                     .send(request, HttpResponse.BodyHandlers.discarding());
         }catch (IOException | InterruptedException e){
-            Assertions.assertFalse(jar.isAlive(), "Process should be terminated after shutdown");
+            Assertions.assertFalse(server.isRunning(), "Process should be terminated after shutdown");
         }
 
-        Assertions.assertFalse(jar.isAlive(), "Process should be terminated after shutdown");
+        // The process exits shortly after answering, give it time instead of racing it
+        try {
+            server.awaitExit(Duration.ofSeconds(shutdownTimeout));
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+        Assertions.assertFalse(server.isRunning(), "Process should be terminated after shutdown");
 
     }
 
@@ -638,13 +740,12 @@ public class TodosTest {
     // Malformed JSON
     @Test
     public void testPostMalformedJson() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos"))
+        HttpRequest request = client.request("/todos")
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString("{\"title\": \"New Todo\""))
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(BAD_REQUEST, response.statusCode());
@@ -656,13 +757,12 @@ public class TodosTest {
     // Malformed XML
     @Test
     public void testPostMalformedXml() {
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos"))
+        HttpRequest request = client.request("/todos")
                 .header("Content-Type", "application/xml")
                 .POST(HttpRequest.BodyPublishers.ofString("<title>New Todo</title>"))
                 .build();
         try{
-            HttpResponse<String> response = HttpClient.newHttpClient()
+            HttpResponse<String> response = client
                     .send(request, HttpResponse.BodyHandlers.ofString());
 
             Assertions.assertEquals(BAD_REQUEST, response.statusCode());
@@ -675,121 +775,236 @@ public class TodosTest {
 
     // Testing /todos APIs with different number of objects
 
-    @Test
-    public void testCreateMultipleTodos() {
-        for (int numObjects : objectCounts) {
-            long startTime = System.currentTimeMillis();
-            for (int i = 0; i < numObjects; i++) {
-                randomTodo = RandomTodoGenerator.generateTodo();
-                HttpRequest request = HttpRequest.newBuilder()
-                        .uri(URI.create(baseURL + "/todos"))
-                        .header("Content-Type", "application/json")
-                        .POST(HttpRequest.BodyPublishers.ofString(randomTodo.toString()))
-                        .build();
-                try {
-                    HttpClient.newHttpClient()
-                            .send(request, HttpResponse.BodyHandlers.ofString());
-                } catch (IOException | InterruptedException e) {
-                    e.printStackTrace();
-                }
+    // Operation name recorded for a bulk test, tagged with the payload size class unless it is the default
+    private static String label(String operation) {
+        return payloadSize == PayloadCorpus.SizeClass.TYPICAL ? operation : operation + "-" + payloadSize.name().toLowerCase();
+    }
+
+    // Sends a bulk request and records its latency under the given operation and its id
+    private void sendTimed(String operation, int operationId, HttpRequest request) {
+        long startTime = System.nanoTime();
+        try {
+            HttpResponse<?> response = client.send(request, bulkResponseHandler);
+            long latency = System.nanoTime() - startTime;
+            metricsRecorder.recordRequest(operation, operationId, latency, response.statusCode());
+            if (timeSeries != null) {
+                timeSeries.record(latency, response.statusCode() < 400);
             }
-            long endTime = System.currentTimeMillis();
+        } catch (IOException | InterruptedException e) {
+            metricsRecorder.recordRequest(operation, operationId, System.nanoTime() - startTime, 0);
+            if (timeSeries != null) {
+                timeSeries.record(System.nanoTime() - startTime, false);
+            }
+            e.printStackTrace();
+        }
+    }
+
+    // Creates count todos from the corpus untimed and returns their ids, read from the 201 responses
+    private IdRegistry createTracked(int count) {
+        IdRegistry ids = new IdRegistry();
+        for (int i = 0; i < count; i++) {
+            HttpRequest createRequest = TodoRequests.createTodo(client, corpus.payload(i));
             try {
-                metricsRecorder.recordMetrics("POST", numObjects, endTime - startTime);
-            } catch (IOException e) {
+                ids.received(createRequest, client.send(createRequest, HttpResponse.BodyHandlers.discarding()));
+            } catch (IOException | InterruptedException e) {
                 e.printStackTrace();
             }
         }
+        Assertions.assertEquals(count, ids.size(), "Not every todo to target was created");
+        return ids;
+    }
+
+    private static String targeted(String operation) {
+        return targetSelection.equals("uniform") ? operation : operation + "-" + targetSelection.replace(":", "");
+    }
+
+    // Sends requests 0..warmupRequests-1 untimed, in the time series' warm-up phase if one is recorded
+    private void warmUp(String operation, IntFunction<HttpRequest> request) {
+        if (timeSeries != null) {
+            timeSeries.phase(TimeSeriesRecorder.Phase.WARMUP, operation);
+        }
+        for (int i = 0; i < warmupRequests; i++) {
+            try {
+                client.send(request.apply(i), HttpResponse.BodyHandlers.discarding());
+            } catch (IOException | InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+        if (timeSeries != null) {
+            timeSeries.phase(TimeSeriesRecorder.Phase.MEASURE, operation);
+        }
     }
 
     @Test
-    public void testDeleteMultipleTodos() {
+    public void testCreateMultipleTodos() {
+        String operation = label("POST");
+        int operationId = metricsRecorder.operationId(operation);
+        warmUp(operation, i -> TodoRequests.createTodo(client, corpus.payload(i)));
         for (int numObjects : objectCounts) {
-            // Create test objects first
-            for (int i = 0; i < numObjects; i++) {
-                randomTodo = RandomTodoGenerator.generateTodo();
-                HttpRequest createRequest = HttpRequest.newBuilder()
-                        .uri(URI.create(baseURL + "/todos"))
-                        .header("Content-Type", "application/json")
-                        .POST(HttpRequest.BodyPublishers.ofString(randomTodo.toString()))
-                        .build();
-                try {
-                    HttpClient.newHttpClient()
-                            .send(createRequest, HttpResponse.BodyHandlers.ofString());
-                } catch (IOException | InterruptedException e) {
-                    e.printStackTrace();
+            SampleStatistics durations = new SampleStatistics();
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                long cpuStart = CpuClock.currentThreadCpuNanos();
+                long startTime = System.currentTimeMillis();
+                for (int i = 0; i < numObjects; i++) {
+                    HttpRequest request = TodoRequests.createTodo(client, corpus.payload(i));
+                    sendTimed(operation, operationId, request);
                 }
+                long endTime = System.currentTimeMillis();
+                durations.add(endTime - startTime);
+                metricsRecorder.recordCpu(operation, cpuStart < 0 ? -1 : CpuClock.currentThreadCpuNanos() - cpuStart);
             }
+            metricsRecorder.recordMetrics(operation, numObjects, durations);
+        }
+    }
 
-            // Measure time for deleting objects
-            long startTime = System.currentTimeMillis();
-            for (int i = 0; i < numObjects; i++) {
-                HttpRequest deleteRequest = HttpRequest.newBuilder()
-                        .uri(URI.create(baseURL + "/todos/" + i)) // Assuming IDs are sequential
-                        .DELETE()
-                        .build();
-                try {
-                    HttpClient.newHttpClient()
-                            .send(deleteRequest, HttpResponse.BodyHandlers.ofString());
-                } catch (IOException | InterruptedException e) {
-                    e.printStackTrace();
+    @Test
+    public void testDeleteMultipleTodos() {
+        String operation = targeted("DELETE");
+        int operationId = metricsRecorder.operationId(operation);
+        // Warm up on todos of its own, so the warm-up deletes real todos rather than running the 404 path
+        IdRegistry warmupIds = createTracked(warmupRequests);
+        warmUp(operation, i -> TodoRequests.deleteTodo(client, warmupIds.take(targets)));
+        for (int numObjects : objectCounts) {
+            SampleStatistics durations = new SampleStatistics();
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                // Create test objects first, each delete then takes one of them so none is deleted twice
+                IdRegistry ids = createTracked(numObjects);
+
+                // Measure time for deleting objects
+                long cpuStart = CpuClock.currentThreadCpuNanos();
+                long startTime = System.currentTimeMillis();
+                for (int i = 0; i < numObjects; i++) {
+                    HttpRequest deleteRequest = TodoRequests.deleteTodo(client, ids.take(targets));
+                    sendTimed(operation, operationId, deleteRequest);
                 }
+                long endTime = System.currentTimeMillis();
+                durations.add(endTime - startTime);
+                metricsRecorder.recordCpu(operation, cpuStart < 0 ? -1 : CpuClock.currentThreadCpuNanos() - cpuStart);
             }
-            long endTime = System.currentTimeMillis();
 
-            try {
-                metricsRecorder.recordMetrics("DELETE", numObjects, endTime - startTime);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            metricsRecorder.recordMetrics(operation, numObjects, durations);
         }
     }
 
     @Test
     public void testUpdateMultipleTodos() {
+        String operation = targeted(label("PUT"));
+        int operationId = metricsRecorder.operationId(operation);
+        IdRegistry warmupIds = createTracked(warmupRequests);
+        warmUp(operation, i -> TodoRequests.updateTodo(client, warmupIds.pick(targets), corpus.payload(i)));
         for (int numObjects : objectCounts) {
-            // Create test objects first
-            for (int i = 0; i < numObjects; i++) {
-                randomTodo = RandomTodoGenerator.generateTodo();
-                HttpRequest createRequest = HttpRequest.newBuilder()
-                        .uri(URI.create(baseURL + "/todos/" + i))
-                        .header("Content-Type", "application/json")
-                        .POST(HttpRequest.BodyPublishers.ofString(randomTodo.toString()))
-                        .build();
-                try {
-                    HttpClient.newHttpClient()
-                            .send(createRequest, HttpResponse.BodyHandlers.ofString());
-                } catch (IOException | InterruptedException e) {
-                    e.printStackTrace();
+            SampleStatistics durations = new SampleStatistics();
+            // Create test objects first, every iteration updates targets drawn from them
+            IdRegistry ids = createTracked(numObjects);
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                // Measure time for updating objects
+                long cpuStart = CpuClock.currentThreadCpuNanos();
+                long startTime = System.currentTimeMillis();
+                for (int i = 0; i < numObjects; i++) {
+                    HttpRequest updateRequest = TodoRequests.updateTodo(client, ids.pick(targets), corpus.payload(numObjects + i));
+                    sendTimed(operation, operationId, updateRequest);
+                }
+                long endTime = System.currentTimeMillis();
+                durations.add(endTime - startTime);
+                metricsRecorder.recordCpu(operation, cpuStart < 0 ? -1 : CpuClock.currentThreadCpuNanos() - cpuStart);
+            }
+
+            metricsRecorder.recordMetrics(operation, numObjects, durations);
+        }
+    }
+
+    @Test
+    public void testCreateMultipleTodosConcurrently() {
+        warmUp(label("POST"), i -> TodoRequests.createTodo(client, corpus.payload(i)));
+        for (int concurrency : concurrencyLevels) {
+            LoadEngine engine = new LoadEngine(client, concurrency, timeSeries);
+            for (int numObjects : objectCounts) {
+                List<LoadResult> results = new ArrayList<>();
+                for (int iteration = 0; iteration < iterations; iteration++) {
+                    try {
+                        LoadResult result = engine.run("POST", numObjects,
+                                (worker, sequence) -> TodoRequests.createTodo(client, corpus.payload(sequence)));
+                        Assertions.assertEquals(0, result.errors(), "Concurrent POST requests failed: " + result);
+                        results.add(result);
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
                 }
+                metricsRecorder.recordMetrics(label("POST-c" + concurrency), numObjects, results);
             }
+        }
+    }
 
-            // Measure time for updating objects
-            long startTime = System.currentTimeMillis();
-            for (int i = 0; i < numObjects; i++) {
-                randomTodo = RandomTodoGenerator.generateTodo();
-                HttpRequest updateRequest = HttpRequest.newBuilder()
-                        .uri(URI.create(baseURL + "/todos/" + i)) // Assuming IDs are sequential
-                        .header("Content-Type", "application/json")
-                        .PUT(HttpRequest.BodyPublishers.ofString(randomTodo.toString()))
-                        .build();
-                try {
-                    HttpClient.newHttpClient()
-                            .send(updateRequest, HttpResponse.BodyHandlers.ofString());
-                } catch (IOException | InterruptedException e) {
-                    e.printStackTrace();
+    // One thread with up to `concurrency` sendAsync requests in flight instead of one thread per request
+    @Test
+    public void testCreateMultipleTodosAsync() {
+        warmUp(label("POST"), i -> TodoRequests.createTodo(client, corpus.payload(i)));
+        for (int concurrency : concurrencyLevels) {
+            AsyncPipeline pipeline = new AsyncPipeline(client, concurrency, AsyncPipeline.Completion.UNORDERED, timeSeries);
+            for (int numObjects : objectCounts) {
+                List<LoadResult> results = new ArrayList<>();
+                for (int iteration = 0; iteration < iterations; iteration++) {
+                    try {
+                        LoadResult result = pipeline.run("POST", numObjects,
+                                (worker, sequence) -> TodoRequests.createTodo(client, corpus.payload(sequence)));
+                        Assertions.assertEquals(0, result.errors(), "Async POST requests failed: " + result);
+                        results.add(result);
+                    } catch (InterruptedException e) {
+                        e.printStackTrace();
+                    }
                 }
+                metricsRecorder.recordMetrics(label("POST-a" + concurrency), numObjects, results);
             }
-            long endTime = System.currentTimeMillis();
+        }
+    }
 
-            try {
-                metricsRecorder.recordMetrics("PUT", numObjects, endTime - startTime);
-            } catch (IOException e) {
-                e.printStackTrace();
+    @Test
+    public void testCreateMultipleTodosAtConstantRate() {
+        warmUp(label("POST"), i -> TodoRequests.createTodo(client, corpus.payload(i)));
+        OpenLoadGenerator generator = new OpenLoadGenerator(client, arrivalRate, timeSeries);
+        for (int numObjects : objectCounts) {
+            List<LoadResult> results = new ArrayList<>();
+            for (int iteration = 0; iteration < iterations; iteration++) {
+                LoadResult result = generator.run("POST", numObjects,
+                        (worker, sequence) -> TodoRequests.createTodo(client, corpus.payload(sequence)));
+                Assertions.assertEquals(0, result.errors(), "Open-model POST requests failed: " + result);
+                results.add(result);
             }
+            metricsRecorder.recordMetrics(label("POST-r" + (int) arrivalRate), numObjects, results);
         }
     }
 
+    @Test
+    public void testMixedWorkloads() throws IOException, InterruptedException {
+        int requests = 300;
+        LoadEngine engine = new LoadEngine(client, 4, timeSeries);
+        for (Workload workload : Arrays.asList(Workload.readHeavy(), Workload.writeHeavy(), Workload.crudCycle())) {
+            // Todos for the reads and updates to target, and one per request for the deletes so none is deleted twice
+            LoadResult created = new LoadEngine(client, 16).run("POST", 20 + requests,
+                    (worker, sequence) -> TodoRequests.createTodo(client, corpus.payload(sequence)));
+            Assertions.assertEquals(0, created.errors(), "Creating the workload's todos failed: " + created);
+            int[] ids = listTodoIds();
+            int[] targetIds = Arrays.copyOf(ids, 20);
+            int[] deleteIds = Arrays.copyOfRange(ids, 20, ids.length);
 
+            WorkloadResult result = engine.run(workload, requests, (worker, sequence, entry) -> entry.request(client,
+                    entry.operation() == TodoOperation.DELETE ? deleteIds[sequence] : targetIds[sequence % targetIds.length],
+                    corpus.payload(sequence)));
+            Assertions.assertEquals(0, result.total().errors(), "Mixed workload requests failed: " + result);
+            for (LoadResult operation : result.operations()) {
+                metricsRecorder.recordMetrics(label("MIX-" + workload.name() + "/" + operation.operation()), requests, operation);
+            }
+        }
+    }
+
+    // Ids of the todos on the server, in the order GET /todos lists them
+    private static int[] listTodoIds() throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(TodoRequests.getTodos(client, ""),
+                HttpResponse.BodyHandlers.ofInputStream());
+        Assertions.assertEquals(SUCCESS, response.statusCode());
+        try (InputStream body = response.body()) {
+            return TodoStreamParser.readTodos(body).stream().mapToInt(TodoSummary::id).toArray();
+        }
+    }
 
 }
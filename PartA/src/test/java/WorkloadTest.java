@@ -0,0 +1,49 @@
+import load.TodoOperation;
+import load.Workload;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+public class WorkloadTest {
+
+    @Test
+    public void testMixFollowsWeights() {
+        Workload workload = Workload.builder("mix")
+                .add(TodoOperation.LIST, "?doneStatus=false", 3)
+                .add(TodoOperation.CREATE, 1)
+                .build();
+        int[] counts = new int[2];
+        for (int sequence = 0; sequence < 40_000; sequence++) {
+            counts[workload.entryIndex(sequence)]++;
+        }
+        Assertions.assertEquals(30_000, counts[0], 600);
+        Assertions.assertEquals(10_000, counts[1], 600);
+        Assertions.assertEquals(workload.entryIndex(1234), workload.entryIndex(1234));
+    }
+
+    @Test
+    public void testParsesJsonDefinition() {
+        Workload workload = Workload.parse(new StringReader("{\"name\": \"polls\", \"seed\": 7, \"operations\": ["
+                + "{\"operation\": \"list\", \"query\": \"?doneStatus=false\", \"weight\": 60},"
+                + "{\"name\": \"get-one\", \"operation\": \"get\", \"weight\": 40}]}"));
+        Assertions.assertEquals("polls", workload.name());
+        Assertions.assertEquals(2, workload.entries().size());
+        Assertions.assertEquals("list?doneStatus=false", workload.entries().get(0).name());
+        Assertions.assertEquals("get-one", workload.entries().get(1).name());
+        Assertions.assertEquals(TodoOperation.GET, workload.entries().get(1).operation());
+    }
+
+    @Test
+    public void testRejectsInvalidDefinitions() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Workload.builder("empty").build());
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Workload.builder("w").add(TodoOperation.CREATE, 0));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Workload.builder("w").add(TodoOperation.DELETE, "?title=a", 1));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Workload.builder("w").add(TodoOperation.GET, 1).add(TodoOperation.GET, 2));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> Workload.parse(new StringReader("{\"operations\": [{\"operation\": \"get\"}]}")));
+    }
+}
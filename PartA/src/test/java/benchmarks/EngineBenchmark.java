@@ -0,0 +1,84 @@
+package benchmarks;
+
+import client.ClientConfig;
+import client.RawRequests;
+import client.TodoClient;
+import client.TodoRequests;
+import load.AsyncPipeline;
+import load.LoadEngine;
+import load.LoadResult;
+import load.PipelinedEngine;
+import org.openjdk.jmh.annotations.*;
+import server.TodoServer;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Highest GET /todos/{id} rate each load engine generates against the in-process stand-in, with the same
+// number of requests in flight; the stand-in shares the machine, so this is the rate of engine plus server
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+
+    private static final int BATCH = 2000;
+
+    // threads: LoadEngine workers, async: AsyncPipeline, nio: PipelinedEngine over 4 connections
+    @Param({"threads", "async", "nio"})
+    public String engine;
+
+    // Requests in flight
+    @Param({"16", "64"})
+    public int inFlight;
+
+    private TodoServer server;
+    private TodoClient client;
+    private LoadEngine threads;
+    private AsyncPipeline async;
+    private PipelinedEngine nio;
+    private HttpRequest request;
+    private byte[] rawRequest;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        server = TodoServer.start(0);
+        String baseURL = "http://localhost:" + server.port();
+        client = new TodoClient(baseURL, ClientConfig.defaults());
+        request = TodoRequests.getTodo(client, 1);
+        rawRequest = new RawRequests(baseURL).getTodo(1);
+        threads = new LoadEngine(client, inFlight);
+        async = new AsyncPipeline(client, inFlight, AsyncPipeline.Completion.UNORDERED);
+        nio = new PipelinedEngine(baseURL, 4, inFlight / 4);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException {
+        server.close();
+        server.awaitTermination(Duration.ofSeconds(10));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public long getTodo() throws IOException, InterruptedException {
+        LoadResult result;
+        switch (engine) {
+            case "threads":
+                result = threads.run("GET", BATCH, (worker, sequence) -> request);
+                break;
+            case "async":
+                result = async.run("GET", BATCH, (worker, sequence) -> request);
+                break;
+            default:
+                result = nio.run("GET", BATCH, sequence -> rawRequest);
+        }
+        if (result.errors() > 0) {
+            throw new IllegalStateException("GET failed: " + result);
+        }
+        return result.requests();
+    }
+}
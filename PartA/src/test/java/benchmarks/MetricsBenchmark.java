@@ -0,0 +1,49 @@
+package benchmarks;
+
+import metrics.LatencyHistogram;
+import metrics.MetricsSink;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Hot-path cost of recording one request sample, shared by 4 threads to include contention
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+public class MetricsBenchmark {
+
+    private LatencyHistogram histogram;
+    private MetricsSink sink;
+    private Path file;
+    private int operation;
+
+    @Setup
+    public void setup() throws IOException {
+        histogram = new LatencyHistogram();
+        file = Files.createTempFile("metrics-sink", ".csv");
+        sink = new MetricsSink(file, null, 1 << 16, MetricsSink.OverflowPolicy.DROP);
+        operation = sink.operation("POST");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sink.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void recordHistogram() {
+        histogram.record(1_234_567);
+    }
+
+    @Benchmark
+    public boolean offerSample() {
+        return sink.offerSample(operation, 1_234_567, 201);
+    }
+}
@@ -0,0 +1,43 @@
+package benchmarks;
+
+import com.google.gson.JsonObject;
+import load.PayloadCorpus;
+import load.RandomTodoGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Client-side cost of building a POST/PUT body in the bulk tests
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PayloadBenchmark {
+
+    private JsonObject todo;
+    private PayloadCorpus corpus;
+    private int next;
+
+    @Setup
+    public void setup() {
+        todo = RandomTodoGenerator.generateTodo();
+        corpus = PayloadCorpus.generate(1000, PayloadCorpus.SizeClass.TYPICAL, 429);
+    }
+
+    @Benchmark
+    public JsonObject generateTodo() {
+        return RandomTodoGenerator.generateTodo();
+    }
+
+    @Benchmark
+    public String serializeTodo() {
+        return todo.toString();
+    }
+
+    // What the bulk loops pay per body once the corpus is generated
+    @Benchmark
+    public byte[] corpusPayload() {
+        return corpus.payload(next++);
+    }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import client.TodoStreamParser;
+import client.TodoSummary;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import load.RandomTodoGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Client-side cost of parsing GET /todos responses: JsonObject tree against the streaming TodoStreamParser
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ResponseParsingBenchmark {
+
+    // Number of todos in the GET /todos response
+    @Param({"10", "500", "10000", "100000"})
+    public int todos;
+
+    private byte[] todosJson;
+    private String middleTitle;
+
+    @Setup
+    public void setup() {
+        String response = todosResponse(todos);
+        todosJson = response.getBytes(StandardCharsets.UTF_8);
+        JsonArray list = JsonParser.parseString(response).getAsJsonObject().get("todos").getAsJsonArray();
+        middleTitle = list.get(todos / 2).getAsJsonObject().get("title").getAsString();
+    }
+
+    @Benchmark
+    public JsonArray treeParse() {
+        return parseTree();
+    }
+
+    @Benchmark
+    public List<TodoSummary> streamingParse() throws IOException {
+        return TodoStreamParser.readTodos(new ByteArrayInputStream(todosJson));
+    }
+
+    // Title lookup the way the steps did it before: whole tree, then a scan
+    @Benchmark
+    public int treeFindByTitle() {
+        for (JsonElement element : parseTree()) {
+            JsonObject todo = element.getAsJsonObject();
+            if (todo.get("title").getAsString().equals(middleTitle)) {
+                return todo.get("id").getAsInt();
+            }
+        }
+        return -1;
+    }
+
+    @Benchmark
+    public int streamingFindByTitle() throws IOException {
+        return TodoStreamParser.findIdByTitle(new ByteArrayInputStream(todosJson), middleTitle);
+    }
+
+    private JsonArray parseTree() {
+        JsonObject response = JsonParser.parseReader(
+                new InputStreamReader(new ByteArrayInputStream(todosJson), StandardCharsets.UTF_8)).getAsJsonObject();
+        return response.get("todos").getAsJsonArray();
+    }
+
+    // Builds a GET /todos body shaped like the Todo Manager's
+    static String todosResponse(int count) {
+        JsonArray list = new JsonArray();
+        for (int i = 0; i < count; i++) {
+            JsonObject todo = RandomTodoGenerator.generateTodo();
+            todo.addProperty("id", String.valueOf(i + 1));
+            todo.addProperty("doneStatus", todo.get("doneStatus").getAsString());
+            list.add(todo);
+        }
+        JsonObject response = new JsonObject();
+        response.add("todos", list);
+        return response.toString();
+    }
+}
@@ -0,0 +1,63 @@
+package benchmarks;
+
+import client.TodoClient;
+import client.TodoRequests;
+import fixture.ServerFixture;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+// Request throughput of the Todo Manager jar against the in-process stand-in, over one client; see ServerStartupBenchmark for start-up
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServerBenchmark {
+
+    // Server under test: "jar" or "standin"
+    @Param({"jar", "standin"})
+    public String server;
+
+    private static final int PORT = 4580;
+
+    private ServerFixture fixture;
+    private TodoClient client;
+    private String body;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException, InterruptedException {
+        fixture = new ServerFixture(PORT, server.equals("standin"));
+        fixture.start();
+        client = TodoClient.forTarget(fixture.baseURL());
+        body = "{\"title\":\"benchmark\",\"doneStatus\":false,\"description\":\"created by ServerBenchmark\"}";
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() throws InterruptedException {
+        fixture.stop();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int getTodo() throws IOException, InterruptedException {
+        return client.send(TodoRequests.getTodo(client, 1), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int listDone() throws IOException, InterruptedException {
+        return client.send(TodoRequests.getTodos(client, "?doneStatus=true"), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    // Grows the store for the rest of the trial, as a load run does
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public int createTodo() throws IOException, InterruptedException {
+        return client.send(TodoRequests.createTodo(client, body), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import fixture.ServerFixture;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Cold start of the Todo Manager jar against the in-process stand-in: spawn (or open) to first successful GET /todos
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ServerStartupBenchmark {
+
+    // Server under test: "jar" or "standin"
+    @Param({"jar", "standin"})
+    public String server;
+
+    private ServerFixture fixture;
+
+    @Setup(Level.Invocation)
+    public void create() {
+        fixture = new ServerFixture(4581, server.equals("standin"));
+    }
+
+    @TearDown(Level.Invocation)
+    public void stop() throws InterruptedException {
+        fixture.stop();
+    }
+
+    @Benchmark
+    public long startup() throws IOException, InterruptedException {
+        fixture.start();
+        return fixture.startupTimes().max();
+    }
+}
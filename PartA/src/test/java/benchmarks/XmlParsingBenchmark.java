@@ -0,0 +1,74 @@
+package benchmarks;
+
+import client.TodoXmlReader;
+import org.openjdk.jmh.annotations.*;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Client-side cost of validating the XML responses checked by the Cucumber steps: DOM against StAX
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class XmlParsingBenchmark {
+
+    // Elements the steps usually ask for
+    private static final List<String> ELEMENTS = List.of("id", "title", "doneStatus", "description");
+
+    // Todos in the response, 1 is a single <todo> as returned by POST /todos
+    @Param({"1", "500", "10000"})
+    public int todos;
+
+    private String xml;
+
+    @Setup
+    public void setup() {
+        xml = todos == 1 ? todoXml(1) : todosXml(todos);
+    }
+
+    // The previous step code: a new factory and a full DOM per response, then getElementsByTagName
+    @Benchmark
+    public Map<String, String> domValidate() throws Exception {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        Document doc = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        doc.getDocumentElement().normalize();
+        Map<String, String> values = new HashMap<>();
+        for (String element : ELEMENTS) {
+            values.put(element, doc.getElementsByTagName(element).item(0).getTextContent().trim());
+        }
+        return values;
+    }
+
+    @Benchmark
+    public Map<String, String> staxValidate() throws Exception {
+        return TodoXmlReader.readElements(new StringReader(xml), ELEMENTS);
+    }
+
+    // Worst case for StAX: an element that is not there makes it read the whole body
+    @Benchmark
+    public Map<String, String> staxFullScan() throws Exception {
+        return TodoXmlReader.readElements(new StringReader(xml), List.of("missing"));
+    }
+
+    private static String todoXml(int id) {
+        return "<todo><doneStatus>false</doneStatus><description>Second part of the project</description>"
+                + "<id>" + id + "</id><title>ECSE429-PartB</title></todo>";
+    }
+
+    // Builds a GET /todos XML body shaped like the Todo Manager's
+    private static String todosXml(int count) {
+        StringBuilder body = new StringBuilder("<todos>");
+        for (int i = 0; i < count; i++) {
+            body.append(todoXml(i + 1));
+        }
+        return body.append("</todos>").toString();
+    }
+}
@@ -0,0 +1,385 @@
+package fixture;
+
+import client.TodoClient;
+import client.TodoRequests;
+import client.TodoTitleIndex;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import load.LoadEngine;
+import load.LoadResult;
+import metrics.LatencyHistogram;
+import metrics.ProcessSampler;
+import metrics.ResourceSample;
+import server.TodoServer;
+
+import java.io.IOException;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs runTodoManagerRestAPI-1.5.5.jar, or with -Dtodo.server=standin the in-process TodoServer, for the test suites.
+ * <p>
+ * Instead of sleeping a fixed time, start() polls GET /todos with exponential backoff until the server
+ * answers or the start deadline passes. Between tests reset() puts the server back in its start-up
+ * state without a new JVM: todos created by the test are deleted and the seeded todos are amended back
+ * to their original fields. If a seeded todo was deleted its id cannot be restored through the API,
+ * so the server is restarted instead. Every start is timed into startupTimes().
+ * With enableSampling() every jar started is watched by a ProcessSampler until it is stopped; the stand-in
+ * shares the test JVM, so it is not sampled and resource columns stay empty.
+ */
+public class ServerFixture {
+
+    public static final String JAR = "runTodoManagerRestAPI-1.5.5.jar";
+
+    // Which server to run: "jar" (default) or "standin"
+    public static final String SERVER_PROPERTY = "todo.server";
+    // Keep one server alive across tests ("true", default) or start a new one for every test ("false")
+    public static final String REUSE_PROPERTY = "todo.server.reuse";
+    // Deadline for the server to answer after being spawned, in seconds
+    public static final String START_TIMEOUT_PROPERTY = "todo.server.startTimeout";
+    // Interval between two resource samples of the server process, in milliseconds
+    public static final String SAMPLE_INTERVAL_PROPERTY = "todo.server.sampleInterval";
+
+    private static final long FIRST_BACKOFF_MILLIS = 10;
+    private static final long MAX_BACKOFF_MILLIS = 250;
+    private static final int RESET_CONCURRENCY = 16;
+    private static final int RESET_ATTEMPTS = 3;
+
+    private final int port;
+    private final TodoClient client;
+    private final Duration startTimeout;
+    private final LatencyHistogram startupTimes = new LatencyHistogram();
+    private final TodoTitleIndex titleIndex = new TodoTitleIndex();
+
+    private final boolean standIn;
+
+    private Process process;
+    private TodoServer standInServer;
+    private ProcessSampler sampler;
+    private boolean sampling;
+    private Consumer<ResourceSample> sampleListener;
+    // Seeded todos by id, captured from the first server that came up
+    private Map<Integer, JsonObject> seed;
+
+    public ServerFixture(int port) {
+        this(port, standInEnabled());
+    }
+
+    public ServerFixture(int port, boolean standIn) {
+        this.port = port;
+        this.client = TodoClient.forTarget(baseURL());
+        this.startTimeout = Duration.ofSeconds(Long.getLong(START_TIMEOUT_PROPERTY, 30));
+        this.standIn = standIn;
+    }
+
+    public static boolean standInEnabled() {
+        return System.getProperty(SERVER_PROPERTY, "jar").equals("standin");
+    }
+
+    public static boolean reuseEnabled() {
+        return Boolean.parseBoolean(System.getProperty(REUSE_PROPERTY, "true"));
+    }
+
+    public String baseURL() {
+        return "http://localhost:" + port;
+    }
+
+    public int port() {
+        return port;
+    }
+
+    // The jar's process, null for the stand-in
+    public Process process() {
+        return process;
+    }
+
+    public boolean isRunning() {
+        return standIn ? standInServer != null && standInServer.isRunning() : process != null && process.isAlive();
+    }
+
+    // Waits up to timeout for the server to exit on its own (e.g. after GET /shutdown), true when it did
+    public boolean awaitExit(Duration timeout) throws InterruptedException {
+        if (standIn) {
+            return standInServer == null || standInServer.awaitTermination(timeout);
+        }
+        return process == null || process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    // Title to id index of this server's todos, kept by the code that changes them
+    public TodoTitleIndex titleIndex() {
+        return titleIndex;
+    }
+
+    // Samples every server started from now on, calling listener (may be null) with each periodic sample
+    public void enableSampling(Consumer<ResourceSample> listener) {
+        sampling = !standIn && ProcessSampler.supported();
+        sampleListener = listener;
+        if (sampling && isRunning() && sampler == null) {
+            startSampler();
+        }
+    }
+
+    // Sampler of the running server, null when sampling is off or no server is running
+    public ProcessSampler sampler() {
+        return sampler;
+    }
+
+    // Startup time of every server started by this fixture, from spawn to first successful GET /todos
+    public LatencyHistogram startupTimes() {
+        return startupTimes;
+    }
+
+    public void start() throws IOException, InterruptedException {
+        long startTime = System.nanoTime();
+        if (standIn) {
+            standInServer = TodoServer.start(port);
+        } else {
+            process = new ProcessBuilder("java", "-jar", JAR, "-port=" + port)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start();
+        }
+        // Connections pooled for a previous server on this port are dead, and so are its ids
+        client.reconnect();
+        titleIndex.invalidate();
+        JsonArray todos = awaitReady(startTime + startTimeout.toNanos());
+        startupTimes.record(System.nanoTime() - startTime);
+        if (seed == null) {
+            seed = snapshot(todos);
+        }
+        if (sampling) {
+            startSampler();
+        }
+    }
+
+    private void startSampler() {
+        sampler = new ProcessSampler(process.pid(), Duration.ofMillis(Long.getLong(SAMPLE_INTERVAL_PROPERTY, 100)),
+                sampleListener);
+        sampler.start();
+    }
+
+    public void stop() throws InterruptedException {
+        if (sampler != null) {
+            sampler.close();
+            sampler = null;
+        }
+        if (standInServer != null) {
+            standInServer.close();
+            standInServer.awaitTermination(Duration.ofSeconds(10));
+            standInServer = null;
+        }
+        if (process == null) {
+            return;
+        }
+        process.destroy();
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+        process = null;
+    }
+
+    public void restart() throws IOException, InterruptedException {
+        stop();
+        start();
+    }
+
+    // Brings the server back to its start-up state, starting it if it is not running
+    public void reset() throws IOException, InterruptedException {
+        if (!isRunning()) {
+            stop();
+            start();
+            return;
+        }
+        JsonArray todos = getTodos();
+        List<Integer> created = new ArrayList<>();
+        Map<Integer, JsonObject> current = new LinkedHashMap<>();
+        for (JsonElement element : todos) {
+            JsonObject todo = element.getAsJsonObject();
+            int id = todo.get("id").getAsInt();
+            if (seed.containsKey(id)) {
+                current.put(id, todo);
+            } else {
+                created.add(id);
+            }
+        }
+        if (current.size() != seed.size()) {
+            restart();
+            return;
+        }
+
+        if (deleteAll(created) > 0) {
+            restart();
+            return;
+        }
+        for (Map.Entry<Integer, JsonObject> entry : seed.entrySet()) {
+            JsonObject original = entry.getValue();
+            if (!sameFields(original, current.get(entry.getKey()))) {
+                HttpResponse<Void> response = client.send(
+                        TodoRequests.amendTodo(client, entry.getKey(), original.toString()),
+                        HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() != 200) {
+                    restart();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes the todos on the server exactly the given ones (title, doneStatus, description), ignoring ids.
+     * Todos that already match a wanted one are kept, the others are deleted and the missing ones created,
+     * with the deletes and creates sent concurrently over the shared client.
+     * <p>
+     * If any of them fails, the todos are listed again and the difference reconciled, up to RESET_ATTEMPTS
+     * times; re-listing rather than resending means a create that failed on our side but reached the server
+     * is not made twice. The stats count the todos of the first round, retries only add to the time.
+     */
+    public ResetStats resetTodos(List<JsonObject> wanted) throws IOException, InterruptedException {
+        long startTime = System.nanoTime();
+        long[] first = null;
+        long errors = 0;
+        for (int attempt = 0; attempt < RESET_ATTEMPTS; attempt++) {
+            long[] round = reconcile(wanted);
+            if (first == null) {
+                first = round;
+            }
+            errors = round[3];
+            if (errors == 0) {
+                break;
+            }
+        }
+        return new ResetStats((int) first[0], (int) first[1], (int) first[2], errors, System.nanoTime() - startTime);
+    }
+
+    // One round of resetTodos, returns {kept, deleted, created, failed requests}
+    private long[] reconcile(List<JsonObject> wanted) throws IOException, InterruptedException {
+        List<JsonObject> missing = new ArrayList<>(wanted);
+        List<Integer> extra = new ArrayList<>();
+        for (JsonElement element : getTodos()) {
+            JsonObject todo = element.getAsJsonObject();
+            int match = -1;
+            for (int i = 0; i < missing.size() && match < 0; i++) {
+                if (sameFields(missing.get(i), todo)) {
+                    match = i;
+                }
+            }
+            if (match >= 0) {
+                missing.remove(match);
+            } else {
+                extra.add(todo.get("id").getAsInt());
+            }
+        }
+
+        long errors = deleteAll(extra);
+        if (!missing.isEmpty()) {
+            LoadResult created = new LoadEngine(client, RESET_CONCURRENCY)
+                    .run("POST", missing.size(), (worker, sequence) -> TodoRequests.createTodo(client, missing.get(sequence).toString()));
+            errors += created.errors();
+        }
+        return new long[] {wanted.size() - missing.size(), extra.size(), missing.size(), errors};
+    }
+
+    // Outcome of resetTodos: how many todos were kept, deleted and created, and how long it took
+    public static class ResetStats {
+        private final int kept;
+        private final int deleted;
+        private final int created;
+        private final long errors;
+        private final long nanos;
+
+        ResetStats(int kept, int deleted, int created, long errors, long nanos) {
+            this.kept = kept;
+            this.deleted = deleted;
+            this.created = created;
+            this.errors = errors;
+            this.nanos = nanos;
+        }
+
+        public int kept() {
+            return kept;
+        }
+
+        public int deleted() {
+            return deleted;
+        }
+
+        public int created() {
+            return created;
+        }
+
+        public long errors() {
+            return errors;
+        }
+
+        public long nanos() {
+            return nanos;
+        }
+    }
+
+    // Deletes the given todos concurrently, returns the number of failed deletes
+    private long deleteAll(List<Integer> ids) throws InterruptedException {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        return new LoadEngine(client, RESET_CONCURRENCY)
+                .run("DELETE", ids.size(), (worker, sequence) -> TodoRequests.deleteTodo(client, ids.get(sequence)))
+                .errors();
+    }
+
+    // Polls GET /todos with exponential backoff until the server answers, returns its todos
+    private JsonArray awaitReady(long deadline) throws IOException, InterruptedException {
+        long backoff = FIRST_BACKOFF_MILLIS;
+        IOException lastFailure = null;
+        while (System.nanoTime() < deadline) {
+            if (!isRunning()) {
+                throw new IOException(standIn ? "Stand-in server stopped during startup"
+                        : "Todo Manager exited during startup with code " + process.exitValue());
+            }
+            try {
+                return getTodos();
+            } catch (IOException e) {
+                lastFailure = e;
+            }
+            Thread.sleep(backoff);
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+        stop();
+        throw new IOException("Todo Manager did not answer on port " + port + " within " + startTimeout, lastFailure);
+    }
+
+    private JsonArray getTodos() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(TodoRequests.getTodos(client, ""), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET /todos returned " + response.statusCode());
+        }
+        return JsonParser.parseString(response.body()).getAsJsonObject().get("todos").getAsJsonArray();
+    }
+
+    // Keeps the fields a todo can be amended back to
+    private static Map<Integer, JsonObject> snapshot(JsonArray todos) {
+        Map<Integer, JsonObject> snapshot = new LinkedHashMap<>();
+        for (JsonElement element : todos) {
+            JsonObject todo = element.getAsJsonObject();
+            JsonObject fields = new JsonObject();
+            fields.addProperty("title", todo.get("title").getAsString());
+            fields.addProperty("doneStatus", todo.get("doneStatus").getAsBoolean());
+            fields.addProperty("description", todo.get("description").getAsString());
+            snapshot.put(todo.get("id").getAsInt(), fields);
+        }
+        return snapshot;
+    }
+
+    private static boolean sameFields(JsonObject original, JsonObject todo) {
+        return original.get("title").getAsString().equals(todo.get("title").getAsString())
+                && original.get("doneStatus").getAsBoolean() == todo.get("doneStatus").getAsBoolean()
+                && original.get("description").getAsString().equals(todo.get("description").getAsString());
+    }
+}
@@ -0,0 +1,83 @@
+package fixture;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Hands out one Todo Manager per concurrently running scenario.
+ * <p>
+ * Each server runs in its own JVM on its own port (starting at {@link #BASE_PORT}), so scenarios that
+ * run in parallel never see each other's todos. Servers are started on demand, up to the configured
+ * maximum, and kept for the next scenario once released.
+ */
+public class ServerPool {
+
+    // First port used by pooled servers, kept away from 4567 which TodosTest and manual runs use
+    public static final int BASE_PORT = 4600;
+    // Maximum number of servers, defaults to the number of processors like Cucumber's dynamic parallelism
+    public static final String MAX_SERVERS_PROPERTY = "todo.cucumber.servers";
+
+    private static final ServerPool shared = new ServerPool(
+            Integer.getInteger(MAX_SERVERS_PROPERTY, Runtime.getRuntime().availableProcessors()));
+
+    private final int maxServers;
+    private final BlockingQueue<ServerFixture> idle = new LinkedBlockingQueue<>();
+    private final List<ServerFixture> all = new CopyOnWriteArrayList<>();
+
+    public ServerPool(int maxServers) {
+        this.maxServers = Math.max(1, maxServers);
+    }
+
+    public static ServerPool shared() {
+        return shared;
+    }
+
+    // Takes an idle server, starting a new one if none is idle and the maximum is not reached
+    public ServerFixture acquire() throws IOException, InterruptedException {
+        ServerFixture server = idle.poll();
+        if (server == null) {
+            server = startNewServer();
+        }
+        if (server == null) {
+            server = idle.take();
+        }
+        if (!server.isRunning()) {
+            server.reset();
+        }
+        return server;
+    }
+
+    public void release(ServerFixture server) {
+        idle.add(server);
+    }
+
+    public void stopAll() throws InterruptedException {
+        for (ServerFixture server : all) {
+            server.stop();
+        }
+        all.clear();
+        idle.clear();
+    }
+
+    // Returns a started server on the next free port, or null when the pool is full
+    private ServerFixture startNewServer() throws IOException, InterruptedException {
+        ServerFixture server;
+        synchronized (all) {
+            if (all.size() >= maxServers) {
+                return null;
+            }
+            server = new ServerFixture(BASE_PORT + all.size());
+            all.add(server);
+        }
+        try {
+            server.start();
+        } catch (IOException | InterruptedException e) {
+            all.remove(server);
+            throw e;
+        }
+        return server;
+    }
+}
@@ -1,27 +1,36 @@
 package steps;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
+import client.TodoClient;
+import client.TodoStreamParser;
+import client.TodoSummary;
+import client.TodoTitleIndex;
+import client.TodoXmlReader;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import fixture.ServerFixture;
+import fixture.ServerPool;
+import io.cucumber.java.After;
+import io.cucumber.java.AfterAll;
+import io.cucumber.java.Before;
+import io.cucumber.java.Scenario;
 import io.cucumber.java.en.And;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
 import io.cucumber.java.en.When;
+import metrics.MetricsSink;
 import org.junit.jupiter.api.Assertions;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
+import javax.xml.stream.XMLStreamException;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
-import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -29,100 +38,146 @@ import java.util.Set;
 
 public class TodoStepDefinitions {
 
-    static final String baseURL = "http://localhost:4567";
+    // Each scenario gets its own server from the pool, so scenarios can run in parallel
+    private ServerFixture server;
+    private String baseURL;
+    private TodoClient client;
+    private TodoTitleIndex titleIndex;
+    private String scenarioName;
+    private static MetricsSink resetMetrics;
+    // Cross-check every title lookup against GET /todos, -Dtodo.index.verify=true
+    private static final boolean verifyIndex = Boolean.getBoolean("todo.index.verify");
 
     private HttpResponse<String> lastResponse;
 
+    @Before
+    public void leaseServer(Scenario scenario) throws IOException, InterruptedException {
+        scenarioName = scenario.getName().replace(',', ' ');
+        server = ServerPool.shared().acquire();
+        baseURL = server.baseURL();
+        client = TodoClient.forTarget(baseURL);
+        titleIndex = server.titleIndex();
+    }
 
-    // Helper method to retrieve all todos
-    private JsonArray retrieveAllTodos() throws IOException, InterruptedException {
-        HttpRequest getRequest = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos"))
-                .GET()
-                .build();
-        HttpResponse<String> getResponse = HttpClient.newHttpClient()
-                .send(getRequest, HttpResponse.BodyHandlers.ofString());
-        Assertions.assertEquals(200, getResponse.statusCode(), "Failed to retrieve todos");
+    @After
+    public void releaseServer() {
+        ServerPool.shared().release(server);
+    }
 
-        JsonObject jsonResponse = JsonParser.parseString(getResponse.body()).getAsJsonObject();
-        return jsonResponse.get("todos").getAsJsonArray();
+    @AfterAll
+    public static void stopServers() throws IOException, InterruptedException {
+        ServerPool.shared().stopAll();
+        if (resetMetrics != null) {
+            resetMetrics.close();
+        }
     }
 
-    // Helper method to delete a todo by ID
-    private void deleteTodoById(int id) throws IOException, InterruptedException {
-        HttpRequest deleteRequest = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + "/todos/" + id))
-                .DELETE()
-                .build();
-        HttpClient.newHttpClient().send(deleteRequest, HttpResponse.BodyHandlers.ofString());
+
+    // Helper method to retrieve all todos
+    private List<TodoSummary> retrieveAllTodos() throws IOException, InterruptedException {
+        try (InputStream body = openTodosStream()) {
+            return TodoStreamParser.readTodos(body);
+        }
     }
 
-    // Helper method to delete all todos
-    private void deleteAllTodos() throws IOException, InterruptedException {
-        JsonArray todosList = retrieveAllTodos();
-        for (JsonElement todoElement : todosList) {
-            int id = todoElement.getAsJsonObject().get("id").getAsInt();
-            deleteTodoById(id);
+    // Helper method to send GET /todos and return the body unread, for streaming parsing
+    private InputStream openTodosStream() throws IOException, InterruptedException {
+        HttpRequest getRequest = client.request("/todos")
+                .GET()
+                .build();
+        HttpResponse<InputStream> getResponse = client
+                .send(getRequest, HttpResponse.BodyHandlers.ofInputStream());
+        if (getResponse.statusCode() != 200) {
+            getResponse.body().close();
+            Assertions.fail("Failed to retrieve todos: " + getResponse.statusCode());
         }
+        return getResponse.body();
     }
 
-    // Helper method to add todos from a DataTable
-    private void addTodosFromDataTable(io.cucumber.datatable.DataTable dataTable) throws IOException, InterruptedException {
-        List<Map<String, String>> todosData = dataTable.asMaps(String.class, String.class);
-        for (Map<String, String> row : todosData) {
+    // Helper method to make the todos of the DataTable the only todos in the system
+    private void resetTodosFromDataTable(io.cucumber.datatable.DataTable dataTable) throws IOException, InterruptedException {
+        List<JsonObject> wanted = new ArrayList<>();
+        for (Map<String, String> row : dataTable.asMaps(String.class, String.class)) {
             JsonObject newTodo = new JsonObject();
             newTodo.addProperty("title", row.get("title"));
             newTodo.addProperty("doneStatus", Boolean.parseBoolean(row.get("doneStatus")));
             newTodo.addProperty("description", row.get("description"));
+            wanted.add(newTodo);
+        }
 
-            HttpRequest postRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(baseURL + "/todos"))
-                    .header("Content-Type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(newTodo.toString()))
-                    .build();
-            HttpResponse<String> postResponse = HttpClient.newHttpClient().send(postRequest, HttpResponse.BodyHandlers.ofString());
-            Assertions.assertEquals(201, postResponse.statusCode(), "Todo creation failed");
+        ServerFixture.ResetStats stats = server.resetTodos(wanted);
+        Assertions.assertEquals(0, stats.errors(), "Todo reset failed");
+        resetMetrics().offerLine(String.format("%s,%d,%d,%d,%.3f",
+                scenarioName, stats.kept(), stats.deleted(), stats.created(), stats.nanos() / 1e6));
+    }
+
+    // Reset times per scenario, written off-thread to target/cucumber_reset_metrics.csv
+    private static synchronized MetricsSink resetMetrics() throws IOException {
+        if (resetMetrics == null) {
+            Files.createDirectories(Path.of("target"));
+            resetMetrics = new MetricsSink(Path.of("target", "cucumber_reset_metrics.csv"),
+                    "scenario,kept,deleted,created,duration", 1 << 10, MetricsSink.OverflowPolicy.WAIT);
         }
+        return resetMetrics;
     }
 
-    // Helper method to verify the number of todos in the system
+    // Helper method to verify the number of todos in the system, also refreshes the title index from the list
     private void verifyTodosCount(int expectedCount) throws IOException, InterruptedException {
-        JsonArray todosList = retrieveAllTodos();
+        List<TodoSummary> todosList = retrieveAllTodos();
         Assertions.assertEquals(expectedCount, todosList.size(), "Unexpected number of todos in the system");
+        titleIndex.rebuild(todosList);
     }
 
-    // Private helper method to parse the XML response body
-    private Document parseXmlResponse(String xmlResponse) {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+    // Helper method to read the given elements of the XML response body in one streaming pass
+    private static Map<String, String> readXmlElements(String xmlResponse, Collection<String> tags) {
         try {
-            Document doc = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xmlResponse)));
-            doc.getDocumentElement().normalize();
-            return doc;
-        } catch (Exception e) {
+            return TodoXmlReader.readElements(new StringReader(xmlResponse), tags);
+        } catch (XMLStreamException e) {
             Assertions.fail("Failed to parse XML response body: " + e.getMessage());
             return null; // This line will not be reached due to the assertion failure
         }
     }
 
     // Private helper method to validate the XML element's value
-    private void validateXmlElement(Document doc, String tag, String expectedValue) {
-        NodeList nodes = doc.getElementsByTagName(tag);
-        Assertions.assertTrue(nodes.getLength() > 0, "XML response is missing element: " + tag);
-
-        String actualValue = nodes.item(0).getTextContent().trim();
-        Assertions.assertEquals(expectedValue, actualValue, "Value for element '" + tag + "' does not match expected value.");
+    private void validateXmlElement(Map<String, String> values, String tag, String expectedValue) {
+        Assertions.assertTrue(values.containsKey(tag), "XML response is missing element: " + tag);
+        Assertions.assertEquals(expectedValue, values.get(tag), "Value for element '" + tag + "' does not match expected value.");
     }
 
-    // Private helper method get the id of the todo with the given title
+    // Private helper method get the id of the todo with the given title, from the title index
     private int getTodoIdByTitle(String title) throws IOException, InterruptedException {
-        JsonArray todosList = retrieveAllTodos();
-        for (JsonElement todoElement : todosList) {
-            JsonObject todo = todoElement.getAsJsonObject();
-            if (todo.get("title").getAsString().equals(title)) {
-                return todo.get("id").getAsInt();
-            }
+        if (verifyIndex) {
+            verifyTitleIndex();
+        }
+        return titleIndex.idOf(title);
+    }
+
+    // Private helper method get the id of the todo with the given title by scanning the server's list
+    private int findTodoIdOnServer(String title) throws IOException, InterruptedException {
+        // Stops reading the body at the first match
+        try (InputStream body = openTodosStream()) {
+            return TodoStreamParser.findIdByTitle(body, title);
+        }
+    }
+
+    // Private helper method to check the title index against the server
+    private void verifyTitleIndex() throws IOException, InterruptedException {
+        List<String> differences = titleIndex.verify(retrieveAllTodos());
+        Assertions.assertTrue(differences.isEmpty(), "Title index out of sync with the server: " + differences);
+    }
+
+    // Private helper method to index the todo created by the last response
+    private void indexCreatedTodo(boolean xml) {
+        if (lastResponse.statusCode() != 201) {
+            return;
+        }
+        if (xml) {
+            Map<String, String> todo = readXmlElements(lastResponse.body(), List.of("id", "title"));
+            titleIndex.put(Integer.parseInt(todo.get("id")), todo.get("title"));
+        } else {
+            JsonObject todo = JsonParser.parseString(lastResponse.body()).getAsJsonObject();
+            titleIndex.put(todo.get("id").getAsInt(), todo.get("title").getAsString());
         }
-        return -1;
     }
 
     @Given("the thingifier application is running")
@@ -140,9 +195,7 @@ public class TodoStepDefinitions {
     public void no_todo_exists_in_the_application_except_the_following(io.cucumber.datatable.DataTable dataTable) {
 
         try {
-            deleteAllTodos();
-
-            addTodosFromDataTable(dataTable);
+            resetTodosFromDataTable(dataTable);
 
             verifyTodosCount(dataTable.asMaps(String.class, String.class).size());
 
@@ -195,16 +248,16 @@ public class TodoStepDefinitions {
         );
 
         // Build the POST request with XML body
-        HttpRequest postRequest = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + endpoint))
+        HttpRequest postRequest = client.request(endpoint)
                 .header("Content-Type", "application/xml")
                 .header("Accept", "application/xml")
                 .POST(HttpRequest.BodyPublishers.ofString(xmlBody))
                 .build();
 
         try {
-            lastResponse = HttpClient.newHttpClient()
+            lastResponse = client
                     .send(postRequest, HttpResponse.BodyHandlers.ofString());
+            indexCreatedTodo(true);
         } catch (IOException | InterruptedException e) {
             Assertions.fail("POST request with XML body failed: " + e.getMessage());
         }
@@ -212,15 +265,17 @@ public class TodoStepDefinitions {
 
     @And("the response body should be an XML object with the following elements:")
     public void the_response_body_should_be_an_xml_object_with_the_following_elements(io.cucumber.datatable.DataTable dataTable) {
-
-        Document doc = parseXmlResponse(lastResponse.body());
         List<Map<String, String>> elements = dataTable.asMaps(String.class, String.class);
 
+        // Collect only the elements named in the table
+        List<String> tags = new ArrayList<>();
         for (Map<String, String> element : elements) {
-            String tag = element.get("element");
-            String expectedValue = element.get("value");
-            assert doc != null : "Document is null, parsing failed.";
-            validateXmlElement(doc, tag, expectedValue);
+            tags.add(element.get("element"));
+        }
+        Map<String, String> values = readXmlElements(lastResponse.body(), tags);
+
+        for (Map<String, String> element : elements) {
+            validateXmlElement(values, element.get("element"), element.get("value"));
         }
     }
 
@@ -231,15 +286,15 @@ public class TodoStepDefinitions {
         jsonBody.addProperty("doneStatus", Boolean.parseBoolean(doneStatus));
         jsonBody.addProperty("description", description);
 
-        HttpRequest postRequest = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + endpoint))
+        HttpRequest postRequest = client.request(endpoint)
                 .header("Content-Type", "application/json")
                 .POST(HttpRequest.BodyPublishers.ofString(jsonBody.toString()))
                 .build();
 
         try {
-            lastResponse = HttpClient.newHttpClient()
+            lastResponse = client
                     .send(postRequest, HttpResponse.BodyHandlers.ofString());
+            indexCreatedTodo(false);
 
         } catch (IOException | InterruptedException e) {
             Assertions.fail("POST request failed: " + e.getMessage());
@@ -272,13 +327,12 @@ public class TodoStepDefinitions {
                 jsonBody.addProperty("doneStatus", doneStatus);
             }
 
-            HttpRequest postRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(baseURL + "/todos/" + id))
+            HttpRequest postRequest = client.request("/todos/" + id)
                     .header("Content-Type", "application/json")
                     .POST(HttpRequest.BodyPublishers.ofString(jsonBody.toString()))
                     .build();
 
-            lastResponse = HttpClient.newHttpClient()
+            lastResponse = client
                     .send(postRequest, HttpResponse.BodyHandlers.ofString());
 
         } catch (IOException | InterruptedException e) {
@@ -300,15 +354,14 @@ public class TodoStepDefinitions {
                     "<doneStatus>" + doneStatus + "</doneStatus>" +
                     "</todo>";
 
-            HttpRequest postRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(baseURL + "/todos/" + id))
+            HttpRequest postRequest = client.request("/todos/" + id)
                     .header("Content-Type", "application/xml")
                     .header("Accept", "application/xml")
                     .POST(HttpRequest.BodyPublishers.ofString(xmlBody))
                     .build();
 
             // Send the request and capture the last response
-            lastResponse = HttpClient.newHttpClient()
+            lastResponse = client
                     .send(postRequest, HttpResponse.BodyHandlers.ofString());
 
         } catch (IOException | InterruptedException e) {
@@ -330,15 +383,17 @@ public class TodoStepDefinitions {
             jsonBody.addProperty("title", newTitle);
 
             // Build the PUT request with JSON body
-            HttpRequest putRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(baseURL + "/todos/" + id))
+            HttpRequest putRequest = client.request("/todos/" + id)
                     .header("Content-Type", "application/json")
                     .PUT(HttpRequest.BodyPublishers.ofString(jsonBody.toString()))
                     .build();
 
             // Send the request and capture the last response
-            lastResponse = HttpClient.newHttpClient()
+            lastResponse = client
                     .send(putRequest, HttpResponse.BodyHandlers.ofString());
+            if (lastResponse.statusCode() == 200) {
+                titleIndex.rename(id, newTitle);
+            }
 
         } catch (IOException | InterruptedException e) {
             Assertions.fail("PUT request failed: " + e.getMessage());
@@ -360,15 +415,17 @@ public class TodoStepDefinitions {
             jsonBody.addProperty("description", newDescription);
 
             // Build the PUT request with JSON body
-            HttpRequest putRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(baseURL + "/todos/" + id))
+            HttpRequest putRequest = client.request("/todos/" + id)
                     .header("Content-Type", "application/json")
                     .PUT(HttpRequest.BodyPublishers.ofString(jsonBody.toString()))
                     .build();
 
             // Send the request and capture the last response
-            lastResponse = HttpClient.newHttpClient()
+            lastResponse = client
                     .send(putRequest, HttpResponse.BodyHandlers.ofString());
+            if (lastResponse.statusCode() == 200) {
+                titleIndex.rename(id, title);
+            }
 
         } catch (IOException | InterruptedException e) {
             Assertions.fail("PUT request failed: " + e.getMessage());
@@ -389,16 +446,18 @@ public class TodoStepDefinitions {
             jsonBody.addProperty("title", title);
 
             // Build the DELETE request
-            HttpRequest deleteRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(baseURL + "/todos/" + id))
+            HttpRequest deleteRequest = client.request("/todos/" + id)
                     .header("Content-Type", "application/json")
                     .header("Accept", "application/json")
                     .method("DELETE", HttpRequest.BodyPublishers.ofString(jsonBody.toString()))
                     .build();
 
             // Send the request and capture the last response
-            lastResponse = HttpClient.newHttpClient()
+            lastResponse = client
                     .send(deleteRequest, HttpResponse.BodyHandlers.ofString());
+            if (lastResponse.statusCode() == 200) {
+                titleIndex.remove(id);
+            }
 
         } catch (IOException | InterruptedException e) {
             Assertions.fail("DELETE request failed: " + e.getMessage());
@@ -408,8 +467,10 @@ public class TodoStepDefinitions {
     @And("the thingifier app should not contain the todo with title {string}")
     public void theThingifierAppShouldNotContainTheTodoWithTitle(String title) {
         try {
-            int id = getTodoIdByTitle(title);
+            // Ask the server, then make sure the title index agrees with it
+            int id = findTodoIdOnServer(title);
             Assertions.assertEquals(-1, id, "Todo with title '" + title + "' still exists in the system");
+            verifyTitleIndex();
 
         } catch (IOException | InterruptedException e) {
             Assertions.fail("Failed to verify todo presence: " + e.getMessage());
@@ -426,14 +487,16 @@ public class TodoStepDefinitions {
             }
 
             // Build the DELETE request
-            HttpRequest deleteRequest = HttpRequest.newBuilder()
-                    .uri(URI.create(baseURL + "/todos/" + id))
+            HttpRequest deleteRequest = client.request("/todos/" + id)
                     .DELETE()
                     .build();
 
             // Send the request and capture the last response
-            lastResponse = HttpClient.newHttpClient()
+            lastResponse = client
                     .send(deleteRequest, HttpResponse.BodyHandlers.ofString());
+            if (lastResponse.statusCode() == 200) {
+                titleIndex.remove(id);
+            }
 
         } catch (IOException | InterruptedException e) {
             Assertions.fail("DELETE request failed: " + e.getMessage());
@@ -442,13 +505,12 @@ public class TodoStepDefinitions {
 
     @When("the user sends a GET request to the {string} endpoint")
     public void theUserSendsAGETRequestToTheEndpoint(String endpoint) {
-        HttpRequest getRequest = HttpRequest.newBuilder()
-                .uri(URI.create(baseURL + endpoint))
+        HttpRequest getRequest = client.request(endpoint)
                 .GET()
                 .build();
 
         try {
-            lastResponse = HttpClient.newHttpClient()
+            lastResponse = client
                     .send(getRequest, HttpResponse.BodyHandlers.ofString());
 
         } catch (IOException | InterruptedException e) {
@@ -457,15 +519,15 @@ public class TodoStepDefinitions {
     }
 
     @And("the response body should be a list of JSON objects with the following key-value pairs:")
-    public void theResponseBodyShouldBeAListOfJSONObjectsWithTheFollowingKeyValuePairs(io.cucumber.datatable.DataTable dataTable) {
+    public void theResponseBodyShouldBeAListOfJSONObjectsWithTheFollowingKeyValuePairs(io.cucumber.datatable.DataTable dataTable) throws IOException {
         // Parse the expected data from the DataTable
         List<Map<String, String>> expectedTodos = dataTable.asMaps(String.class, String.class);
 
         // Parse the actual response body
-        JsonArray actualTodosArray = JsonParser.parseString(lastResponse.body()).getAsJsonObject().get("todos").getAsJsonArray();
+        List<TodoSummary> actualTodos = TodoStreamParser.readTodos(new StringReader(lastResponse.body()));
 
         // Check if the actual response contains the expected todos
-        Assertions.assertEquals(expectedTodos.size(), actualTodosArray.size(), "The number of returned todos does not match the expected count.");
+        Assertions.assertEquals(expectedTodos.size(), actualTodos.size(), "The number of returned todos does not match the expected count.");
 
         // Create a Set for expected todos without the id
         Set<String> expectedTodoSet = new HashSet<>();
@@ -481,14 +543,8 @@ public class TodoStepDefinitions {
         }
 
         // Validate each actual todo against the expected todos without considering id
-        for (int i = 0; i < actualTodosArray.size(); i++) {
-            JsonObject actualTodo = actualTodosArray.get(i).getAsJsonObject();
-
-            // Create a temporary JsonObject for comparison without the id
-            JsonObject actualTodoWithoutId = new JsonObject();
-            actualTodoWithoutId.addProperty("title", actualTodo.get("title").getAsString());
-            actualTodoWithoutId.addProperty("doneStatus", actualTodo.get("doneStatus").getAsBoolean());
-            actualTodoWithoutId.addProperty("description", actualTodo.get("description").getAsString());
+        for (TodoSummary actualTodo : actualTodos) {
+            JsonObject actualTodoWithoutId = actualTodo.toJsonWithoutId();
 
             Assertions.assertTrue(expectedTodoSet.contains(actualTodoWithoutId.toString()),
                     "Actual todo not found in expected todos: " + actualTodoWithoutId);